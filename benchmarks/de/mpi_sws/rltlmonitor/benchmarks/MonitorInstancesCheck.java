@@ -0,0 +1,401 @@
+package de.mpi_sws.rltlmonitor.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.mpi_sws.rltl.parser.ParseException;
+
+import de.mpi_sws.rltlmonitor.MonitorConstructor;
+import de.mpi_sws.rltlmonitor.runtime.CompiledMonitor;
+import de.mpi_sws.rltlmonitor.runtime.MonitorInstances;
+
+/**
+ * Checks {@link MonitorInstances} against a straightforward reference model
+ * by applying random sequences of allocations, frees, resets and (single and
+ * batch) steps, with and without retirement of conclusive instances.
+ * <p>
+ * The reference model keeps the state of each instance in a map and the freed
+ * slots in a stack, since freed slots are reused in reverse order. After each
+ * operation, the slot returned by the store, its size, the state of every
+ * allocated slot, the free slots and the notifications of the verdict
+ * listener are compared with the model. Moreover, operations on free slots
+ * have to be rejected, and instances of a monitor whose initial state is
+ * conclusive have to be retired without taking a slot.
+ * <p>
+ * The check throws an {@link IllegalStateException} at the first difference
+ * and prints one line per monitor and mode otherwise.
+ */
+public class MonitorInstancesCheck {
+
+	/**
+	 * The LTL formulas whose monitors are checked.
+	 */
+	private static final String[] LTL_FORMULAS = { "( ( a ) U ( b ) )" };
+
+	/**
+	 * The rLTL formulas whose monitors are checked.
+	 */
+	private static final String[] RLTL_FORMULAS = { "( G ( ( a ) => ( F ( b ) ) ) )",
+			"( ( G ( a ) ) | ( F ( ( b ) & ( c ) ) ) )" };
+
+	/**
+	 * The verdict listener of the checked store, which records its
+	 * notifications.
+	 */
+	private static final class RecordingListener implements MonitorInstances.VerdictListener {
+
+		/**
+		 * The notifications since the last call of {@link #take()}.
+		 */
+		private final List<String> events = new ArrayList<>();
+
+		@Override
+		public void verdictChanged(int slot, byte previous, byte current) {
+			events.add(changed(slot, previous, current));
+		}
+
+		@Override
+		public void instanceRetired(int slot, byte verdict) {
+			events.add(retired(slot, verdict));
+		}
+
+		/**
+		 * Returns and clears the recorded notifications.
+		 *
+		 * @return the notifications since the last call
+		 */
+		List<String> take() {
+			var result = new ArrayList<>(events);
+			events.clear();
+			return result;
+		}
+
+	}
+
+	/**
+	 * The reference model of a store.
+	 */
+	private static final class Model {
+
+		/**
+		 * The monitor all instances execute.
+		 */
+		final CompiledMonitor monitor;
+
+		/**
+		 * Whether instances are retired once they reach a conclusive state.
+		 */
+		final boolean retire;
+
+		/**
+		 * The state of each allocated slot.
+		 */
+		final Map<Integer, Integer> states = new HashMap<>();
+
+		/**
+		 * The free slots, the most recently freed one first.
+		 */
+		final Deque<Integer> free = new ArrayDeque<>();
+
+		/**
+		 * The expected notifications since the last comparison.
+		 */
+		final List<String> events = new ArrayList<>();
+
+		/**
+		 * The number of slots that have ever been allocated.
+		 */
+		int used = 0;
+
+		/**
+		 * Creates an empty model.
+		 *
+		 * @param monitor The monitor all instances execute
+		 * @param retire  Whether conclusive instances are retired
+		 */
+		Model(CompiledMonitor monitor, boolean retire) {
+			this.monitor = monitor;
+			this.retire = retire;
+		}
+
+		/**
+		 * Allocates a slot.
+		 *
+		 * @return the expected slot or {@link MonitorInstances#RETIRED}
+		 */
+		int allocate() {
+			if (retire && monitor.isConclusive(monitor.initialState())) {
+				return MonitorInstances.RETIRED;
+			}
+			int slot = free.isEmpty() ? used++ : free.pop();
+			states.put(slot, monitor.initialState());
+			return slot;
+		}
+
+		/**
+		 * Frees a slot.
+		 *
+		 * @param slot The allocated slot
+		 */
+		void free(int slot) {
+			states.remove(slot);
+			free.push(slot);
+		}
+
+		/**
+		 * Feeds an event to an instance.
+		 *
+		 * @param slot   The allocated slot
+		 * @param letter The event
+		 * @return the expected verdict after the event
+		 */
+		byte step(int slot, int letter) {
+			int state = states.get(slot);
+			int successor = monitor.step(state, letter);
+			states.put(slot, successor);
+			if (monitor.verdict(state) != monitor.verdict(successor)) {
+				events.add(changed(slot, monitor.verdict(state), monitor.verdict(successor)));
+			}
+			retireIfConclusive(slot);
+			return monitor.verdict(successor);
+		}
+
+		/**
+		 * Resets an instance.
+		 *
+		 * @param slot The allocated slot
+		 * @return the expected result of {@link MonitorInstances#reset(int)}
+		 */
+		int reset(int slot) {
+			states.put(slot, monitor.initialState());
+			return retireIfConclusive(slot) ? MonitorInstances.RETIRED : slot;
+		}
+
+		/**
+		 * Retires an instance if retirement is enabled and its state is conclusive.
+		 *
+		 * @param slot The allocated slot
+		 * @return whether the instance was retired
+		 */
+		private boolean retireIfConclusive(int slot) {
+			int state = states.get(slot);
+			if (retire && monitor.isConclusive(state)) {
+				events.add(retired(slot, monitor.verdict(state)));
+				free(slot);
+				return true;
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * Main method.
+	 *
+	 * @param args Optionally the number of random operations per monitor and
+	 *             mode (default: 100000) and the seed of the random generator
+	 *             (default: 0)
+	 * @throws ParseException
+	 * @throws UnsupportedEncodingException
+	 */
+	public static void main(String[] args) throws ParseException, UnsupportedEncodingException {
+
+		int operations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+
+		var monitors = new LinkedHashMap<String, CompiledMonitor>();
+		for (String formula : LTL_FORMULAS) {
+			monitors.put(formula, CompiledMonitor.compile(MonitorConstructor.constructLTLMonitor(formula)));
+		}
+		for (String formula : RLTL_FORMULAS) {
+			monitors.put(formula, CompiledMonitor.compile(MonitorConstructor.constructrLTLMonitor(formula)));
+		}
+		for (var entry : monitors.entrySet()) {
+			for (boolean retire : new boolean[] { false, true }) {
+				check(entry.getValue(), retire, operations, new Random(seed));
+				System.out.println(entry.getKey() + (retire ? " (retiring)" : "") + ": " + operations
+						+ " operations, no differences");
+			}
+		}
+
+		// Instances of a monitor that is conclusive from the start are retired right away
+		var trivial = CompiledMonitor
+				.compile(MonitorConstructor.constructLTLMonitor("( G ( ( a ) | ( ! ( a ) ) ) )"));
+		var listener = new RecordingListener();
+		var instances = new MonitorInstances(trivial, 0, listener, true);
+		expect(trivial.isConclusive(trivial.initialState()), "initial state of a tautology is not conclusive");
+		expect(instances.allocate() == MonitorInstances.RETIRED, "conclusive instance got a slot");
+		expect(instances.size() == 0 && !instances.isAllocated(0), "conclusive instance takes a slot");
+		expect(listener.take().isEmpty(), "retirement at allocation was notified");
+		System.out.println("Conclusive initial state: no differences");
+
+	}
+
+	/**
+	 * Applies random operations to a store and compares it with the reference
+	 * model.
+	 *
+	 * @param monitor    The monitor the instances execute
+	 * @param retire     Whether conclusive instances are retired
+	 * @param operations The number of operations
+	 * @param random     The random generator
+	 */
+	private static void check(CompiledMonitor monitor, boolean retire, int operations, Random random) {
+
+		var listener = new RecordingListener();
+		var instances = new MonitorInstances(monitor, 1, listener, retire);
+		var model = new Model(monitor, retire);
+		var live = new ArrayList<Integer>();
+
+		for (int operation = 0; operation < operations; ++operation) {
+
+			int choice = random.nextInt(10);
+			if (live.isEmpty() || choice < 2) {
+
+				// Allocate
+				int slot = instances.allocate();
+				expect(slot == model.allocate(), "allocate returned " + slot);
+				if (slot != MonitorInstances.RETIRED) {
+					live.add(slot);
+				}
+
+			} else if (choice < 4) {
+
+				// Free
+				int slot = live.remove(random.nextInt(live.size()));
+				instances.free(slot);
+				model.free(slot);
+				expectRejected(instances, slot);
+
+			} else if (choice < 5) {
+
+				// Reset
+				int slot = live.get(random.nextInt(live.size()));
+				int result = instances.reset(slot);
+				expect(result == model.reset(slot), "reset returned " + result);
+
+			} else if (choice < 8) {
+
+				// Single step
+				int slot = live.get(random.nextInt(live.size()));
+				int letter = random.nextInt(monitor.alphabetSize());
+				byte verdict = instances.step(slot, letter);
+				expect(verdict == model.step(slot, letter), "step returned a wrong verdict");
+
+			} else {
+
+				// Batch step, possibly feeding several events to the same slot
+				int length = 1 + random.nextInt(2 * live.size());
+				int[] slots = new int[length + 2];
+				int[] letters = new int[length + 2];
+				for (int i = 1; i <= length; ++i) {
+					slots[i] = live.get(random.nextInt(live.size()));
+					letters[i] = random.nextInt(monitor.alphabetSize());
+				}
+				// Events outside of [from, to) must be ignored
+				slots[0] = slots[length + 1] = -1;
+				instances.step(slots, letters, 1, length + 1);
+				for (int i = 1; i <= length; ++i) {
+					if (model.states.containsKey(slots[i])) {
+						model.step(slots[i], letters[i]);
+					}
+				}
+
+			}
+
+			live.removeIf(slot -> !model.states.containsKey(slot));
+			compare(instances, model, listener);
+
+		}
+
+	}
+
+	/**
+	 * Compares a store with the reference model.
+	 *
+	 * @param instances The store
+	 * @param model     The reference model
+	 * @param listener  The listener of the store
+	 */
+	private static void compare(MonitorInstances instances, Model model, RecordingListener listener) {
+
+		expect(instances.size() == model.states.size(),
+				"size " + instances.size() + " instead of " + model.states.size());
+		for (var entry : model.states.entrySet()) {
+			expect(instances.isAllocated(entry.getKey()), "slot " + entry.getKey() + " is not allocated");
+			expect(instances.state(entry.getKey()) == entry.getValue(),
+					"slot " + entry.getKey() + " has a wrong state");
+		}
+		for (int slot : model.free) {
+			expect(!instances.isAllocated(slot), "free slot " + slot + " is allocated");
+		}
+		expect(!instances.isAllocated(model.used), "slot " + model.used + " beyond the used slots is allocated");
+
+		var events = listener.take();
+		expect(events.equals(model.events), "notifications " + events + " instead of " + model.events);
+		model.events.clear();
+
+	}
+
+	/**
+	 * Checks that operations on a free slot are rejected.
+	 *
+	 * @param instances The store
+	 * @param slot      The free slot
+	 */
+	private static void expectRejected(MonitorInstances instances, int slot) {
+		try {
+			instances.step(slot, 0);
+		} catch (IllegalArgumentException e) {
+			try {
+				instances.free(slot);
+			} catch (IllegalArgumentException f) {
+				return;
+			}
+		}
+		throw new IllegalStateException("operation on free slot " + slot + " was not rejected");
+	}
+
+	/**
+	 * Throws an exception if a condition does not hold.
+	 *
+	 * @param condition The condition
+	 * @param message   The message of the exception
+	 */
+	private static void expect(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	/**
+	 * Describes a verdict change.
+	 *
+	 * @param slot     The slot of the instance
+	 * @param previous The verdict before the event
+	 * @param current  The verdict after the event
+	 * @return the description
+	 */
+	private static String changed(int slot, byte previous, byte current) {
+		return "changed " + slot + ": " + previous + " -> " + current;
+	}
+
+	/**
+	 * Describes a retirement.
+	 *
+	 * @param slot    The slot of the instance
+	 * @param verdict The final verdict of the instance
+	 * @return the description
+	 */
+	private static String retired(int slot, byte verdict) {
+		return "retired " + slot + ": " + verdict;
+	}
+
+}
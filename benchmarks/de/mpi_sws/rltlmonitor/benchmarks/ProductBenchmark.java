@@ -0,0 +1,93 @@
+package de.mpi_sws.rltlmonitor.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.mpi_sws.rltl.parser.ParseException;
+
+import de.mpi_sws.rltlmonitor.MonitorConstructor;
+import de.mpi_sws.rltlmonitor.MooreMinimization;
+import de.mpi_sws.rltlmonitor.Owl2Automatalib;
+
+/**
+ * Compares the pairwise fold of the five truth-value Moore machines with the
+ * n-ary product on the formulas of a spec file (in the format produced by
+ * {@code run_experiments.py}, i.e., {@code name, line, formula} per line).
+ * <p>
+ * For each formula, one CSV line with the average time (in milliseconds) of
+ * both combination steps and the sizes of the resulting monitors is printed.
+ */
+public class ProductBenchmark {
+
+	/**
+	 * Main method.
+	 * 
+	 * @param args The path to the spec file (default:
+	 *             {@code parenthesized_specs.ltl}) and optionally the number of
+	 *             repetitions per formula (default: 10)
+	 * @throws IOException
+	 * @throws ParseException
+	 */
+	public static void main(String[] args) throws IOException, ParseException {
+
+		String specFile = args.length > 0 ? args[0] : "parenthesized_specs.ltl";
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		PrintStream out = System.out;
+		out.println("Name,Line,Pairwise_Time_in_ms,NAry_Time_in_ms,Pairwise_States,NAry_States");
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(specFile))) {
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+
+				String[] split = line.split(",", 3);
+				if (split.length != 3) {
+					continue;
+				}
+
+				//
+				// Construct truth-value machines
+				//
+				var machines = MonitorConstructor.constructTruthValueMachines(split[2].trim());
+
+				//
+				// Measure (the first repetition serves as warm-up)
+				//
+				long pairwiseTime = 0;
+				long naryTime = 0;
+				int pairwiseStates = 0;
+				int naryStates = 0;
+				for (int i = 0; i <= repetitions; ++i) {
+
+					long start = System.nanoTime();
+					var pairwise = MonitorConstructor.combinePairwise(machines);
+					long pairwiseElapsed = System.nanoTime() - start;
+
+					start = System.nanoTime();
+					var nary = MooreMinimization.minimize(Owl2Automatalib.product(machines));
+					long naryElapsed = System.nanoTime() - start;
+
+					if (i > 0) {
+						pairwiseTime += pairwiseElapsed;
+						naryTime += naryElapsed;
+					}
+					pairwiseStates = pairwise.size();
+					naryStates = nary.size();
+
+				}
+
+				out.println(split[0].trim() + "," + split[1].trim() + ","
+						+ String.format("%.3f", pairwiseTime / (repetitions * 1e6)) + ","
+						+ String.format("%.3f", naryTime / (repetitions * 1e6)) + "," + pairwiseStates + ","
+						+ naryStates);
+
+			}
+
+		}
+
+	}
+
+}
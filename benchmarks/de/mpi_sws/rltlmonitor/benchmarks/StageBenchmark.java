@@ -0,0 +1,334 @@
+package de.mpi_sws.rltlmonitor.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.mpi_sws.rltl.expressions.Expression;
+import org.mpi_sws.rltl.parser.LTLParser;
+import org.mpi_sws.rltl.parser.ParseException;
+
+import de.mpi_sws.rltlmonitor.ConstructionSession;
+import de.mpi_sws.rltlmonitor.MonitorConstructor;
+import de.mpi_sws.rltlmonitor.MooreMinimization;
+import de.mpi_sws.rltlmonitor.Owl2Automatalib;
+import de.mpi_sws.rltlmonitor.OwlFormulaVisitor;
+import de.mpi_sws.rltlmonitor.SharingRLTL2LTLVisitor;
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
+import net.automatalib.util.automata.Automata;
+import owl.automaton.Automaton;
+import owl.ltl.LabelledFormula;
+import owl.translations.ltl2dpa.LTL2DPAFunction;
+
+/**
+ * Measures the individual stages of the rLTL monitor construction on the
+ * formulas of a spec file (in the format produced by {@code run_experiments.py},
+ * i.e., {@code name, line, formula} per line).
+ * <p>
+ * The stages are measured in isolation: the inputs of a stage are computed
+ * once before it is measured, and inputs that a stage modifies (e.g., the Moore
+ * machine minimized by {@link Automata#invasiveMinimize}) are recreated before
+ * each invocation outside of the measured time. Each stage is first invoked a
+ * number of times to warm up the JIT compiler, and then the time of a number of
+ * further invocations is recorded. The results of all invocations are consumed
+ * to prevent the JIT compiler from eliminating them.
+ * <p>
+ * For each formula and stage, one CSV line with the mean, standard deviation
+ * and minimum (in milliseconds) of the measured invocations is printed.
+ */
+public class StageBenchmark {
+
+	/**
+	 * Sink for the results of the measured invocations.
+	 */
+	private static volatile int sink;
+
+	/**
+	 * A stage of the construction whose input is recreated before every
+	 * invocation.
+	 *
+	 * @param <I> The type of the input
+	 */
+	private interface Stage<I> {
+
+		/**
+		 * Creates the input of an invocation (not measured).
+		 *
+		 * @return the input
+		 */
+		I setUp();
+
+		/**
+		 * Runs the stage (measured).
+		 *
+		 * @param input The input
+		 * @return a value depending on the result (e.g., its size)
+		 */
+		int run(I input);
+
+	}
+
+	/**
+	 * Main method.
+	 *
+	 * @param args The path to the spec file (default:
+	 *             {@code parenthesized_specs.ltl}), optionally the number of
+	 *             warm-up invocations (default: 5) and measured invocations
+	 *             (default: 10) per stage and formula
+	 * @throws IOException
+	 * @throws ParseException
+	 */
+	public static void main(String[] args) throws IOException, ParseException {
+
+		String specFile = args.length > 0 ? args[0] : "parenthesized_specs.ltl";
+		int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		System.out.println("Name,Line,Stage,Mean_in_ms,Stddev_in_ms,Min_in_ms");
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(specFile))) {
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+
+				String[] split = line.split(",", 3);
+				if (split.length != 3) {
+					continue;
+				}
+				String prefix = split[0].trim() + "," + split[1].trim() + ",";
+				String formula = split[2].trim();
+
+				//
+				// Compute the inputs of all stages once
+				//
+				var ltlFormulas = parseAndConvert(formula);
+				var session = ConstructionSession.forFormulas(ltlFormulas);
+				List<Automaton<Object, ?>> owlAutomata = new ArrayList<>(5);
+				List<CompactMoore<BitSet, BitSet>> machines = new ArrayList<>(5);
+				for (int truthValue = 0; truthValue < 5; ++truthValue) {
+					owlAutomata.add(translate(session, ltlFormulas[truthValue]));
+					machines.add(MooreMinimization.minimize(Owl2Automatalib.toAutomatalib(owlAutomata.get(truthValue), truthValue)));
+				}
+
+				//
+				// Measure stages
+				//
+				measure(prefix + "parse+rltl2ltl", warmup, iterations, new Stage<String>() {
+
+					@Override
+					public String setUp() {
+						return formula;
+					}
+
+					@Override
+					public int run(String input) {
+						try {
+							return parseAndConvert(input).length;
+						} catch (ParseException e) {
+							throw new RuntimeException(e);
+						}
+					}
+
+				});
+
+				measure(prefix + "ltl2dpa", warmup, iterations, new Stage<LabelledFormula[]>() {
+
+					@Override
+					public LabelledFormula[] setUp() {
+						return ltlFormulas;
+					}
+
+					@Override
+					public int run(LabelledFormula[] input) {
+						int size = 0;
+						for (var ltlFormula : input) {
+							size += translate(session, ltlFormula).size();
+						}
+						return size;
+					}
+
+				});
+
+				measure(prefix + "toAutomatalib", warmup, iterations, new Stage<List<Automaton<Object, ?>>>() {
+
+					@Override
+					public List<Automaton<Object, ?>> setUp() {
+						return owlAutomata;
+					}
+
+					@Override
+					public int run(List<Automaton<Object, ?>> input) {
+						int size = 0;
+						for (int truthValue = 0; truthValue < 5; ++truthValue) {
+							size += Owl2Automatalib.toAutomatalib(input.get(truthValue), truthValue).size();
+						}
+						return size;
+					}
+
+				});
+
+				measure(prefix + "naiveProduct", warmup, iterations, new Stage<List<CompactMoore<BitSet, BitSet>>>() {
+
+					@Override
+					public List<CompactMoore<BitSet, BitSet>> setUp() {
+						return machines;
+					}
+
+					@Override
+					public int run(List<CompactMoore<BitSet, BitSet>> input) {
+						var product = input.get(0);
+						for (int i = 1; i < input.size(); ++i) {
+							product = Owl2Automatalib.naiveProduct(product, input.get(i));
+						}
+						return product.size();
+					}
+
+				});
+
+				measure(prefix + "product", warmup, iterations, new Stage<List<CompactMoore<BitSet, BitSet>>>() {
+
+					@Override
+					public List<CompactMoore<BitSet, BitSet>> setUp() {
+						return machines;
+					}
+
+					@Override
+					public int run(List<CompactMoore<BitSet, BitSet>> input) {
+						return Owl2Automatalib.product(input).size();
+					}
+
+				});
+
+				measure(prefix + "invasiveMinimize", warmup, iterations, new Stage<CompactMoore<BitSet, BitSet>>() {
+
+					@Override
+					public CompactMoore<BitSet, BitSet> setUp() {
+						return Owl2Automatalib.product(machines);
+					}
+
+					@Override
+					public int run(CompactMoore<BitSet, BitSet> input) {
+						Automata.invasiveMinimize(input, input.getInputAlphabet());
+						return input.size();
+					}
+
+				});
+
+				measure(prefix + "minimize", warmup, iterations, new Stage<CompactMoore<BitSet, BitSet>>() {
+
+					@Override
+					public CompactMoore<BitSet, BitSet> setUp() {
+						return Owl2Automatalib.product(machines);
+					}
+
+					@Override
+					public int run(CompactMoore<BitSet, BitSet> input) {
+						return MooreMinimization.minimize(input).size();
+					}
+
+				});
+
+				measure(prefix + "constructrLTLMonitor", warmup, iterations, new Stage<String>() {
+
+					@Override
+					public String setUp() {
+						return formula;
+					}
+
+					@Override
+					public int run(String input) {
+						try {
+							return MonitorConstructor.constructrLTLMonitor(input).size();
+						} catch (ParseException | IOException e) {
+							throw new RuntimeException(e);
+						}
+					}
+
+				});
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Parses an rLTL formula and converts it into the LTL formulas of its truth
+	 * values.
+	 *
+	 * @param formula The rLTL formula
+	 * @return the five LTL formulas of the formula, ordered by truth value
+	 * @throws ParseException
+	 */
+	private static LabelledFormula[] parseAndConvert(String formula) throws ParseException {
+		var parser = new LTLParser(new ByteArrayInputStream(formula.getBytes(StandardCharsets.UTF_8)));
+		Expression rLTLExpr = parser.expression();
+		return MonitorConstructor.truthValueFormulas(SharingRLTL2LTLVisitor.convert(rLTLExpr),
+				OwlFormulaVisitor.atomicPropositions(rLTLExpr));
+	}
+
+	/**
+	 * Translates an LTL formula into a deterministic parity automaton (with the
+	 * configuration used by {@link MonitorConstructor}).
+	 * <p>
+	 * The factories are returned to the session right away. Since the benchmark is
+	 * single-threaded, the automaton may still be used afterwards.
+	 *
+	 * @param session    The session providing the Owl factories
+	 * @param ltlFormula The LTL formula
+	 * @return the parity automaton
+	 */
+	@SuppressWarnings("unchecked")
+	private static Automaton<Object, ?> translate(ConstructionSession session, LabelledFormula ltlFormula) {
+		var factories = session.acquireFactories();
+		var translator = new LTL2DPAFunction(session.environment(factories), EnumSet.of(
+				LTL2DPAFunction.Configuration.OPTIMISE_INITIAL_STATE,
+				LTL2DPAFunction.Configuration.COMPRESS_COLOURS));
+		var automaton = (Automaton<Object, ?>) translator.apply(ltlFormula);
+		session.releaseFactories(factories);
+		return automaton;
+	}
+
+	/**
+	 * Measures a stage and prints the result.
+	 *
+	 * @param <I>        The type of the input of the stage
+	 * @param name       The prefix of the CSV line (name, line and stage)
+	 * @param warmup     The number of warm-up invocations
+	 * @param iterations The number of measured invocations
+	 * @param stage      The stage
+	 */
+	private static <I> void measure(String name, int warmup, int iterations, Stage<I> stage) {
+
+		for (int i = 0; i < warmup; ++i) {
+			sink += stage.run(stage.setUp());
+		}
+
+		double[] times = new double[iterations];
+		for (int i = 0; i < iterations; ++i) {
+			I input = stage.setUp();
+			long start = System.nanoTime();
+			sink += stage.run(input);
+			times[i] = (System.nanoTime() - start) / 1e6;
+		}
+
+		double mean = Arrays.stream(times).average().orElse(Double.NaN);
+		double variance = 0;
+		for (double time : times) {
+			variance += (time - mean) * (time - mean);
+		}
+		double stddev = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+		double min = Arrays.stream(times).min().orElse(Double.NaN);
+
+		System.out.println(name + String.format(",%.3f,%.3f,%.3f", mean, stddev, min));
+
+	}
+
+}
@@ -20,8 +20,11 @@
 package owl.run;
 
 import com.google.auto.value.AutoValue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import owl.factories.FactorySupplier;
 import owl.factories.jbdd.JBddSupplier;
+import owl.util.DaemonThreadFactory;
 
 /**
  * The environment makes global configuration available to all parts of the pipeline. For example,
@@ -30,12 +33,29 @@ import owl.factories.jbdd.JBddSupplier;
  */
 @AutoValue
 public abstract class Environment {
+  /**
+   * Shared pool of daemon threads. Threads are reused across translations and terminate after
+   * being idle for a minute. The pool is unbounded, since constructions may wait for
+   * sub-constructions submitted to the same pool.
+   */
+  private static final ExecutorService SHARED_EXECUTOR = Executors.newCachedThreadPool(
+    new DaemonThreadFactory(Thread.currentThread().getThreadGroup()));
+
   public abstract boolean annotations();
 
   public FactorySupplier factorySupplier() {
     return JBddSupplier.async();
   }
 
+  /**
+   * Returns the executor on which translations run independent sub-constructions (e.g., the
+   * automaton and its complement in {@link owl.translations.ltl2dpa.LTL2DPAFunction}). The
+   * executor is shared and must not be shut down by its users.
+   */
+  public ExecutorService executor() {
+    return SHARED_EXECUTOR;
+  }
+
   public static Environment of(boolean annotated) {
     return new AutoValue_Environment(annotated);
   }
@@ -31,7 +31,7 @@ import java.util.EnumSet;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.function.Function;
 import javax.annotation.Nullable;
@@ -47,7 +47,6 @@ import owl.ltl.BooleanConstant;
 import owl.ltl.LabelledFormula;
 import owl.run.Environment;
 import owl.translations.mastertheorem.Selector;
-import owl.util.DaemonThreadFactory;
 
 public class LTL2DPAFunction implements Function<LabelledFormula, Automaton<?, ParityAcceptance>> {
 
@@ -59,17 +58,29 @@ public class LTL2DPAFunction implements Function<LabelledFormula, Automaton<?, P
 
   private final EnumSet<Configuration> configuration;
   private final Environment environment;
+  private final ExecutorService executor;
 
   private final AsymmetricDPAConstruction asymmetricDPAConstruction;
   private final SymmetricDPAConstruction symmetricDPAConstruction;
 
   public LTL2DPAFunction(Environment environment, EnumSet<Configuration> configuration) {
+    this(environment, configuration, environment.executor());
+  }
+
+  /**
+   * Creates a translation that runs the construction of the automaton and of its complement on
+   * the given executor, if both are required. The executor is not shut down by the translation.
+   * If only one construction is required, it runs in the thread calling {@link #apply}.
+   */
+  public LTL2DPAFunction(Environment environment, EnumSet<Configuration> configuration,
+    ExecutorService executor) {
     checkArgument(!configuration.contains(COMPLEMENT_CONSTRUCTION_EXACT)
       || !configuration.contains(COMPLEMENT_CONSTRUCTION_HEURISTIC),
       "COMPLEMENT_CONSTRUCTION_EXACT and HEURISTIC cannot be used together.");
 
     this.configuration = EnumSet.copyOf(configuration);
     this.environment = environment;
+    this.executor = executor;
 
     asymmetricDPAConstruction = new AsymmetricDPAConstruction(environment);
     symmetricDPAConstruction = new SymmetricDPAConstruction(environment);
@@ -77,10 +88,9 @@ public class LTL2DPAFunction implements Function<LabelledFormula, Automaton<?, P
 
   @Override
   public Automaton<?, ParityAcceptance> apply(LabelledFormula formula) {
-    var executor = Executors.newCachedThreadPool(
-      new DaemonThreadFactory(Thread.currentThread().getThreadGroup()));
-
+    @Nullable
     Callable<Result<?>> automatonCallable;
+    @Nullable
     Callable<Result<?>> complementCallable;
 
     if (configuration.contains(COMPLEMENT_CONSTRUCTION_HEURISTIC)) {
@@ -96,9 +106,9 @@ public class LTL2DPAFunction implements Function<LabelledFormula, Automaton<?, P
         automatonCallable = configuration.contains(SYMMETRIC)
           ? () -> symmetricConstruction(formula)
           : () -> asymmetricConstruction(formula);
-        complementCallable = () -> null;
+        complementCallable = null;
       } else {
-        automatonCallable = () -> null;
+        automatonCallable = null;
         complementCallable = configuration.contains(SYMMETRIC)
           ? () -> symmetricConstruction(formula.not())
           : () -> asymmetricConstruction(formula.not());
@@ -113,10 +123,19 @@ public class LTL2DPAFunction implements Function<LabelledFormula, Automaton<?, P
           ? () -> symmetricConstruction(formula.not())
           : () -> asymmetricConstruction(formula.not());
       } else {
-        complementCallable = () -> null;
+        complementCallable = null;
       }
     }
 
+    // A single construction runs in the calling thread.
+    if (complementCallable == null) {
+      return call(automatonCallable).automaton;
+    }
+
+    if (automatonCallable == null) {
+      return call(complementCallable).complement();
+    }
+
     Future<Result<?>> automatonFuture = executor.submit(automatonCallable);
     Future<Result<?>> complementFuture = executor.submit(complementCallable);
 
@@ -160,8 +179,17 @@ public class LTL2DPAFunction implements Function<LabelledFormula, Automaton<?, P
       complementFuture.cancel(true);
       //noinspection ProhibitedExceptionThrown
       throw new RuntimeException(ex); // NOPMD
-    } finally {
-      executor.shutdown();
+    }
+  }
+
+  private static Result<?> call(Callable<Result<?>> callable) {
+    try {
+      return callable.call();
+    } catch (RuntimeException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      //noinspection ProhibitedExceptionThrown
+      throw new RuntimeException(ex); // NOPMD
     }
   }
 
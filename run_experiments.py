@@ -154,34 +154,28 @@ handle_build()
 # For progress reporting.
 num_formulas = file_len(formula_path)
 
-# Prepare the command for running the tool on a single formula.
-cmd = "java -ea -cp 'rltlmonitor.jar:lib/*' de.mpi_sws.rltlmonitor.CommandLineInterface " 
-cmd += f"-s {stats_path} "
-cmd += "both " 
-# Count the number of formulas already processed.
-i = 0 
+# Check the format of the spec file.
 with open(formula_path, "r") as formulas:
-  # Write CSV header in statistics file.
-  with open(stats_path, "a") as stats_file:    
-    stats_file.write("Name,Line,Formula,LTL_Monitor_States,LTL_Different_Verdicts,LTL_Outputs_Monitorable?,LTL_Time_in_s,rLTL_Monitor_States,rLTL_Different_Verdicts,rLTL_Outputs_Monitorable?,rLTL_Time_in_s\n")
-    
   for line in formulas:
-    split = list(map(lambda x: x.strip(), line.split(",")))
-    if len(split) != 3:
+    if len(line.split(",")) != 3:
       print("Invalid format in the spec file. Fix please.")
       exit()
 
-    # Write information about formula in stats output file before running the tool.
-    with open(stats_path, "a") as stats_file:    
-      stats_file.write(line.strip() + ", ")
-
-    print(f"Progress: {i}/{num_formulas}.")
+# Write CSV header in statistics file.
+with open(stats_path, "a") as stats_file:
+  stats_file.write("Name,Line,Formula,LTL_Monitor_States,LTL_Different_Verdicts,LTL_Outputs_Monitorable?,LTL_Time_in_s,rLTL_Monitor_States,rLTL_Different_Verdicts,rLTL_Outputs_Monitorable?,rLTL_Time_in_s\n")
 
-    # Finalize command.
-    [pattern, line_number, φ] = split
-    next_cmd = cmd + "'" + φ + "'" + "> /dev/null"
-    os.system(next_cmd)
-    i += 1
+# Construct all monitors in a single JVM (the tool appends one line per formula).
+# A single worker constructs one monitor at a time, so that the construction
+# times are not inflated by concurrent constructions competing for CPU, memory
+# and GC (and remain comparable with earlier results).
+print(f"Constructing monitors for {num_formulas} formulas.")
+cmd = "java -ea -cp 'rltlmonitor.jar:lib/*' de.mpi_sws.rltlmonitor.CommandLineInterface "
+cmd += f"-s {stats_path} "
+cmd += "-w 1 "
+cmd += f"--batch '{formula_path}' "
+cmd += "both"
+os.system(cmd)
 
 print(f"All done!\nCheck out the results in {stats_path}.")
 
@@ -0,0 +1,290 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.mpi_sws.rltl.parser.ParseException;
+import org.mpi_sws.rltl.parser.TokenMgrError;
+
+import de.mpi_sws.rltlmonitor.CommandLineInterface.Logic;
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
+
+/**
+ * Constructs monitors for many formulas in one JVM, either from a stream of
+ * formulas (batch mode) or on request via a local socket (server mode).
+ * <p>
+ * Each request is a line containing either a formula or an entry of a
+ * specification file (i.e., {@code name, line, formula}). The answer is the
+ * line of statistics written by
+ * {@link CommandLineInterface#dumpStatsToWriter}, prefixed with the name, line
+ * and formula (i.e., the format of the statistics file of
+ * {@code run_experiments.py}). If the construction fails, the statistics are
+ * left empty and the error is printed to standard error. This includes a stack
+ * overflow or running out of memory on a single (deeply nested or very large)
+ * formula, which does not abort the remaining requests.
+ */
+class BatchRunner {
+
+	/**
+	 * The logic(s) for which monitors are constructed.
+	 */
+	private final Logic logic;
+
+	/**
+	 * The maximal number of threads used by a single construction.
+	 */
+	private final int threads;
+
+	/**
+	 * The number of constructions running concurrently.
+	 */
+	private final int workers;
+
+	/**
+	 * The options of the constructions.
+	 */
+	private final ConstructionOptions options;
+
+	/**
+	 * The cache to store monitors in or {@code null}.
+	 */
+	private final MonitorCache cache;
+
+	/**
+	 * Creates a new runner.
+	 *
+	 * @param logic   The logic(s) for which monitors are constructed
+	 * @param threads The maximal number of threads used by a single construction
+	 * @param workers The number of constructions running concurrently
+	 * @param options The options of the constructions
+	 * @param cache   The cache to store monitors in or {@code null}
+	 */
+	BatchRunner(Logic logic, int threads, int workers, ConstructionOptions options, MonitorCache cache) {
+		this.logic = logic;
+		this.threads = threads;
+		this.workers = workers;
+		this.options = options;
+		this.cache = cache;
+	}
+
+	/**
+	 * Constructs the monitors for all formulas read from a reader and writes the
+	 * statistics to a writer. Formulas are processed concurrently, but the
+	 * statistics are written in the order of the formulas and as soon as they are
+	 * available.
+	 *
+	 * @param reader The reader to read formulas from (one per line)
+	 * @param writer The writer to write statistics to
+	 * @throws IOException If reading or writing fails
+	 */
+	void run(BufferedReader reader, BufferedWriter writer) throws IOException {
+
+		var constructions = Executors.newFixedThreadPool(workers);
+		var output = Executors.newSingleThreadExecutor();
+
+		// Bounded, so that reading does not run arbitrarily far ahead of writing
+		BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(2 * workers);
+		Future<String> endOfInput = CompletableFuture.completedFuture(null);
+		var writing = output.submit(new Callable<Void>() {
+
+			@Override
+			public Void call() throws IOException, InterruptedException, ExecutionException {
+				for (var result = pending.take(); result != endOfInput; result = pending.take()) {
+					writer.write(result.get());
+					writer.newLine();
+					writer.flush();
+				}
+				return null;
+			}
+
+		});
+
+		try {
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+
+				if (line.isBlank()) {
+					continue;
+				}
+
+				final String request = line;
+				pending.put(constructions.submit(new Callable<String>() {
+
+					@Override
+					public String call() {
+						return process(request);
+					}
+
+				}));
+
+			}
+
+			pending.put(endOfInput);
+			writing.get();
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			constructions.shutdownNow();
+			output.shutdownNow();
+		}
+
+	}
+
+	/**
+	 * Answers requests on a local socket until the process is terminated. Each
+	 * connection may send any number of requests (one per line), which are
+	 * answered in order. Up to {@link #workers} connections are served
+	 * concurrently.
+	 *
+	 * @param port The port to listen on (on the loopback interface)
+	 * @throws IOException If the socket cannot be opened
+	 */
+	void serve(int port) throws IOException {
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+
+			System.out.println("Listening on " + server.getLocalSocketAddress());
+
+			while (true) {
+
+				Socket socket = server.accept();
+				pool.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						try (socket;
+								BufferedReader reader = new BufferedReader(
+										new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+								BufferedWriter writer = new BufferedWriter(
+										new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+							String line;
+							while ((line = reader.readLine()) != null) {
+								if (!line.isBlank()) {
+									writer.write(process(line));
+									writer.newLine();
+									writer.flush();
+								}
+							}
+
+						} catch (IOException e) {
+							System.err.println("Connection failed: " + e.getMessage());
+						}
+					}
+
+				});
+
+			}
+
+		} finally {
+			pool.shutdownNow();
+		}
+
+	}
+
+	/**
+	 * Constructs the monitor(s) of one request and returns the line of statistics.
+	 *
+	 * @param request The request (a formula or {@code name, line, formula})
+	 * @return the line of statistics (without line separator)
+	 */
+	String process(String request) {
+
+		//
+		// Split request
+		//
+		String[] split = request.split(",", 3);
+		String prefix;
+		String formula;
+		if (split.length == 3) {
+			prefix = request.strip();
+			formula = split[2].strip();
+		} else {
+			prefix = ", , " + request.strip();
+			formula = request.strip();
+		}
+
+		//
+		// Construct monitor(s) and compute statistics
+		//
+		StringWriter statistics = new StringWriter();
+		try (BufferedWriter writer = new BufferedWriter(statistics)) {
+
+			try {
+
+				var rltl = construct(formula, true);
+				var ltl = construct(formula, false);
+				CommandLineInterface.dumpStatsToWriter(writer, rltl.monitor, rltl.elapsed, ltl.monitor, ltl.elapsed);
+
+			} catch (ParseException | TokenMgrError | IOException | RuntimeException | StackOverflowError
+					| OutOfMemoryError e) {
+
+				System.err.println("Construction failed for " + formula + ": " + e);
+				CommandLineInterface.dumpStatsToWriter(writer, null, 0, null, 0);
+
+			}
+
+		} catch (IOException e) {
+			// Writing to a StringWriter does not fail
+			throw new RuntimeException(e);
+		}
+
+		return prefix + ", " + statistics.toString().strip();
+
+	}
+
+	/**
+	 * Constructs the monitor of one logic if requested.
+	 *
+	 * @param formula The formula
+	 * @param rLTL    Whether to construct the rLTL (or the LTL) monitor
+	 * @return the monitor and the construction time
+	 * @throws ParseException
+	 * @throws IOException
+	 */
+	private Construction construct(String formula, boolean rLTL) throws ParseException, IOException {
+
+		var result = new Construction();
+		if (logic == Logic.BOTH || (logic == Logic.rLTL) == rLTL) {
+			long start = System.nanoTime();
+			result.monitor = CommandLineInterface.constructMonitor(formula, rLTL, threads, options,
+					ConstructionListener.NONE, cache);
+			result.elapsed = System.nanoTime() - start;
+		}
+		return result;
+
+	}
+
+	/**
+	 * A monitor (or {@code null} if it has not been constructed) together with its
+	 * construction time.
+	 */
+	private static class Construction {
+		CompactMoore<BitSet, BitSet> monitor;
+		long elapsed;
+	}
+
+}
@@ -1,18 +1,30 @@
 package de.mpi_sws.rltlmonitor;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.BitSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
 import org.mpi_sws.rltl.parser.ParseException;
 
-import net.automatalib.automata.transducers.impl.FastMoore;
-import net.automatalib.automata.transducers.impl.FastMooreState;
+import de.mpi_sws.rltlmonitor.runtime.CompiledMonitor;
+import de.mpi_sws.rltlmonitor.runtime.MonitorFormat;
+import de.mpi_sws.rltlmonitor.symbolic.SymbolicMonitor;
+
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
 
 /**
  * Command line interface for the (r)LTL monitor constructor.
@@ -26,8 +38,23 @@ public class CommandLineInterface {
 	private static void printUsage() {
 
 		System.out.println("Invalid command line arguments.");
-		System.out.println("Usage: [(--stats | -s) <path/to/statistics/file>] (rltl | ltl) formula");
+		System.out.println("Usage: [(--stats | -s) <path/to/statistics/file>] [(--trace | -t) <path/to/trace/file>] [(--threads | -j) <number>] [--verbose | -v] [--report | -r] [--symbolic] [(--cache | -c) <path/to/cache/directory>] [(--output | -o) <path/to/monitor/file>] [--portfolio <milliseconds>] [--subformula-cache] [--incremental] [--lazy <states>] [--progression] (rltl | ltl) formula");
+		System.out.println("       [options] [(--workers | -w) <number>] (--batch | -b) (<path/to/formula/file> | -) [rltl | ltl | both]");
+		System.out.println("       [options] [(--workers | -w) <number>] --server <port> [rltl | ltl | both]");
 		System.out.println("By default, an rLTL monitor is constructed.");
+		System.out.println("With more than one thread, the truth values of an rLTL monitor are translated concurrently.");
+		System.out.println("A trace file contains one event per line, listing the atomic propositions that hold.");
+		System.out.println("Symbolic monitors label transitions with guards instead of letters; statistics are not supported for them.");
+		System.out.println("With a cache directory, constructed monitors are stored and reused across invocations.");
+		System.out.println("With an output file, the final monitor (the rLTL monitor if both are constructed) is written in binary format.");
+		System.out.println("With a portfolio budget, translations taking longer than the budget are raced by alternative translations.");
+		System.out.println("With a subformula cache, the rLTL monitors of formulas sharing subformulas are built from each other's machines.");
+		System.out.println("Incremental mode merges equivalent states while converting parity automata into Moore machines.");
+		System.out.println("Lazy mode runs the trace without constructing the monitor upfront, caching up to the given number of states.");
+		System.out.println("Progression mode runs the trace by progressing the formula, without constructing any automaton upfront.");
+		System.out.println("Batch mode reads one formula per line (optionally as 'name, line, formula') and writes one line of statistics per formula.");
+		System.out.println("Server mode answers such lines on a local socket with a line of statistics each.");
+		System.out.println("Verbose mode prints all intermediate formulas and automata; report mode prints the time and memory spent per construction stage.");
 
 	}
 
@@ -44,42 +71,113 @@ public class CommandLineInterface {
 			System.exit(1);
 		}
 		Config cfg = cfgOpt.get();
+		var options = new ConstructionOptions(cfg.portfolioBudget, cfg.subformulaCache ? new SubMonitorCache() : null,
+				cfg.incremental);
 
 		try {
 
+			//
+			// Set up listeners
+			//
+			var report = new ConstructionReport();
+			var listener = ConstructionListener.NONE;
+			if (cfg.verbose && cfg.report) {
+				listener = ConstructionListener.all(new DebugOutputListener(System.out), report);
+			} else if (cfg.verbose) {
+				listener = new DebugOutputListener(System.out);
+			} else if (cfg.report) {
+				listener = report;
+			}
+
 			//
 			// Do the monitor construction
 			//
 
-			FastMoore<BitSet, BitSet> rltlmonitor = null;
-			FastMoore<BitSet, BitSet> ltlmonitor = null;
+			if (cfg.symbolic) {
+				runSymbolic(cfg, options, listener);
+				if (cfg.report) {
+					System.out.println("\n========== Construction Report ==========\n");
+					report.print(System.out);
+				}
+				return;
+			}
+
+			if (cfg.lazyCapacity > 0) {
+				runLazy(cfg);
+				return;
+			}
+
+			if (cfg.progression) {
+				runProgression(cfg);
+				return;
+			}
+
+			MonitorCache cache = cfg.cacheDirectory.isPresent() ? new MonitorCache(Path.of(cfg.cacheDirectory.get()))
+					: null;
+
+			if (cfg.batchFile.isPresent() || cfg.serverPort.isPresent()) {
+				var runner = new BatchRunner(cfg.logic, cfg.threads, cfg.workers, options, cache);
+				if (cfg.serverPort.isPresent()) {
+					runner.serve(cfg.serverPort.get());
+				} else {
+					runBatch(cfg, runner);
+				}
+				return;
+			}
+
+			CompactMoore<BitSet, BitSet> rltlmonitor = null;
+			CompactMoore<BitSet, BitSet> ltlmonitor = null;
 			long elapsedLTLMonitorConstructionTime = 0;
 			long elapsedrLTLMonitorConstructionTime = 0;
 
 			// rLTL monitor construction
 			if (cfg.logic == Logic.rLTL || cfg.logic == Logic.BOTH) {
 				long start = System.nanoTime();
-				rltlmonitor = MonitorConstructor.constructrLTLMonitor(cfg.formula);
+				rltlmonitor = constructMonitor(cfg.formula, true, cfg.threads, options, listener, cache);
 				elapsedrLTLMonitorConstructionTime = System.nanoTime() - start;
 			}
 
 			// LTL monitor construction (according to Brauer et al.)
 			if (cfg.logic == Logic.LTL || cfg.logic == Logic.BOTH) {
 				long start = System.nanoTime();
-				ltlmonitor = MonitorConstructor.constructLTLMonitor(cfg.formula);
+				ltlmonitor = constructMonitor(cfg.formula, false, cfg.threads, options, listener, cache);
 				elapsedLTLMonitorConstructionTime = System.nanoTime() - start;
 			}
 
 			//
 			// Output monitor(s)
 			//
+			var propositions = MonitorConstructor.propositions(cfg.formula);
 			if (rltlmonitor != null) {
 				System.out.println("\n========== Final rLTL Monitor ==========\n");
-				System.out.println(Owl2Automatalib.toDot(rltlmonitor));
+				printDot(rltlmonitor, propositions);
 			}
 			if (ltlmonitor != null) {
 				System.out.println("\n========== Final LTL Monitor ==========\n");
-				System.out.println(Owl2Automatalib.toDot(ltlmonitor));
+				printDot(ltlmonitor, propositions);
+			}
+
+			//
+			// Output construction report
+			//
+			if (cfg.report) {
+				System.out.println("\n========== Construction Report ==========\n");
+				report.print(System.out);
+			}
+
+			//
+			// Run monitor on trace
+			//
+			if (cfg.outputFile.isPresent()) {
+				writeMonitor(cfg, CompiledMonitor.compile(rltlmonitor != null ? rltlmonitor : ltlmonitor),
+						rltlmonitor != null, null);
+			}
+			if (cfg.traceFile.isPresent()) {
+				var monitor = CompiledMonitor.compile(rltlmonitor != null ? rltlmonitor : ltlmonitor);
+				System.out.println("\n========== Trace ==========\n");
+				try (BufferedReader reader = new BufferedReader(new FileReader(cfg.traceFile.get()))) {
+					evaluateTrace(reader, monitor, propositions);
+				}
 			}
 
 			//
@@ -113,6 +211,405 @@ public class CommandLineInterface {
 
 	}
 
+	/**
+	 * Constructs a monitor, using a cache if given.
+	 * 
+	 * @param formula     the (r)LTL formula
+	 * @param rLTL        whether to construct an rLTL (or an LTL) monitor
+	 * @param parallelism the maximal number of threads to use for the construction
+	 * @param options     the options of the construction
+	 * @param listener    the listener to notify during the construction
+	 * @param cache       the cache to use or {@code null}
+	 * @return the minimized monitor
+	 * @throws ParseException
+	 * @throws IOException
+	 */
+	static CompactMoore<BitSet, BitSet> constructMonitor(String formula, boolean rLTL, int parallelism,
+			ConstructionOptions options, ConstructionListener listener, MonitorCache cache)
+			throws ParseException, IOException {
+
+		if (cache != null) {
+			return cache.getOrConstruct(formula, rLTL, parallelism, options, listener).toCompiledMonitor()
+					.toMooreMachine();
+		} else if (rLTL) {
+			return MonitorConstructor.constructrLTLMonitor(formula, parallelism, options, listener);
+		} else {
+			return MonitorConstructor.constructLTLMonitor(formula, options, listener);
+		}
+
+	}
+
+	/**
+	 * Runs the batch mode, reading formulas from the batch file (or standard input)
+	 * and writing statistics to the statistics file (or standard output).
+	 * 
+	 * @param cfg    the command line arguments
+	 * @param runner the batch runner
+	 * @throws IOException
+	 */
+	private static void runBatch(Config cfg, BatchRunner runner) throws IOException {
+
+		String batchFile = cfg.batchFile.get();
+		try (BufferedReader reader = new BufferedReader(
+				batchFile.equals("-") ? new InputStreamReader(System.in) : new FileReader(batchFile));
+				BufferedWriter writer = new BufferedWriter(cfg.statsFile.isPresent()
+						? new FileWriter(cfg.statsFile.get(), true)
+						: new OutputStreamWriter(System.out))) {
+			runner.run(reader, writer);
+		}
+
+	}
+
+	/**
+	 * A monitor running on a trace (see
+	 * {@link #evaluateTrace(BufferedReader, List, TraceRun)}), which keeps track of
+	 * its current state.
+	 */
+	private interface TraceRun {
+
+		/**
+		 * Returns the verdict of the current state.
+		 * 
+		 * @return the verdict as bit mask of truth values
+		 */
+		byte verdict();
+
+		/**
+		 * Moves to the successor of the current state on an event.
+		 * 
+		 * @param valuation the atomic propositions that hold, by their index
+		 */
+		void step(BitSet valuation);
+
+	}
+
+	/**
+	 * Runs a compiled monitor on a trace and prints the verdict after each event.
+	 * Each line of the trace is one event, listing the atomic propositions that
+	 * hold (separated by whitespace or commas).
+	 * 
+	 * @param reader       the reader to read the trace from
+	 * @param monitor      the monitor to run
+	 * @param propositions the atomic propositions of the monitor, in the order of
+	 *                     the Owl alphabet
+	 * @throws IOException
+	 */
+	static void evaluateTrace(BufferedReader reader, CompiledMonitor monitor, List<String> propositions)
+			throws IOException {
+
+		evaluateTrace(reader, propositions, new TraceRun() {
+
+			private int state = monitor.initialState();
+
+			@Override
+			public byte verdict() {
+				return monitor.verdict(state);
+			}
+
+			@Override
+			public void step(BitSet valuation) {
+				state = monitor.step(state, letter(valuation, monitor.numPropositions()));
+			}
+
+		});
+
+	}
+
+	/**
+	 * Runs a symbolic monitor on a trace and prints the verdict after each event
+	 * (see {@link #evaluateTrace(BufferedReader, CompiledMonitor, List)}).
+	 * 
+	 * @param reader       the reader to read the trace from
+	 * @param monitor      the monitor to run
+	 * @param propositions the atomic propositions of the monitor, in the order of
+	 *                     the Owl alphabet
+	 * @throws IOException
+	 */
+	static void evaluateTrace(BufferedReader reader, SymbolicMonitor monitor, List<String> propositions)
+			throws IOException {
+
+		evaluateTrace(reader, propositions, new TraceRun() {
+
+			private int state = monitor.initialState();
+
+			@Override
+			public byte verdict() {
+				return monitor.verdict(state);
+			}
+
+			@Override
+			public void step(BitSet valuation) {
+				state = monitor.step(state, valuation);
+			}
+
+		});
+
+	}
+
+	/**
+	 * Runs a lazy monitor on a trace and prints the verdict after each event (see
+	 * {@link #evaluateTrace(BufferedReader, CompiledMonitor, List)}).
+	 * 
+	 * @param reader       the reader to read the trace from
+	 * @param monitor      the monitor to run
+	 * @param propositions the atomic propositions of the monitor, in the order of
+	 *                     the Owl alphabet
+	 * @throws IOException
+	 */
+	static void evaluateTrace(BufferedReader reader, LazyMonitor monitor, List<String> propositions)
+			throws IOException {
+
+		evaluateTrace(reader, propositions, new TraceRun() {
+
+			private LazyMonitor.State state = monitor.initialState();
+
+			@Override
+			public byte verdict() {
+				return monitor.verdict(state);
+			}
+
+			@Override
+			public void step(BitSet valuation) {
+				state = monitor.step(state, letter(valuation, monitor.numPropositions()));
+			}
+
+		});
+
+	}
+
+	/**
+	 * Runs a progression monitor on a trace and prints the verdict after each
+	 * event (see {@link #evaluateTrace(BufferedReader, CompiledMonitor, List)}).
+	 * 
+	 * @param reader       the reader to read the trace from
+	 * @param monitor      the monitor to run
+	 * @param propositions the atomic propositions of the monitor, in the order of
+	 *                     the Owl alphabet
+	 * @throws IOException
+	 */
+	static void evaluateTrace(BufferedReader reader, ProgressionMonitor monitor, List<String> propositions)
+			throws IOException {
+
+		evaluateTrace(reader, propositions, new TraceRun() {
+
+			private int state = monitor.initialState();
+
+			@Override
+			public byte verdict() {
+				return monitor.verdict(state);
+			}
+
+			@Override
+			public void step(BitSet valuation) {
+				state = monitor.step(state, letter(valuation, monitor.numPropositions()));
+			}
+
+		});
+
+	}
+
+	/**
+	 * Runs a monitor on a trace and prints the verdict before the first and after
+	 * each event.
+	 * 
+	 * @param reader       the reader to read the trace from
+	 * @param propositions the atomic propositions of the monitor, in the order of
+	 *                     the Owl alphabet
+	 * @param run          the monitor, in its initial state
+	 * @throws IOException
+	 */
+	private static void evaluateTrace(BufferedReader reader, List<String> propositions, TraceRun run)
+			throws IOException {
+
+		System.out.println("0: " + CompiledMonitor.truthValues(run.verdict()));
+
+		int step = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			run.step(parseEvent(line, propositions));
+			step += 1;
+			System.out.println(step + ": " + CompiledMonitor.truthValues(run.verdict()));
+		}
+
+	}
+
+	/**
+	 * Parses one event of a trace (i.e., the atomic propositions that hold,
+	 * separated by whitespace or commas).
+	 * 
+	 * @param line         the line of the trace
+	 * @param propositions the atomic propositions of the monitor
+	 * @return the indices of the atomic propositions that hold
+	 */
+	private static BitSet parseEvent(String line, List<String> propositions) {
+
+		BitSet valuation = new BitSet();
+		for (String proposition : line.split("[\\s,]+")) {
+			if (proposition.isEmpty()) {
+				continue;
+			}
+			int index = propositions.indexOf(proposition);
+			if (index < 0) {
+				throw new IllegalArgumentException("Unknown atomic proposition: " + proposition);
+			}
+			valuation.set(index);
+		}
+		return valuation;
+
+	}
+
+	/**
+	 * Encodes an event as letter of a monitor whose alphabet consists of the
+	 * valuations of its first {@code numPropositions} atomic propositions.
+	 * Propositions the formula simplifies away are not part of the alphabet and
+	 * are, hence, ignored.
+	 * 
+	 * @param valuation       the atomic propositions that hold, by their index
+	 * @param numPropositions the number of atomic propositions of the monitor
+	 * @return the letter (i.e., a bit mask of the propositions that hold)
+	 */
+	private static int letter(BitSet valuation, int numPropositions) {
+
+		int letter = 0;
+		for (int index = valuation.nextSetBit(0); index >= 0 && index < numPropositions; index = valuation
+				.nextSetBit(index + 1)) {
+			letter |= 1 << index;
+		}
+		return letter;
+
+	}
+
+	/**
+	 * Constructs symbolic monitors, prints them and runs them on the trace (if
+	 * given).
+	 * 
+	 * @param cfg      the command line arguments
+	 * @param options  the options of the construction
+	 * @param listener the listener to notify during the construction
+	 * @throws ParseException
+	 * @throws IOException
+	 */
+	private static void runSymbolic(Config cfg, ConstructionOptions options, ConstructionListener listener)
+			throws ParseException, IOException {
+
+		var propositions = MonitorConstructor.propositions(cfg.formula);
+
+		SymbolicMonitor rltlmonitor = null;
+		SymbolicMonitor ltlmonitor = null;
+		if (cfg.logic == Logic.rLTL || cfg.logic == Logic.BOTH) {
+			rltlmonitor = MonitorConstructor.constructSymbolicrLTLMonitor(cfg.formula, cfg.threads, options, listener);
+			System.out.println("\n========== Final rLTL Monitor ==========\n");
+			printDot(rltlmonitor, propositions);
+		}
+		if (cfg.logic == Logic.LTL || cfg.logic == Logic.BOTH) {
+			ltlmonitor = MonitorConstructor.constructSymbolicLTLMonitor(cfg.formula, options, listener);
+			System.out.println("\n========== Final LTL Monitor ==========\n");
+			printDot(ltlmonitor, propositions);
+		}
+
+		if (cfg.outputFile.isPresent()) {
+			var monitor = rltlmonitor != null ? rltlmonitor : ltlmonitor;
+			writeMonitor(cfg, CompiledMonitor.compile(monitor.toExplicit()), rltlmonitor != null, monitor);
+		}
+
+		if (cfg.traceFile.isPresent()) {
+			System.out.println("\n========== Trace ==========\n");
+			try (BufferedReader reader = new BufferedReader(new FileReader(cfg.traceFile.get()))) {
+				evaluateTrace(reader, rltlmonitor != null ? rltlmonitor : ltlmonitor, propositions);
+			}
+		}
+
+	}
+
+	/**
+	 * Creates a lazy monitor (the rLTL monitor if both are requested) and runs it
+	 * on the trace.
+	 * 
+	 * @param cfg the command line arguments
+	 * @throws ParseException
+	 * @throws IOException
+	 */
+	private static void runLazy(Config cfg) throws ParseException, IOException {
+
+		var monitor = cfg.logic == Logic.LTL ? MonitorConstructor.constructLazyLTLMonitor(cfg.formula, cfg.lazyCapacity)
+				: MonitorConstructor.constructLazyrLTLMonitor(cfg.formula, cfg.lazyCapacity);
+
+		System.out.println("\n========== Trace ==========\n");
+		try (BufferedReader reader = new BufferedReader(new FileReader(cfg.traceFile.get()))) {
+			evaluateTrace(reader, monitor, MonitorConstructor.propositions(cfg.formula));
+		}
+
+	}
+
+	/**
+	 * Creates a progression monitor (the rLTL monitor if both are requested) and
+	 * runs it on the trace.
+	 * 
+	 * @param cfg the command line arguments
+	 * @throws ParseException
+	 * @throws IOException
+	 */
+	private static void runProgression(Config cfg) throws ParseException, IOException {
+
+		var monitor = cfg.logic == Logic.LTL ? MonitorConstructor.constructProgressionLTLMonitor(cfg.formula)
+				: MonitorConstructor.constructProgressionrLTLMonitor(cfg.formula);
+
+		System.out.println("\n========== Trace ==========\n");
+		try (BufferedReader reader = new BufferedReader(new FileReader(cfg.traceFile.get()))) {
+			evaluateTrace(reader, monitor, MonitorConstructor.propositions(cfg.formula));
+		}
+
+	}
+
+	/**
+	 * Streams a Moore machine to standard output in the Graphviz Dot format.
+	 * 
+	 * @param monitor      the Moore machine
+	 * @param propositions the atomic propositions, in the order of the Owl alphabet
+	 * @throws IOException
+	 */
+	private static void printDot(CompactMoore<BitSet, BitSet> monitor, List<String> propositions) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+		MonitorWriters.writeDot(monitor, propositions, out);
+		out.write(System.lineSeparator());
+		out.flush();
+	}
+
+	/**
+	 * Streams a symbolic monitor to standard output in the Graphviz Dot format.
+	 * 
+	 * @param monitor      the symbolic monitor
+	 * @param propositions the atomic propositions, in the order of the Owl alphabet
+	 * @throws IOException
+	 */
+	private static void printDot(SymbolicMonitor monitor, List<String> propositions) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+		monitor.writeDot(propositions, out);
+		out.write(System.lineSeparator());
+		out.flush();
+	}
+
+	/**
+	 * Writes a monitor to the output file in the binary format of
+	 * {@link MonitorFormat}.
+	 * 
+	 * @param cfg     the command line arguments
+	 * @param monitor the monitor
+	 * @param rLTL    whether the monitor is an rLTL (or an LTL) monitor
+	 * @param guards  the symbolic representation of the monitor or {@code null}
+	 * @throws ParseException
+	 * @throws IOException
+	 */
+	private static void writeMonitor(Config cfg, CompiledMonitor monitor, boolean rLTL, SymbolicMonitor guards)
+			throws ParseException, IOException {
+
+		try (OutputStream out = Files.newOutputStream(Path.of(cfg.outputFile.get()))) {
+			MonitorFormat.write(out, monitor, MonitorConstructor.propositions(cfg.formula),
+					rLTL ? MonitorFormat.RLTL_TRUTH_VALUES : MonitorFormat.LTL_TRUTH_VALUES, guards);
+		}
+
+	}
+
 	/***
 	 * Writes statistics about an rLTL and LTL monitor to a writer/stream. Each
 	 * method call appends a new line containing statistics as a comma-separated
@@ -129,8 +626,8 @@ public class CommandLineInterface {
 	 * @throws IOException
 	 * @throws RuntimeException
 	 */
-	static void dumpStatsToWriter(BufferedWriter writer, FastMoore<BitSet, BitSet> rltlMonitor,
-			long rltlMonitorConstructionTime, FastMoore<BitSet, BitSet> ltlMonitor,
+	static void dumpStatsToWriter(BufferedWriter writer, CompactMoore<BitSet, BitSet> rltlMonitor,
+			long rltlMonitorConstructionTime, CompactMoore<BitSet, BitSet> ltlMonitor,
 			long ltlMonitorConstructionTime) throws RuntimeException, IOException {
 
 		//
@@ -143,11 +640,11 @@ public class CommandLineInterface {
 			// Number of outputs 
 			HashSet<BitSet> ltlMonitorOutputs = new HashSet<>(10);
 			if (ltlMonitor != null) {
-				ltlMonitor.forEach(new Consumer<FastMooreState<BitSet>>() {
+				ltlMonitor.forEach(new Consumer<Integer>() {
 
 					@Override
-					public void accept(FastMooreState<BitSet> state) {
-						ltlMonitorOutputs.add((BitSet) state.getOutput().clone());
+					public void accept(Integer state) {
+						ltlMonitorOutputs.add((BitSet) ltlMonitor.getStateOutput(state).clone());
 					}
 
 				});
@@ -176,10 +673,10 @@ public class CommandLineInterface {
 			// Number of outputs
 			HashSet<BitSet> rltlMonitorOutputs = new HashSet<>(10);
 			if (rltlMonitor != null) {
-				rltlMonitor.forEach(new Consumer<FastMooreState<BitSet>>() {
+				rltlMonitor.forEach(new Consumer<Integer>() {
 					@Override
-					public void accept(FastMooreState<BitSet> state) {
-						rltlMonitorOutputs.add((BitSet) state.getOutput().clone());
+					public void accept(Integer state) {
+						rltlMonitorOutputs.add((BitSet) rltlMonitor.getStateOutput(state).clone());
 					}
 
 				});
@@ -206,14 +703,15 @@ public class CommandLineInterface {
 	}
 
 	// Assumes that the monitor is minimized!
-	public static boolean isMonitorable(FastMoore<BitSet, BitSet> monitor, boolean isrLTL) throws RuntimeException {
+	public static boolean isMonitorable(CompactMoore<BitSet, BitSet> monitor, boolean isrLTL) throws RuntimeException {
 		
 		int maxBit = isrLTL ? 4 : 1;
 		
 		for (var state : monitor.getStates()) {
 
 			// Skip if output is not ????
-			if (!(state.getOutput().get(0) && state.getOutput().get(maxBit))) {
+			var output = monitor.getStateOutput(state);
+			if (!(output.get(0) && output.get(maxBit))) {
 				continue;
 			}
 
@@ -251,6 +749,21 @@ public class CommandLineInterface {
 	static Optional<Config> parseCliArguments(String[] args) {
 		Optional<Logic> useRLTL = Optional.empty();
 		Optional<String> stats = Optional.empty();
+		Optional<String> trace = Optional.empty();
+		Optional<String> cache = Optional.empty();
+		Optional<String> output = Optional.empty();
+		Optional<String> batch = Optional.empty();
+		Optional<Integer> server = Optional.empty();
+		int workers = Runtime.getRuntime().availableProcessors();
+		int threads = 1;
+		long portfolioBudget = -1;
+		boolean subformulaCache = false;
+		boolean incremental = false;
+		int lazyCapacity = -1;
+		boolean progression = false;
+		boolean verbose = false;
+		boolean report = false;
+		boolean symbolic = false;
 		Optional<String> formula = Optional.empty();
 
 		//
@@ -292,8 +805,123 @@ public class CommandLineInterface {
 				}
 				stats = Optional.of(args[i]);
 				break;
+			case "--trace":
+			case "-t":
+				i += 1;
+				if (i == args.length || trace.isPresent()) {
+					System.out.println("No trace file given.");
+					return Optional.empty();
+				}
+				trace = Optional.of(args[i]);
+				break;
+			case "--threads":
+			case "-j":
+				i += 1;
+				try {
+					threads = Integer.parseInt(args[i]);
+				} catch (IndexOutOfBoundsException | NumberFormatException e) {
+					System.out.println("No valid number of threads given.");
+					return Optional.empty();
+				}
+				break;
+			case "--verbose":
+			case "-v":
+				verbose = true;
+				break;
+			case "--report":
+			case "-r":
+				report = true;
+				break;
+			case "--symbolic":
+				symbolic = true;
+				break;
+			case "--subformula-cache":
+				subformulaCache = true;
+				break;
+			case "--incremental":
+				incremental = true;
+				break;
+			case "--lazy":
+				i += 1;
+				try {
+					lazyCapacity = Integer.parseInt(args[i]);
+				} catch (IndexOutOfBoundsException | NumberFormatException e) {
+					System.out.println("No valid cache capacity given.");
+					return Optional.empty();
+				}
+				if (lazyCapacity < 1) {
+					System.out.println("No valid cache capacity given.");
+					return Optional.empty();
+				}
+				break;
+			case "--progression":
+				progression = true;
+				break;
+			case "--batch":
+			case "-b":
+				i += 1;
+				if (i == args.length || batch.isPresent()) {
+					System.out.println("No formula file given.");
+					return Optional.empty();
+				}
+				batch = Optional.of(args[i]);
+				break;
+			case "--server":
+				i += 1;
+				try {
+					server = Optional.of(Integer.parseInt(args[i]));
+				} catch (IndexOutOfBoundsException | NumberFormatException e) {
+					System.out.println("No valid port given.");
+					return Optional.empty();
+				}
+				if (server.get() < 0 || server.get() > 65535) {
+					System.out.println("No valid port given.");
+					return Optional.empty();
+				}
+				break;
+			case "--workers":
+			case "-w":
+				i += 1;
+				try {
+					workers = Integer.parseInt(args[i]);
+				} catch (IndexOutOfBoundsException | NumberFormatException e) {
+					System.out.println("No valid number of workers given.");
+					return Optional.empty();
+				}
+				break;
+			case "--cache":
+			case "-c":
+				i += 1;
+				if (i == args.length || cache.isPresent()) {
+					System.out.println("No cache directory given.");
+					return Optional.empty();
+				}
+				cache = Optional.of(args[i]);
+				break;
+			case "--output":
+			case "-o":
+				i += 1;
+				if (i == args.length || output.isPresent()) {
+					System.out.println("No output file given.");
+					return Optional.empty();
+				}
+				output = Optional.of(args[i]);
+				break;
+			case "--portfolio":
+				i += 1;
+				try {
+					portfolioBudget = Long.parseLong(args[i]);
+				} catch (IndexOutOfBoundsException | NumberFormatException e) {
+					System.out.println("No valid portfolio budget given.");
+					return Optional.empty();
+				}
+				if (portfolioBudget < 0) {
+					System.out.println("No valid portfolio budget given.");
+					return Optional.empty();
+				}
+				break;
 			default:
-				if (i < args.length - 1) {
+				if (i < args.length - 1 || batch.isPresent() || server.isPresent()) {
 					System.out.println("Unknown command line argument: " + arg);
 					return Optional.empty();
 				}
@@ -301,11 +929,47 @@ public class CommandLineInterface {
 				break;
 			}
 		}
-		if (formula.isEmpty()) {
+		if (batch.isPresent() || server.isPresent()) {
+			if (batch.isPresent() && server.isPresent()) {
+				System.out.println("Batch and server mode cannot be combined.");
+				return Optional.empty();
+			} else if (symbolic || trace.isPresent() || output.isPresent() || verbose || report || lazyCapacity > 0
+					|| progression) {
+				System.out.println("Batch and server mode only support statistics and caching.");
+				return Optional.empty();
+			} else if (workers < 1) {
+				System.out.println("No valid number of workers given.");
+				return Optional.empty();
+			}
+			return Optional.of(new Config(useRLTL.orElse(Logic.rLTL), stats, trace, threads, false, false, false,
+					cache, Optional.empty(), batch, server, workers, portfolioBudget, subformulaCache, incremental, -1,
+					false, null));
+		} else if (formula.isEmpty()) {
 			System.out.println("No formula given.");
 			return Optional.empty();
+		} else if (symbolic && stats.isPresent()) {
+			System.out.println("Statistics are not supported for symbolic monitors.");
+			return Optional.empty();
+		} else if (symbolic && cache.isPresent()) {
+			System.out.println("Caching is not supported for symbolic monitors.");
+			return Optional.empty();
+		} else if (lazyCapacity > 0 && (symbolic || stats.isPresent() || cache.isPresent() || output.isPresent())) {
+			System.out.println("Lazy monitors only support running on a trace.");
+			return Optional.empty();
+		} else if (lazyCapacity > 0 && trace.isEmpty()) {
+			System.out.println("Lazy monitors require a trace.");
+			return Optional.empty();
+		} else if (progression && (lazyCapacity > 0 || symbolic || stats.isPresent() || cache.isPresent()
+				|| output.isPresent())) {
+			System.out.println("Progression monitors only support running on a trace.");
+			return Optional.empty();
+		} else if (progression && trace.isEmpty()) {
+			System.out.println("Progression monitors require a trace.");
+			return Optional.empty();
 		} else {
-			return Optional.of(new Config(useRLTL.orElse(Logic.rLTL), stats, formula.get()));
+			return Optional.of(new Config(useRLTL.orElse(Logic.rLTL), stats, trace, threads, verbose, report,
+					symbolic, cache, output, Optional.empty(), Optional.empty(), workers, portfolioBudget,
+					subformulaCache, incremental, lazyCapacity, progression, formula.get()));
 		}
 	}
 
@@ -325,10 +989,43 @@ public class CommandLineInterface {
 		Logic logic;
 		String formula;
 		Optional<String> statsFile;
+		Optional<String> traceFile;
+		int threads;
+		boolean verbose;
+		boolean report;
+		boolean symbolic;
+		Optional<String> cacheDirectory;
+		Optional<String> outputFile;
+		Optional<String> batchFile;
+		Optional<Integer> serverPort;
+		int workers;
+		long portfolioBudget;
+		boolean subformulaCache;
+		boolean incremental;
+		int lazyCapacity;
+		boolean progression;
 
-		Config(Logic logic, Optional<String> statsFile, String formula) {
+		Config(Logic logic, Optional<String> statsFile, Optional<String> traceFile, int threads, boolean verbose,
+				boolean report, boolean symbolic, Optional<String> cacheDirectory, Optional<String> outputFile,
+				Optional<String> batchFile, Optional<Integer> serverPort, int workers, long portfolioBudget,
+				boolean subformulaCache, boolean incremental, int lazyCapacity, boolean progression, String formula) {
 			this.logic = logic;
 			this.statsFile = statsFile;
+			this.traceFile = traceFile;
+			this.threads = threads;
+			this.verbose = verbose;
+			this.report = report;
+			this.symbolic = symbolic;
+			this.cacheDirectory = cacheDirectory;
+			this.outputFile = outputFile;
+			this.batchFile = batchFile;
+			this.serverPort = serverPort;
+			this.workers = workers;
+			this.portfolioBudget = portfolioBudget;
+			this.subformulaCache = subformulaCache;
+			this.incremental = incremental;
+			this.lazyCapacity = lazyCapacity;
+			this.progression = progression;
 			this.formula = formula;
 		}
 	}
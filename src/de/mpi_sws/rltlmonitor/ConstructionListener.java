@@ -0,0 +1,154 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.util.BitSet;
+
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
+import owl.automaton.Automaton;
+import owl.ltl.LabelledFormula;
+
+/**
+ * Listener that is notified about the progress of a monitor construction.
+ * <p>
+ * The listener receives the intermediate objects (formulas, Owl automata and
+ * Moore machines) as well as the time and memory spent in each stage of the
+ * construction. All methods do nothing by default; in particular, intermediate
+ * automata are only rendered as text if a listener chooses to do so (see
+ * {@link DebugOutputListener}).
+ * <p>
+ * If the truth values of an rLTL monitor are constructed concurrently, the
+ * methods of a listener may be called from several threads at once.
+ */
+public interface ConstructionListener {
+
+	/**
+	 * The stages of the monitor construction.
+	 */
+	enum Stage {
+
+		/**
+		 * Parsing the (r)LTL formula.
+		 */
+		PARSE,
+
+		/**
+		 * Translating the rLTL formula into LTL formulas.
+		 */
+		RLTL_TO_LTL,
+
+		/**
+		 * Translating an LTL formula into a deterministic parity automaton.
+		 */
+		LTL_TO_DPA,
+
+		/**
+		 * Converting a parity automaton into a Moore machine labelled with the
+		 * emptiness of the states.
+		 */
+		LABELLING,
+
+		/**
+		 * Minimizing a Moore machine.
+		 */
+		MINIMIZATION,
+
+		/**
+		 * Computing the product of Moore machines.
+		 */
+		PRODUCT
+
+	}
+
+	/**
+	 * Listener that ignores all notifications.
+	 */
+	ConstructionListener NONE = new ConstructionListener() {
+	};
+
+	/**
+	 * Called after a stage has been completed. A stage may be completed several
+	 * times during one construction (e.g., once per truth value).
+	 *
+	 * @param stage          The stage
+	 * @param elapsedNanos   The time spent in the stage (in nanoseconds)
+	 * @param allocatedBytes The memory allocated by the constructing thread during
+	 *                       the stage (in bytes, -1 if not supported by the JVM)
+	 */
+	default void stageCompleted(Stage stage, long elapsedNanos, long allocatedBytes) {
+	}
+
+	/**
+	 * Called after the LTL formula of a truth value has been generated.
+	 *
+	 * @param truthValue The truth value (for LTL monitors: 0 for the negated and 1
+	 *                   for the original formula)
+	 * @param formula    The LTL formula
+	 */
+	default void ltlFormulaGenerated(int truthValue, LabelledFormula formula) {
+	}
+
+	/**
+	 * Called after the Owl automaton of a truth value has been constructed.
+	 *
+	 * @param truthValue The truth value (for LTL monitors: 0 for the negated and 1
+	 *                   for the original formula)
+	 * @param automaton  The Owl automaton
+	 */
+	default void owlAutomatonConstructed(int truthValue, Automaton<?, ?> automaton) {
+	}
+
+	/**
+	 * Called after a (possibly intermediate) Moore machine has been constructed.
+	 *
+	 * @param truthValue  The truth value the machine belongs to, or -1 if the
+	 *                    machine combines several truth values
+	 * @param description A description of the machine (e.g., "minimized Moore
+	 *                    machine")
+	 * @param machine     The Moore machine
+	 */
+	default void mooreMachineConstructed(int truthValue, String description, CompactMoore<BitSet, BitSet> machine) {
+	}
+
+	/**
+	 * Returns a listener that forwards all notifications to the given listeners.
+	 *
+	 * @param listeners The listeners to notify
+	 * @return a listener notifying all {@code listeners}
+	 */
+	static ConstructionListener all(ConstructionListener... listeners) {
+
+		return new ConstructionListener() {
+
+			@Override
+			public void stageCompleted(Stage stage, long elapsedNanos, long allocatedBytes) {
+				for (var listener : listeners) {
+					listener.stageCompleted(stage, elapsedNanos, allocatedBytes);
+				}
+			}
+
+			@Override
+			public void ltlFormulaGenerated(int truthValue, LabelledFormula formula) {
+				for (var listener : listeners) {
+					listener.ltlFormulaGenerated(truthValue, formula);
+				}
+			}
+
+			@Override
+			public void owlAutomatonConstructed(int truthValue, Automaton<?, ?> automaton) {
+				for (var listener : listeners) {
+					listener.owlAutomatonConstructed(truthValue, automaton);
+				}
+			}
+
+			@Override
+			public void mooreMachineConstructed(int truthValue, String description,
+					CompactMoore<BitSet, BitSet> machine) {
+				for (var listener : listeners) {
+					listener.mooreMachineConstructed(truthValue, description, machine);
+				}
+			}
+
+		};
+
+	}
+
+}
@@ -0,0 +1,93 @@
+package de.mpi_sws.rltlmonitor;
+
+/**
+ * Options of a monitor construction that change how (but not which) monitor is
+ * constructed. Options are passed to each construction, so constructions
+ * running concurrently in the same virtual machine (e.g., in batch or server
+ * mode) may use different options. Instances are immutable.
+ */
+public final class ConstructionOptions {
+
+	/**
+	 * The default options: formulas are translated with the default construction
+	 * only, without a sub-monitor cache, and automata are copied before being
+	 * converted into Moore machines.
+	 */
+	public static final ConstructionOptions DEFAULT = new ConstructionOptions(-1, null, false);
+
+	/**
+	 * The time (in milliseconds) after which a translation is raced by alternative
+	 * translations, or a negative value if formulas are only translated with the
+	 * default construction.
+	 */
+	private final long portfolioBudget;
+
+	/**
+	 * The cache of the machines of the truth values of rLTL formulas, or
+	 * {@code null} if every formula is translated from scratch.
+	 */
+	private final SubMonitorCache subMonitorCache;
+
+	/**
+	 * Whether parity automata are converted into Moore machines by
+	 * {@link IncrementalMooreBuilder} (instead of {@link Owl2Automatalib}).
+	 */
+	private final boolean incremental;
+
+	/**
+	 * Creates new options.
+	 *
+	 * @param portfolioBudget The time (in milliseconds) after which the
+	 *                        translation of an LTL formula into a parity
+	 *                        automaton is raced by alternative translations (see
+	 *                        {@link TranslationPortfolio}), or a negative value to
+	 *                        disable racing
+	 * @param subMonitorCache The cache from which the Moore machines of the truth
+	 *                        values of rLTL formulas are built (see
+	 *                        {@link SubMonitorCache}), or {@code null} to
+	 *                        translate every formula from scratch
+	 * @param incremental     Whether to convert parity automata into Moore
+	 *                        machines with {@link IncrementalMooreBuilder}, which
+	 *                        merges states with equal transitions while
+	 *                        converting, instead of first copying the whole
+	 *                        automaton (the minimized machines are the same either
+	 *                        way)
+	 */
+	public ConstructionOptions(long portfolioBudget, SubMonitorCache subMonitorCache, boolean incremental) {
+		this.portfolioBudget = portfolioBudget;
+		this.subMonitorCache = subMonitorCache;
+		this.incremental = incremental;
+	}
+
+	/**
+	 * Returns the time after which translations are raced by alternative
+	 * translations.
+	 *
+	 * @return the time in milliseconds, or a negative value if racing is disabled
+	 */
+	public long portfolioBudget() {
+		return portfolioBudget;
+	}
+
+	/**
+	 * Returns the cache from which the Moore machines of the truth values of rLTL
+	 * formulas are built.
+	 *
+	 * @return the cache, or {@code null} if every formula is translated from
+	 *         scratch
+	 */
+	public SubMonitorCache subMonitorCache() {
+		return subMonitorCache;
+	}
+
+	/**
+	 * Returns whether parity automata are converted into Moore machines
+	 * incrementally.
+	 *
+	 * @return whether the incremental construction is used
+	 */
+	public boolean incremental() {
+		return incremental;
+	}
+
+}
@@ -0,0 +1,75 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Construction listener that attributes the time and memory spent during a
+ * monitor construction to the individual stages.
+ * <p>
+ * Times and allocations are summed over all completions of a stage. If truth
+ * values are constructed concurrently, the sums therefore exceed the wall-clock
+ * time of the construction. This class is thread-safe.
+ */
+public class ConstructionReport implements ConstructionListener {
+
+	/**
+	 * Number of completions per stage.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(Stage.values().length);
+
+	/**
+	 * Time spent per stage (in nanoseconds).
+	 */
+	private final AtomicLongArray nanos = new AtomicLongArray(Stage.values().length);
+
+	/**
+	 * Memory allocated per stage (in bytes).
+	 */
+	private final AtomicLongArray bytes = new AtomicLongArray(Stage.values().length);
+
+	@Override
+	public void stageCompleted(Stage stage, long elapsedNanos, long allocatedBytes) {
+		counts.incrementAndGet(stage.ordinal());
+		nanos.addAndGet(stage.ordinal(), elapsedNanos);
+		if (allocatedBytes > 0) {
+			bytes.addAndGet(stage.ordinal(), allocatedBytes);
+		}
+	}
+
+	/**
+	 * Returns the total time spent in a stage.
+	 *
+	 * @param stage The stage
+	 * @return the time spent in {@code stage} (in nanoseconds)
+	 */
+	public long getNanos(Stage stage) {
+		return nanos.get(stage.ordinal());
+	}
+
+	/**
+	 * Returns the total memory allocated in a stage.
+	 *
+	 * @param stage The stage
+	 * @return the memory allocated in {@code stage} (in bytes)
+	 */
+	public long getAllocatedBytes(Stage stage) {
+		return bytes.get(stage.ordinal());
+	}
+
+	/**
+	 * Prints the report as a table with one line per stage.
+	 *
+	 * @param out The stream to print to
+	 */
+	public void print(PrintStream out) {
+
+		out.println(String.format("%-14s %6s %12s %14s", "Stage", "Count", "Time [ms]", "Allocated [MB]"));
+		for (Stage stage : Stage.values()) {
+			out.println(String.format("%-14s %6d %12.3f %14.3f", stage, counts.get(stage.ordinal()),
+					nanos.get(stage.ordinal()) / 1e6, bytes.get(stage.ordinal()) / (1024.0 * 1024.0)));
+		}
+
+	}
+
+}
@@ -0,0 +1,281 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import owl.factories.EquivalenceClassFactory;
+import owl.factories.Factories;
+import owl.factories.FactorySupplier;
+import owl.factories.ValuationSetFactory;
+import owl.factories.jbdd.JBddSupplier;
+import owl.ltl.LabelledFormula;
+import owl.run.Environment;
+
+/**
+ * The state shared by the Owl translations of the formulas of one construction
+ * (e.g., the five truth values of an rLTL formula) and of later constructions
+ * over the same atomic propositions.
+ * <p>
+ * A session fixes the numbering of the atomic propositions, so that all
+ * automata translated in a session have the same alphabet. Moreover, it reuses
+ * Owl's BDD-based factories: by default, Owl creates two new BDDs (of
+ * {@code 1024 * (n + 1)} and {@code 1024 * n * n + 256} nodes for {@code n}
+ * propositions) for every translation. The factories are not thread-safe, so a
+ * session hands out each set of factories to one translation at a time
+ * ({@link #acquireFactories()} and {@link #releaseFactories(Factories)}) and
+ * creates new sets only if all existing sets are in use. Since the equivalence
+ * class factory allocates a BDD variable for every temporal operator it
+ * encounters, a set of factories is discarded after
+ * {@value #MAX_TRANSLATIONS} translations. A valuation set factory that has
+ * allocated auxiliary BDD variables (as Owl does when computing the edge trees
+ * of an automaton) is replaced right away, since these variables would show up
+ * when enumerating the valuations of later automata.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public class ConstructionSession {
+
+	/**
+	 * The number of translations after which a set of factories is discarded.
+	 */
+	private static final int MAX_TRANSLATIONS = 32;
+
+	/**
+	 * The number of sessions kept by {@link #of(List)}.
+	 */
+	private static final int MAX_SESSIONS = 16;
+
+	/**
+	 * The most recently used sessions, indexed by their atomic propositions.
+	 */
+	private static final Map<List<String>, ConstructionSession> SESSIONS = new LinkedHashMap<>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<String>, ConstructionSession> eldest) {
+			return size() > MAX_SESSIONS;
+		}
+
+	};
+
+	/**
+	 * A set of factories together with the number of translations it was used for.
+	 * The valuation set factory is {@code null} if it has to be replaced.
+	 */
+	private static final class PooledFactories {
+
+		private final EquivalenceClassFactory eqFactory;
+		// Owl's factories and translations have no replacement for this factory yet
+		@SuppressWarnings("deprecation")
+		private ValuationSetFactory vsFactory;
+		private int translations;
+
+		PooledFactories(EquivalenceClassFactory eqFactory) {
+			this.eqFactory = eqFactory;
+		}
+
+	}
+
+	/**
+	 * The atomic propositions, ordered by their index.
+	 */
+	private final List<String> atomicPropositions;
+
+	/**
+	 * The sets of factories that are currently not in use.
+	 */
+	private final Deque<PooledFactories> idle = new ArrayDeque<>();
+
+	/**
+	 * The sets of factories that are currently in use.
+	 */
+	private final Map<Factories, PooledFactories> inUse = new IdentityHashMap<>();
+
+	/**
+	 * Creates a new session (without sharing its factories with other sessions).
+	 *
+	 * @param atomicPropositions The atomic propositions, ordered by their index
+	 */
+	public ConstructionSession(List<String> atomicPropositions) {
+		this.atomicPropositions = List.copyOf(atomicPropositions);
+	}
+
+	/**
+	 * Returns the session for the given atomic propositions. Sessions are shared
+	 * by all constructions over the same atomic propositions (up to a fixed number
+	 * of recently used sessions).
+	 *
+	 * @param atomicPropositions The atomic propositions, ordered by their index
+	 * @return the session for {@code atomicPropositions}
+	 */
+	public static ConstructionSession of(List<String> atomicPropositions) {
+		synchronized (SESSIONS) {
+			var key = List.copyOf(atomicPropositions);
+			var session = SESSIONS.get(key);
+			if (session == null) {
+				session = new ConstructionSession(key);
+				SESSIONS.put(key, session);
+			}
+			return session;
+		}
+	}
+
+	/**
+	 * Returns the session for translating the given formulas, whose atomic
+	 * propositions must be numbered consistently (i.e., the atomic propositions of
+	 * each formula are a prefix of those of the formula with the most atomic
+	 * propositions).
+	 *
+	 * @param formulas The formulas
+	 * @return the session whose atomic propositions are those of the formula with
+	 *         the most atomic propositions
+	 */
+	public static ConstructionSession forFormulas(LabelledFormula... formulas) {
+
+		List<String> atomicPropositions = List.of();
+		for (var formula : formulas) {
+			if (formula.atomicPropositions().size() > atomicPropositions.size()) {
+				atomicPropositions = formula.atomicPropositions();
+			}
+		}
+
+		for (var formula : formulas) {
+			checkPrefix(atomicPropositions, formula.atomicPropositions());
+		}
+
+		return of(atomicPropositions);
+
+	}
+
+	/**
+	 * Returns the atomic propositions of this session.
+	 *
+	 * @return the atomic propositions, ordered by their index
+	 */
+	public List<String> atomicPropositions() {
+		return atomicPropositions;
+	}
+
+	/**
+	 * Returns a set of factories for the exclusive use by one translation, which
+	 * must return it with {@link #releaseFactories(Factories)} once it no longer
+	 * uses the factories or the automata created with them. Factories that are
+	 * not returned (e.g., because the translation failed) are discarded.
+	 *
+	 * @return a set of factories over the atomic propositions of this session
+	 */
+	public Factories acquireFactories() {
+
+		PooledFactories pooled;
+		synchronized (this) {
+			pooled = idle.pollFirst();
+		}
+
+		if (pooled == null) {
+			pooled = new PooledFactories(JBddSupplier.async().getEquivalenceClassFactory(atomicPropositions));
+		}
+		if (pooled.vsFactory == null) {
+			pooled.vsFactory = JBddSupplier.async().getValuationSetFactory(atomicPropositions);
+		}
+
+		var factories = new Factories(pooled.eqFactory, pooled.vsFactory);
+		synchronized (this) {
+			inUse.put(factories, pooled);
+		}
+		return factories;
+
+	}
+
+	/**
+	 * Returns a set of factories obtained from {@link #acquireFactories()} to this
+	 * session.
+	 *
+	 * @param factories The factories
+	 */
+	public synchronized void releaseFactories(Factories factories) {
+
+		var pooled = inUse.remove(factories);
+		if (pooled == null) {
+			throw new IllegalArgumentException("Factories do not belong to this session or were already released");
+		}
+
+		if (++pooled.translations < MAX_TRANSLATIONS) {
+			// Auxiliary variables (see above) increase the number of valuations
+			var vsFactory = pooled.vsFactory;
+			if (!vsFactory.size(vsFactory.universe()).equals(BigInteger.ONE.shiftLeft(atomicPropositions.size()))) {
+				pooled.vsFactory = null;
+			}
+			idle.addFirst(pooled);
+		}
+
+	}
+
+	/**
+	 * Returns an Owl environment whose translations use the given factories.
+	 *
+	 * @param factories Factories obtained from {@link #acquireFactories()}
+	 * @return the environment
+	 */
+	public Environment environment(Factories factories) {
+
+		var supplier = new FactorySupplier() {
+
+			// Required by FactorySupplier, which has no replacement for this factory yet
+			@Override
+			@SuppressWarnings("deprecation")
+			public ValuationSetFactory getValuationSetFactory(List<String> alphabet) {
+				checkPrefix(atomicPropositions, alphabet);
+				return factories.vsFactory;
+			}
+
+			@Override
+			public EquivalenceClassFactory getEquivalenceClassFactory(List<String> alphabet) {
+				checkPrefix(atomicPropositions, alphabet);
+				return factories.eqFactory;
+			}
+
+			@Override
+			public Factories getFactories(List<String> alphabet) {
+				checkPrefix(atomicPropositions, alphabet);
+				return factories;
+			}
+
+		};
+
+		return new Environment() {
+
+			@Override
+			public boolean annotations() {
+				return false;
+			}
+
+			@Override
+			public FactorySupplier factorySupplier() {
+				return supplier;
+			}
+
+		};
+
+	}
+
+	/**
+	 * Checks that a list of atomic propositions is a prefix of another one.
+	 *
+	 * @param atomicPropositions The atomic propositions
+	 * @param prefix             The supposed prefix
+	 */
+	private static void checkPrefix(List<String> atomicPropositions, List<String> prefix) {
+		if (prefix.size() > atomicPropositions.size()
+				|| !atomicPropositions.subList(0, prefix.size()).equals(prefix)) {
+			throw new IllegalArgumentException(
+					"Atomic propositions " + prefix + " are not numbered as " + atomicPropositions);
+		}
+	}
+
+}
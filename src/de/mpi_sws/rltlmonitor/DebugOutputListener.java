@@ -0,0 +1,77 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.io.PrintStream;
+import java.util.BitSet;
+
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
+import owl.automaton.Automaton;
+import owl.automaton.output.HoaPrinter;
+import owl.ltl.LabelledFormula;
+
+/**
+ * Construction listener that prints all intermediate formulas and automata
+ * (Owl automata in the HOA format, Moore machines in the Graphviz Dot format).
+ * <p>
+ * Rendering intermediate automata is expensive, so this listener is intended
+ * for debugging only. Each automaton is printed as one block; if truth values
+ * are constructed concurrently, blocks of different truth values may
+ * interleave.
+ */
+public class DebugOutputListener implements ConstructionListener {
+
+	/**
+	 * The stream to print to.
+	 */
+	private final PrintStream out;
+
+	/**
+	 * Creates a listener printing to the given stream.
+	 *
+	 * @param out The stream to print to
+	 */
+	public DebugOutputListener(PrintStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public synchronized void ltlFormulaGenerated(int truthValue, LabelledFormula formula) {
+		out.println("\n========== (truth value=" + truthValue + ") ==========\n");
+		out.println("LTL formula is: " + formula);
+	}
+
+	@Override
+	public void owlAutomatonConstructed(int truthValue, Automaton<?, ?> automaton) {
+
+		// Render outside of the lock
+		String hoa = HoaPrinter.toString(automaton);
+		StringBuilder alphabet = new StringBuilder();
+		for (int i = 0; i < automaton.factory().alphabet().size(); ++i) {
+			alphabet.append(i == 0 ? "" : "; ").append(automaton.factory().alphabet().get(i)).append(" (").append(i)
+					.append(")");
+		}
+
+		synchronized (this) {
+			out.println("\n---------- Start Owl automaton (truth value=" + truthValue + ") ----------");
+			out.println(hoa);
+			out.println("Alphabet: " + alphabet);
+			out.println("---------- End Owl automaton ----------");
+		}
+
+	}
+
+	@Override
+	public void mooreMachineConstructed(int truthValue, String description, CompactMoore<BitSet, BitSet> machine) {
+
+		// Render outside of the lock
+		String dot = Owl2Automatalib.toDot(machine);
+		String suffix = truthValue < 0 ? "" : " (truth value=" + truthValue + ")";
+
+		synchronized (this) {
+			out.println("\n---------- Start " + description + suffix + " ----------");
+			out.println(dot);
+			out.println("---------- End " + description + " ----------");
+		}
+
+	}
+
+}
@@ -0,0 +1,307 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.mpi_sws.rltl.expressions.Atom;
+import org.mpi_sws.rltl.expressions.Conjunction;
+import org.mpi_sws.rltl.expressions.Disjunction;
+import org.mpi_sws.rltl.expressions.Expression;
+import org.mpi_sws.rltl.expressions.Finally;
+import org.mpi_sws.rltl.expressions.Globally;
+import org.mpi_sws.rltl.expressions.Implication;
+import org.mpi_sws.rltl.expressions.Negation;
+import org.mpi_sws.rltl.expressions.Next;
+import org.mpi_sws.rltl.expressions.Release;
+import org.mpi_sws.rltl.expressions.Until;
+import org.mpi_sws.rltl.visitors.Visitor;
+
+/**
+ * Creates hash-consed expressions of the rLTL2LTL library: structurally equal
+ * expressions created by the same factory are the same object. Expressions can,
+ * hence, be compared by identity, and expressions built from a factory form a
+ * directed acyclic graph in which every distinct subexpression occurs once.
+ * <p>
+ * Since the expression classes of the library do not define structural
+ * equality, the factory compares expressions by their type, identifier (for
+ * atoms) and the identity of their (already hash-consed) subexpressions. The
+ * table of created expressions belongs to the factory and can be reclaimed with
+ * it; a factory is usually used for the conversion of a single formula.
+ * <p>
+ * Expressions created by a factory are shared and must not be modified.
+ * Instances of this class are not thread-safe.
+ */
+public class ExpressionFactory {
+
+	/**
+	 * The structure of an expression, i.e., its type, its identifier (for atoms)
+	 * and its hash-consed subexpressions (compared by identity).
+	 */
+	private static final class Key {
+
+		private final Class<?> type;
+		private final String identifier;
+		private final Expression left;
+		private final Expression right;
+
+		Key(Class<?> type, String identifier, Expression left, Expression right) {
+			this.type = type;
+			this.identifier = identifier;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return type == other.type && Objects.equals(identifier, other.identifier) && left == other.left
+					&& right == other.right;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = type.hashCode();
+			hash = 31 * hash + Objects.hashCode(identifier);
+			hash = 31 * hash + System.identityHashCode(left);
+			return 31 * hash + System.identityHashCode(right);
+		}
+
+	}
+
+	/**
+	 * The expressions created so far.
+	 */
+	private final Map<Key, Expression> expressions = new HashMap<>();
+
+	/**
+	 * The hash-consed expression of each expression passed to
+	 * {@link #intern(Expression)} (compared by identity).
+	 */
+	private final Map<Expression, Expression> interned = new IdentityHashMap<>();
+
+	/**
+	 * Returns the number of distinct expressions created by this factory.
+	 *
+	 * @return the number of distinct expressions
+	 */
+	public int size() {
+		return expressions.size();
+	}
+
+	/**
+	 * Returns the hash-consed expression structurally equal to the given
+	 * expression (e.g., a freshly parsed expression).
+	 *
+	 * @param expr The expression
+	 * @return the expression of this factory that is structurally equal to
+	 *         {@code expr}
+	 */
+	public Expression intern(Expression expr) {
+
+		if (expr == null) {
+			throw new IllegalArgumentException("Expression must not be null");
+		}
+
+		var result = interned.get(expr);
+		if (result == null) {
+			var interner = new Interner();
+			expr.accept(interner);
+			result = interner.result;
+			interned.put(expr, result);
+			interned.put(result, result);
+		}
+		return result;
+
+	}
+
+	//
+	// Factory methods (subexpressions must have been created by this factory)
+	//
+
+	/**
+	 * Returns an atomic expression.
+	 *
+	 * @param identifier The identifier
+	 * @return the atomic expression with identifier {@code identifier}
+	 */
+	public Expression atom(String identifier) {
+		return expressions.computeIfAbsent(new Key(Atom.class, identifier, null, null),
+				k -> new Atom(identifier));
+	}
+
+	/**
+	 * Returns a conjunction.
+	 *
+	 * @param left  The left-hand-side subexpression
+	 * @param right The right-hand-side subexpression
+	 * @return a conjunction of {@code left} and {@code right}
+	 */
+	public Expression conjunction(Expression left, Expression right) {
+		return expressions.computeIfAbsent(new Key(Conjunction.class, null, left, right),
+				k -> new Conjunction(left, right));
+	}
+
+	/**
+	 * Returns a disjunction.
+	 *
+	 * @param left  The left-hand-side subexpression
+	 * @param right The right-hand-side subexpression
+	 * @return a disjunction of {@code left} and {@code right}
+	 */
+	public Expression disjunction(Expression left, Expression right) {
+		return expressions.computeIfAbsent(new Key(Disjunction.class, null, left, right),
+				k -> new Disjunction(left, right));
+	}
+
+	/**
+	 * Returns an implication.
+	 *
+	 * @param left  The left-hand-side subexpression
+	 * @param right The right-hand-side subexpression
+	 * @return an implication of {@code left} and {@code right}
+	 */
+	public Expression implication(Expression left, Expression right) {
+		return expressions.computeIfAbsent(new Key(Implication.class, null, left, right),
+				k -> new Implication(left, right));
+	}
+
+	/**
+	 * Returns a negation.
+	 *
+	 * @param subExpr The subexpression
+	 * @return a negation of {@code subExpr}
+	 */
+	public Expression negation(Expression subExpr) {
+		return expressions.computeIfAbsent(new Key(Negation.class, null, subExpr, null),
+				k -> new Negation(subExpr));
+	}
+
+	/**
+	 * Returns a next expression.
+	 *
+	 * @param subExpr The subexpression
+	 * @return a next expression of {@code subExpr}
+	 */
+	public Expression next(Expression subExpr) {
+		return expressions.computeIfAbsent(new Key(Next.class, null, subExpr, null), k -> new Next(subExpr));
+	}
+
+	/**
+	 * Returns a finally expression.
+	 *
+	 * @param subExpr The subexpression
+	 * @return a finally expression of {@code subExpr}
+	 */
+	public Expression eventually(Expression subExpr) {
+		return expressions.computeIfAbsent(new Key(Finally.class, null, subExpr, null),
+				k -> new Finally(subExpr));
+	}
+
+	/**
+	 * Returns a globally expression.
+	 *
+	 * @param subExpr The subexpression
+	 * @return a globally expression of {@code subExpr}
+	 */
+	public Expression globally(Expression subExpr) {
+		return expressions.computeIfAbsent(new Key(Globally.class, null, subExpr, null),
+				k -> new Globally(subExpr));
+	}
+
+	/**
+	 * Returns an until expression.
+	 *
+	 * @param left  The left-hand-side subexpression
+	 * @param right The right-hand-side subexpression
+	 * @return an until expression of {@code left} and {@code right}
+	 */
+	public Expression until(Expression left, Expression right) {
+		return expressions.computeIfAbsent(new Key(Until.class, null, left, right),
+				k -> new Until(left, right));
+	}
+
+	/**
+	 * Returns a release expression.
+	 *
+	 * @param left  The left-hand-side subexpression
+	 * @param right The right-hand-side subexpression
+	 * @return a release expression of {@code left} and {@code right}
+	 */
+	public Expression release(Expression left, Expression right) {
+		return expressions.computeIfAbsent(new Key(Release.class, null, left, right),
+				k -> new Release(left, right));
+	}
+
+	/**
+	 * Rebuilds an expression bottom-up from hash-consed subexpressions.
+	 */
+	private class Interner implements Visitor {
+
+		/**
+		 * The hash-consed expression of the expression visited last.
+		 */
+		private Expression result;
+
+		@Override
+		public void visit(Atom atom) {
+			result = atom(atom.identifier);
+		}
+
+		@Override
+		public void visit(Conjunction conjunction) {
+			var left = intern(conjunction.subExpr1);
+			result = conjunction(left, intern(conjunction.subExpr2));
+		}
+
+		@Override
+		public void visit(Disjunction disjunction) {
+			var left = intern(disjunction.subExpr1);
+			result = disjunction(left, intern(disjunction.subExpr2));
+		}
+
+		@Override
+		public void visit(Implication implication) {
+			var left = intern(implication.subExpr1);
+			result = implication(left, intern(implication.subExpr2));
+		}
+
+		@Override
+		public void visit(Negation negation) {
+			result = negation(intern(negation.subExpr));
+		}
+
+		@Override
+		public void visit(Next nextExpr) {
+			result = next(intern(nextExpr.subExpr));
+		}
+
+		@Override
+		public void visit(Finally finallyExpr) {
+			result = eventually(intern(finallyExpr.subExpr));
+		}
+
+		@Override
+		public void visit(Globally globallyExpr) {
+			result = globally(intern(globallyExpr.subExpr));
+		}
+
+		@Override
+		public void visit(Until untilExpr) {
+			var left = intern(untilExpr.subExpr1);
+			result = until(left, intern(untilExpr.subExpr2));
+		}
+
+		@Override
+		public void visit(Release releaseExpr) {
+			var left = intern(releaseExpr.subExpr1);
+			result = release(left, intern(releaseExpr.subExpr2));
+		}
+
+	}
+
+}
@@ -0,0 +1,384 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import de.mpi_sws.rltlmonitor.util.IntTupleInterner;
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
+import net.automatalib.words.Alphabet;
+import owl.automaton.Automaton;
+import owl.automaton.acceptance.ParityAcceptance;
+
+/**
+ * Converts an Owl ω-automaton into a Moore machine (as
+ * {@link Owl2Automatalib#toAutomatalib}) while merging equivalent states on
+ * the fly, so that the unminimized Moore machine is never materialized.
+ * <p>
+ * The strongly connected components (SCCs) of the automaton are visited in
+ * reverse topological order, i.e., every SCC is visited after all SCCs it can
+ * reach. This order serves two purposes:
+ * <ul>
+ * <li>The language from the states of an SCC is non-empty if and only if the
+ * SCC contains an accepting cycle or has a successor with non-empty language,
+ * which has already been visited. States with empty language are all
+ * equivalent; they are not created at all but represented by missing
+ * transitions (which {@link MooreMinimization} treats as transitions into a
+ * sink whose output is the empty set).</li>
+ * <li>The successors of a state outside its SCC have already been assigned
+ * their final states. States are interned by their transition vectors (as
+ * in the register of incremental minimization algorithms for acyclic
+ * automata, e.g., AutomataLib's incremental DAG builders), so a state whose
+ * transitions coincide with those of an existing state is merged with it.
+ * Within a non-trivial SCC, states refer to each other by provisional
+ * references; such states are only merged if their transition vectors are
+ * literally equal.</li>
+ * </ul>
+ * Since merging only identifies states with equal transition vectors, the
+ * result is not necessarily minimal and should still be minimized, but usually
+ * is much smaller than the Moore machine of {@link Owl2Automatalib}.
+ */
+public class IncrementalMooreBuilder {
+
+	/**
+	 * Reference of states with empty language (i.e., a missing transition).
+	 */
+	private static final int EMPTY = -1;
+
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private IncrementalMooreBuilder() {
+	}
+
+	/**
+	 * Converts an Owl ω-automaton into a Moore machine. The output of a state is
+	 * a singleton set containing {@code output} if the language from the state is
+	 * non-empty and the empty set otherwise. States with empty language are
+	 * omitted (i.e., the machine is not complete), unless the language of the
+	 * automaton is empty, in which case the result is a single sink whose output
+	 * is the empty set.
+	 * <p>
+	 * The Owl automaton must be deterministic (in particular, it must have at most
+	 * one initial state).
+	 *
+	 * @param <S>          The type of the states
+	 * @param owlAutomaton The Owl ω-automaton
+	 * @param output       The output to set if the language from a state is
+	 *                     non-empty
+	 * @return the Moore machine
+	 */
+	public static <S> CompactMoore<BitSet, BitSet> toAutomatalib(Automaton<S, ?> owlAutomaton, int output) {
+
+		assert (owlAutomaton.initialStates().size() <= 1);
+		assert (owlAutomaton.is(Automaton.Property.DETERMINISTIC));
+		assert (0 <= output && output <= 4);
+
+		Alphabet<BitSet> alphabet = Owl2Automatalib.powerSetAlphabet(owlAutomaton.factory().alphabetSize());
+		if (owlAutomaton.initialStates().isEmpty()) {
+			return sink(alphabet);
+		}
+
+		var builder = new Builder<>(owlAutomaton, alphabet);
+		builder.explore(owlAutomaton.onlyInitialState());
+
+		int initialState = builder.references.get(owlAutomaton.onlyInitialState());
+		if (initialState == EMPTY) {
+			return sink(alphabet);
+		}
+
+		//
+		// Create Moore machine, resolving provisional references
+		//
+		var states = builder.states;
+		CompactMoore<BitSet, BitSet> result = new CompactMoore<>(alphabet, states.size(), 2.0f);
+		for (int id = 0; id < states.size(); ++id) {
+			BitSet stateOutput = new BitSet(4);
+			stateOutput.set(output);
+			result.addIntState(stateOutput);
+		}
+		result.setInitialState(initialState);
+
+		for (int id = 0; id < states.size(); ++id) {
+			for (int input = 0; input < alphabet.size(); ++input) {
+				int successor = states.get(id, input);
+				if (successor < EMPTY) {
+					result.setTransition(id, input, builder.provisionalStates[~successor - 2]);
+				} else if (successor != EMPTY) {
+					result.setTransition(id, input, successor);
+				}
+			}
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * The state of a conversion.
+	 *
+	 * @param <S> The type of the states of the Owl automaton
+	 */
+	private static final class Builder<S> {
+
+		/**
+		 * A state of the depth-first search whose successors are being explored.
+		 */
+		private final class Frame {
+
+			final S state;
+			final Iterator<S> successors;
+			int lowlink;
+
+			Frame(S state, int index) {
+				this.state = state;
+				this.successors = owlAutomaton.successors(state).iterator();
+				this.lowlink = index;
+			}
+
+		}
+
+		private final Automaton<S, ?> owlAutomaton;
+		private final Alphabet<BitSet> alphabet;
+
+		/**
+		 * The acceptance condition, or {@code null} if the automaton is not a parity
+		 * automaton.
+		 */
+		private final ParityAcceptance acceptance;
+
+		/**
+		 * The states with non-empty language if the automaton is not a parity
+		 * automaton, or {@code null} otherwise.
+		 */
+		private final Set<S> nonEmptyStates;
+
+		/**
+		 * The reference of each state whose SCC has been visited: either the id of
+		 * an interned state or {@link #EMPTY}.
+		 */
+		final Map<S, Integer> references;
+
+		/**
+		 * The interned states (i.e., their transition vectors). A transition is
+		 * either the id of an interned state, a provisional reference
+		 * {@code ~(2 + i)} of the {@code i}-th state of a non-trivial SCC, or
+		 * {@link #EMPTY}.
+		 */
+		final IntTupleInterner states;
+
+		/**
+		 * The interned state of each provisional reference.
+		 */
+		int[] provisionalStates = new int[16];
+
+		/**
+		 * The number of provisional references.
+		 */
+		private int numProvisional = 0;
+
+		/**
+		 * Scratch array for the transition vector of a state.
+		 */
+		private final int[] transitions;
+
+		/**
+		 * The depth-first search index of each state discovered by Tarjan's
+		 * algorithm.
+		 */
+		private final Map<S, Integer> indices;
+
+		/**
+		 * The states discovered by Tarjan's algorithm whose SCC has not been
+		 * completed yet.
+		 */
+		private final Deque<S> sccStack = new ArrayDeque<>();
+
+		Builder(Automaton<S, ?> owlAutomaton, Alphabet<BitSet> alphabet) {
+
+			this.owlAutomaton = owlAutomaton;
+			this.alphabet = alphabet;
+			if (owlAutomaton.acceptance() instanceof ParityAcceptance) {
+				this.acceptance = (ParityAcceptance) owlAutomaton.acceptance();
+				this.nonEmptyStates = null;
+			} else {
+				this.acceptance = null;
+				this.nonEmptyStates = Owl2Automatalib.nonEmptyStates(owlAutomaton);
+			}
+			this.references = new HashMap<>(owlAutomaton.size());
+			this.states = new IntTupleInterner(alphabet.size(), 16);
+			this.transitions = new int[alphabet.size()];
+			this.indices = new HashMap<>(owlAutomaton.size());
+
+		}
+
+		/**
+		 * Computes the SCCs reachable from a state with Tarjan's algorithm, which
+		 * completes every SCC after all SCCs reachable from it, and visits each SCC
+		 * when it is completed.
+		 *
+		 * @param initialState The state to start from
+		 */
+		void explore(S initialState) {
+
+			Deque<Frame> callStack = new ArrayDeque<>();
+			indices.put(initialState, 0);
+			sccStack.push(initialState);
+			callStack.push(new Frame(initialState, 0));
+
+			while (!callStack.isEmpty()) {
+
+				var frame = callStack.peek();
+
+				if (frame.successors.hasNext()) {
+
+					S successor = frame.successors.next();
+					Integer index = indices.get(successor);
+					if (index == null) {
+						index = indices.size();
+						indices.put(successor, index);
+						sccStack.push(successor);
+						callStack.push(new Frame(successor, index));
+					} else if (!references.containsKey(successor)) {
+						// The successor is still on the SCC stack
+						frame.lowlink = Math.min(frame.lowlink, index);
+					}
+
+				} else {
+
+					callStack.pop();
+					if (frame.lowlink == indices.get(frame.state)) {
+						List<S> scc = new ArrayList<>();
+						S state;
+						do {
+							state = sccStack.pop();
+							scc.add(state);
+						} while (state != frame.state);
+						visit(scc);
+					}
+					if (!callStack.isEmpty()) {
+						callStack.peek().lowlink = Math.min(callStack.peek().lowlink, frame.lowlink);
+					}
+
+				}
+
+			}
+
+		}
+
+		/**
+		 * Assigns the states of a completed SCC to interned states.
+		 *
+		 * @param scc The states of the SCC
+		 */
+		// Owl's edge maps still use the deprecated ValuationSet
+		@SuppressWarnings("deprecation")
+		private void visit(List<S> scc) {
+
+			boolean trivial = scc.size() == 1 && !owlAutomaton.successors(scc.get(0)).contains(scc.get(0));
+
+			//
+			// Determine whether the language from the SCC is non-empty
+			//
+			boolean nonEmpty;
+			if (nonEmptyStates != null) {
+				nonEmpty = nonEmptyStates.contains(scc.get(0));
+			} else {
+				nonEmpty = !trivial && Owl2Automatalib.hasAcceptingCycle(owlAutomaton, acceptance, Set.copyOf(scc), -1);
+				for (int i = 0; i < scc.size() && !nonEmpty; ++i) {
+					for (S successor : owlAutomaton.successors(scc.get(i))) {
+						// Successors outside of the SCC have been visited before
+						Integer reference = references.get(successor);
+						if (reference != null && reference != EMPTY) {
+							nonEmpty = true;
+							break;
+						}
+					}
+				}
+			}
+
+			if (!nonEmpty) {
+				for (S state : scc) {
+					references.put(state, EMPTY);
+				}
+				return;
+			}
+
+			//
+			// Assign provisional references to the states of non-trivial SCCs
+			//
+			Map<S, Integer> provisional = Map.of();
+			int firstProvisional = numProvisional;
+			if (!trivial) {
+				provisional = new HashMap<>(scc.size());
+				for (S state : scc) {
+					provisional.put(state, ~(2 + numProvisional));
+					numProvisional += 1;
+				}
+				if (numProvisional > provisionalStates.length) {
+					provisionalStates = Arrays.copyOf(provisionalStates,
+							Math.max(numProvisional, provisionalStates.length << 1));
+				}
+			}
+
+			//
+			// Intern states by their transition vectors
+			//
+			int[] ids = new int[scc.size()];
+			for (int i = 0; i < scc.size(); ++i) {
+
+				Arrays.fill(transitions, EMPTY);
+				for (var entry : owlAutomaton.edgeMap(scc.get(i)).entrySet()) {
+					S target = entry.getKey().successor();
+					Integer reference = references.get(target);
+					int successor = reference != null ? reference : provisional.get(target);
+					entry.getValue().forEach(new Consumer<BitSet>() {
+
+						@Override
+						public void accept(BitSet input) {
+							transitions[alphabet.getSymbolIndex(input)] = successor;
+						}
+
+					});
+				}
+
+				ids[i] = states.intern(transitions);
+
+			}
+
+			// States outside of the SCC refer to the interned states
+			for (int i = 0; i < scc.size(); ++i) {
+				if (!trivial) {
+					provisionalStates[firstProvisional + i] = ids[i];
+				}
+				references.put(scc.get(i), ids[i]);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Creates a single sink whose output is the empty set.
+	 *
+	 * @param alphabet The alphabet
+	 * @return the sink
+	 */
+	private static CompactMoore<BitSet, BitSet> sink(Alphabet<BitSet> alphabet) {
+		CompactMoore<BitSet, BitSet> result = new CompactMoore<>(alphabet);
+		int sink = result.addIntInitialState(new BitSet(4));
+		for (int input = 0; input < alphabet.size(); ++input) {
+			result.setTransition(sink, input, sink);
+		}
+		return result;
+	}
+
+}
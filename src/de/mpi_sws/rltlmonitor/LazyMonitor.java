@@ -0,0 +1,352 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import owl.automaton.Automaton;
+import owl.automaton.acceptance.ParityAcceptance;
+import owl.automaton.edge.Edge;
+import owl.ltl.LabelledFormula;
+
+/**
+ * A monitor that is constructed on the fly while it runs, instead of
+ * translating, labelling, combining and minimizing the complete automata
+ * upfront (see {@link MonitorConstructor}).
+ * <p>
+ * The monitor tracks one state of the deterministic parity automaton of each
+ * truth value (see {@link MonitorConstructor#truthValueFormulas}), which Owl
+ * constructs on the fly (see {@link TranslationPortfolio#translateOnTheFly}).
+ * The verdict of a state contains a truth value if and only if the language
+ * from the state of its automaton is non-empty, which is decided (and
+ * memoized) by an {@link OnTheFlyEmptiness} check. States with empty language
+ * are dropped, since the truth value cannot be reached anymore.
+ * <p>
+ * The states of the monitor (i.e., the tuples of states of the parity
+ * automata) and their successors are memoized in a cache holding at most
+ * {@code capacity} states, which evicts states in the order they were cached.
+ * A state that is evicted remains valid: when it is stepped again, it is
+ * cached again and its successors are recomputed. Thus, memory depends on the
+ * observed behavior rather than on the size of the monitor, but the states of
+ * a lazy monitor are not minimized (equivalent states are not merged).
+ * <p>
+ * Letters and verdicts are represented as for
+ * {@link de.mpi_sws.rltlmonitor.runtime.CompiledMonitor}. Since Owl's
+ * factories are not thread-safe, stepping is synchronized.
+ */
+public final class LazyMonitor {
+
+	/**
+	 * A state of a lazy monitor. States are immutable from the outside and may be
+	 * compared with {@link #equals(Object)}.
+	 */
+	public static final class State {
+
+		/**
+		 * The state of the automaton of each truth value or {@code null} if the
+		 * truth value cannot be reached anymore.
+		 */
+		private final Object[] components;
+
+		/**
+		 * The verdict (i.e., the bit mask of the truth values whose component is not
+		 * {@code null}).
+		 */
+		private final byte verdict;
+
+		private final int hashCode;
+
+		/**
+		 * The successor of each letter computed so far, or {@code null} if the state
+		 * is not cached.
+		 */
+		private State[] successors;
+
+		State(Object[] components, byte verdict) {
+			this.components = components;
+			this.verdict = verdict;
+			this.hashCode = Arrays.hashCode(components);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return this == obj || (obj instanceof State && hashCode == ((State) obj).hashCode
+					&& Arrays.equals(components, ((State) obj).components));
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+	}
+
+	/**
+	 * The parity automaton of a truth value and the emptiness check of its states.
+	 */
+	private static final class TruthValue {
+
+		private final Automaton<Object, ParityAcceptance> automaton;
+		private final OnTheFlyEmptiness emptiness;
+
+		TruthValue(Automaton<Object, ParityAcceptance> automaton, int capacity) {
+			this.automaton = automaton;
+			this.emptiness = new OnTheFlyEmptiness(automaton, capacity);
+		}
+
+		/**
+		 * Returns the state reached from a state on a valuation, provided that its
+		 * language is non-empty.
+		 *
+		 * @param state     The state or {@code null}
+		 * @param valuation The valuation
+		 * @return the successor of {@code state} or {@code null} if {@code state} is
+		 *         {@code null}, has no successor or the language from the successor
+		 *         is empty
+		 */
+		Object successor(Object state, BitSet valuation) {
+			if (state == null) {
+				return null;
+			}
+			Edge<Object> edge = automaton.edge(state, valuation);
+			return edge != null && emptiness.isNonEmpty(edge.successor()) ? edge.successor() : null;
+		}
+
+		/**
+		 * Returns the initial state, provided that its language is non-empty.
+		 *
+		 * @return the initial state or {@code null} if the automaton has no initial
+		 *         state or its language is empty
+		 */
+		Object initialState() {
+			if (automaton.initialStates().isEmpty()) {
+				return null;
+			}
+			Object initialState = automaton.onlyInitialState();
+			return emptiness.isNonEmpty(initialState) ? initialState : null;
+		}
+
+	}
+
+	/**
+	 * The names of the atomic propositions, ordered by their index.
+	 */
+	private final List<String> propositions;
+
+	/**
+	 * Number of letters (i.e., {@code 2^numPropositions}).
+	 */
+	private final int alphabetSize;
+
+	/**
+	 * The automaton of each truth value.
+	 */
+	private final TruthValue[] truthValues;
+
+	/**
+	 * The cached states.
+	 */
+	private final Map<State, State> cache;
+
+	/**
+	 * The initial state.
+	 */
+	private final State initialState;
+
+	/**
+	 * Creates a new lazy monitor for the given formulas, one per truth value. The
+	 * formulas must number the atomic propositions consistently (as the formulas of
+	 * {@link MonitorConstructor#truthValueFormulas} do), and every word must
+	 * satisfy exactly one of them.
+	 *
+	 * @param formulas The formula of each truth value
+	 * @param capacity The maximal number of cached states (of the monitor and of
+	 *                 each parity automaton)
+	 */
+	LazyMonitor(LabelledFormula[] formulas, int capacity) {
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+
+		//
+		// Translate formulas on the fly (with one set of factories, which is never
+		// released since the automata use it as long as the monitor exists)
+		//
+		var session = ConstructionSession.forFormulas(formulas);
+		var environment = session.environment(session.acquireFactories());
+		this.propositions = session.atomicPropositions();
+		this.alphabetSize = 1 << propositions.size();
+		this.truthValues = new TruthValue[formulas.length];
+		for (int i = 0; i < formulas.length; ++i) {
+			truthValues[i] = new TruthValue(TranslationPortfolio.translateOnTheFly(environment, formulas[i]),
+					capacity);
+		}
+
+		this.cache = new LinkedHashMap<>(16, 0.75f, false) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<State, State> eldest) {
+				if (size() > capacity) {
+					eldest.getValue().successors = null;
+					return true;
+				}
+				return false;
+			}
+
+		};
+
+		Object[] components = new Object[truthValues.length];
+		for (int i = 0; i < truthValues.length; ++i) {
+			components[i] = truthValues[i].initialState();
+		}
+		this.initialState = cache(new State(components, verdict(components)));
+
+	}
+
+	/**
+	 * Returns the initial state.
+	 *
+	 * @return the initial state
+	 */
+	public State initialState() {
+		return initialState;
+	}
+
+	/**
+	 * Returns the successor of a state on a letter, computing it if it is not
+	 * cached.
+	 *
+	 * @param state  The current state
+	 * @param letter The letter (i.e., a bit mask of the propositions that hold)
+	 * @return the successor state
+	 */
+	public synchronized State step(State state, int letter) {
+
+		if (letter < 0 || letter >= alphabetSize) {
+			throw new IllegalArgumentException("Invalid letter: " + letter);
+		}
+
+		State source = state.successors != null ? state : cache(state);
+		State successor = source.successors[letter];
+		if (successor != null) {
+			return successor;
+		}
+
+		BitSet valuation = BitSet.valueOf(new long[] { letter });
+		Object[] components = new Object[truthValues.length];
+		for (int i = 0; i < truthValues.length; ++i) {
+			components[i] = truthValues[i].successor(source.components[i], valuation);
+		}
+		successor = cache(new State(components, verdict(components)));
+
+		// Caching the successor may have evicted the source
+		if (source.successors != null) {
+			source.successors[letter] = successor;
+		}
+		return successor;
+
+	}
+
+	/**
+	 * Returns the state reached after reading the given letters from a state.
+	 *
+	 * @param state   The state to start from
+	 * @param letters The letters to read
+	 * @param from    Index of the first letter to read (inclusive)
+	 * @param to      Index of the last letter to read (exclusive)
+	 * @return the state reached
+	 */
+	public synchronized State run(State state, int[] letters, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			state = step(state, letters[i]);
+		}
+		return state;
+	}
+
+	/**
+	 * Returns the verdict of a state as bit mask of the truth values that are
+	 * still possible.
+	 *
+	 * @param state The state
+	 * @return the verdict of {@code state}
+	 */
+	public byte verdict(State state) {
+		return state.verdict;
+	}
+
+	/**
+	 * Returns the number of cached states.
+	 *
+	 * @return the number of cached states
+	 */
+	public synchronized int cachedStates() {
+		return cache.size();
+	}
+
+	/**
+	 * Returns the names of the atomic propositions.
+	 *
+	 * @return the atomic propositions, ordered by their index
+	 */
+	public List<String> propositions() {
+		return propositions;
+	}
+
+	/**
+	 * Returns the number of atomic propositions.
+	 *
+	 * @return the number of atomic propositions
+	 */
+	public int numPropositions() {
+		return propositions.size();
+	}
+
+	/**
+	 * Returns the number of truth values (5 for rLTL and 2 for LTL monitors).
+	 *
+	 * @return the number of truth values
+	 */
+	public int numTruthValues() {
+		return truthValues.length;
+	}
+
+	/**
+	 * Returns the cached state equal to a given state, caching the given state if
+	 * there is none.
+	 *
+	 * @param state The state
+	 * @return the cached state
+	 */
+	private State cache(State state) {
+		State cached = cache.get(state);
+		if (cached == null) {
+			state.successors = new State[alphabetSize];
+			cache.put(state, state);
+			cached = state;
+		}
+		return cached;
+	}
+
+	/**
+	 * Computes the verdict of a state from its components.
+	 *
+	 * @param components The state of the automaton of each truth value
+	 * @return the bit mask of the truth values whose component is not
+	 *         {@code null}
+	 */
+	private static byte verdict(Object[] components) {
+		int verdict = 0;
+		for (int i = 0; i < components.length; ++i) {
+			if (components[i] != null) {
+				verdict |= 1 << i;
+			}
+		}
+		return (byte) verdict;
+	}
+
+}
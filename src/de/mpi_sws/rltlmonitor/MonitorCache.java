@@ -0,0 +1,216 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Optional;
+
+import org.mpi_sws.rltl.parser.LTLParser;
+import org.mpi_sws.rltl.parser.ParseException;
+import org.mpi_sws.rltl.visitors.PrettyPrintVisitor;
+
+import de.mpi_sws.rltlmonitor.runtime.CompiledMonitor;
+import de.mpi_sws.rltlmonitor.runtime.MappedMonitor;
+import de.mpi_sws.rltlmonitor.runtime.MonitorFormat;
+import net.automatalib.serialization.FormatException;
+import owl.ltl.rewriter.SimplifierFactory;
+
+/**
+ * Persistent cache of compiled monitors in a directory.
+ * <p>
+ * Monitors are addressed by a key consisting of the logic, the atomic
+ * propositions (in the order in which they are numbered in the alphabet of the
+ * monitor) and the normalized formula (see {@link #key(String, boolean)}). Each
+ * monitor is stored in its own file, named after the SHA-256 hash of its key,
+ * in the format of {@link MonitorFormat} with the key in its key section. Thus,
+ * cached monitors can be opened with {@link MonitorFormat#map} and monitor
+ * files can serve as cache entries. Loading a monitor only maps its file and
+ * parses the header, so its cost does not depend on the size of the monitor
+ * (see {@link MappedMonitor}). Files are written atomically, so several
+ * processes may share a cache directory.
+ */
+public class MonitorCache {
+
+	/**
+	 * Suffix of the files of the cache.
+	 */
+	private static final String SUFFIX = ".monitor";
+
+	/**
+	 * The cache directory.
+	 */
+	private final Path directory;
+
+	/**
+	 * Creates a cache in the given directory, creating the directory if necessary.
+	 *
+	 * @param directory The cache directory
+	 * @throws IOException If the directory cannot be created
+	 */
+	public MonitorCache(Path directory) throws IOException {
+		this.directory = Files.createDirectories(directory);
+	}
+
+	/**
+	 * Returns the cache key of a formula.
+	 * <p>
+	 * The formula is normalized by parsing and pretty-printing it with the rLTL
+	 * parser (which removes differences in whitespace and parentheses). LTL
+	 * formulas are additionally simplified by Owl's syntactic simplifier, which
+	 * preserves the LTL semantics (but not necessarily the rLTL semantics and is,
+	 * hence, not applied to rLTL formulas). Since the alphabet of a monitor
+	 * depends on the order in which the atomic propositions occur, this order is
+	 * part of the key.
+	 *
+	 * @param formula The (r)LTL formula
+	 * @param rLTL    Whether the formula is an rLTL formula
+	 * @return the key of the formula
+	 * @throws ParseException Throws this exception if the formula cannot be parsed
+	 */
+	public static String key(String formula, boolean rLTL) throws ParseException {
+
+		LTLParser parser = new LTLParser(new BufferedReader(new StringReader(formula)));
+		var expression = parser.expression();
+		var normalized = (new PrettyPrintVisitor()).expression2String(expression);
+		var visitor = new OwlFormulaVisitor();
+		var labelledFormula = visitor.label(visitor.expression2Formula(expression));
+
+		if (!rLTL) {
+			normalized = SimplifierFactory
+					.apply(labelledFormula, SimplifierFactory.Mode.SYNTACTIC_FIXPOINT)
+					.toString();
+		}
+
+		return (rLTL ? "rltl" : "ltl") + "\n" + labelledFormula.atomicPropositions() + "\n" + normalized;
+
+	}
+
+	/**
+	 * Returns the monitor of a formula from the cache or constructs it (and adds
+	 * it to the cache) if it is not cached yet.
+	 *
+	 * @param formula     The (r)LTL formula
+	 * @param rLTL        Whether to construct an rLTL (or an LTL) monitor
+	 * @param parallelism The maximal number of threads to use for the construction
+	 * @param options     The options of the construction
+	 * @param listener    The listener to notify during the construction
+	 * @return the monitor of {@code formula}, backed by its file in the cache
+	 * @throws ParseException               Throws this exception if the formula
+	 *                                      cannot be parsed
+	 * @throws UnsupportedEncodingException Throws this exception if the formula is
+	 *                                      not an appropriate character encoding
+	 * @throws IOException                  If the cache cannot be read or written
+	 */
+	public MappedMonitor getOrConstruct(String formula, boolean rLTL, int parallelism, ConstructionOptions options,
+			ConstructionListener listener) throws ParseException, UnsupportedEncodingException, IOException {
+
+		String key = key(formula, rLTL);
+
+		var cached = load(key);
+		if (cached.isPresent()) {
+			return cached.get();
+		}
+
+		var machine = rLTL ? MonitorConstructor.constructrLTLMonitor(formula, parallelism, options, listener)
+				: MonitorConstructor.constructLTLMonitor(formula, options, listener);
+		var monitor = CompiledMonitor.compile(machine);
+		store(key, monitor, MonitorConstructor.propositions(formula),
+				rLTL ? MonitorFormat.RLTL_TRUTH_VALUES : MonitorFormat.LTL_TRUTH_VALUES);
+		return MonitorFormat.map(path(key));
+
+	}
+
+	/**
+	 * Loads the monitor with the given key by memory-mapping its file. Files whose
+	 * header is corrupt, that have a different format version or belong to a
+	 * different key are ignored. The tables are not copied or checked (see
+	 * {@link MappedMonitor#toCompiledMonitor()}).
+	 *
+	 * @param key The key of the monitor
+	 * @return the monitor or an empty optional if it is not cached
+	 * @throws IOException If the file of the monitor cannot be read
+	 */
+	public Optional<MappedMonitor> load(String key) throws IOException {
+
+		try {
+
+			var monitor = MonitorFormat.map(path(key));
+			if (!monitor.key().equals(Optional.of(key))) {
+				return Optional.empty();
+			}
+			return Optional.of(monitor);
+
+		} catch (NoSuchFileException e) {
+			return Optional.empty();
+		} catch (FormatException e) {
+			// Corrupt file
+			return Optional.empty();
+		}
+
+	}
+
+	/**
+	 * Stores a monitor under the given key, replacing a previously stored monitor.
+	 *
+	 * @param key            The key of the monitor
+	 * @param monitor        The monitor
+	 * @param propositions   The names of the atomic propositions of the monitor,
+	 *                       ordered by their index
+	 * @param numTruthValues The number of truth values of the monitor
+	 * @throws IOException If the file of the monitor cannot be written
+	 */
+	public void store(String key, CompiledMonitor monitor, List<String> propositions, int numTruthValues)
+			throws IOException {
+
+		Path target = path(key);
+		Path temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+
+		try {
+
+			try (OutputStream out = Files.newOutputStream(temporary)) {
+				MonitorFormat.write(out, monitor, propositions, numTruthValues, null, key);
+			}
+
+			Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+
+	}
+
+	/**
+	 * Returns the path of the file of a key.
+	 *
+	 * @param key The key
+	 * @return the path of the file storing the monitor with key {@code key}
+	 */
+	private Path path(String key) {
+
+		try {
+
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder name = new StringBuilder(2 * hash.length + SUFFIX.length());
+			for (byte b : hash) {
+				name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return directory.resolve(name.append(SUFFIX).toString());
+
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform supports SHA-256
+			throw new RuntimeException(e);
+		}
+
+	}
+
+}
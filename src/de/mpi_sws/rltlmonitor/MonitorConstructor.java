@@ -1,274 +1,860 @@
 package de.mpi_sws.rltlmonitor;
 
-import net.automatalib.automata.transducers.impl.FastMoore;
-import net.automatalib.util.automata.Automata;
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
+import org.mpi_sws.rltl.expressions.Expression;
 import org.mpi_sws.rltl.parser.LTLParser;
 import org.mpi_sws.rltl.parser.ParseException;
-import org.mpi_sws.rltl.visitors.PrettyPrintVisitor;
-import org.mpi_sws.rltl.visitors.RLTL2LTLVisitor;
 import owl.automaton.Automaton;
-import owl.ltl.parser.LtlParser;
-import owl.run.Environment;
-import owl.translations.ltl2dpa.LTL2DPAFunction;
+import owl.automaton.acceptance.ParityAcceptance;
+import owl.ltl.Conjunction;
+import owl.ltl.Formula;
+import owl.ltl.LabelledFormula;
+
+import de.mpi_sws.rltlmonitor.ConstructionListener.Stage;
+import de.mpi_sws.rltlmonitor.symbolic.SymbolicMonitor;
+import de.mpi_sws.rltlmonitor.symbolic.SymbolicMonitors;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.BitSet;
-import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
 
 /**
  * This class implements the (r)LTL monitor construction.
- * 
+ * <p>
+ * The construction does not print or render any intermediate results. To
+ * inspect intermediate formulas and automata or to measure the individual
+ * stages, pass a {@link ConstructionListener} (e.g., a
+ * {@link DebugOutputListener} or a {@link ConstructionReport}). Options that
+ * change how a monitor is constructed (see {@link ConstructionOptions}) are
+ * passed to each construction.
+ *
  */
 public class MonitorConstructor {
 
+	/**
+	 * Returns the atomic propositions of an (r)LTL formula in the order in which
+	 * they are numbered in the alphabets of the constructed monitors (i.e., bit
+	 * {@code i} of a letter corresponds to the {@code i}-th proposition).
+	 *
+	 * @param formula The (r)LTL formula
+	 * @return the atomic propositions of the formula
+	 * @throws ParseException Throws this exception if the formula cannot be parsed
+	 */
+	public static List<String> propositions(String formula) throws ParseException {
+		LTLParser parser = new LTLParser(new BufferedReader(new StringReader(formula)));
+		return OwlFormulaVisitor.atomicPropositions(parser.expression());
+	}
+
 	/**
 	 * Constructs the unique LTL monitor given an LTL formula (according to Brauer
 	 * et al.).
-	 * 
+	 *
+	 * @param ltlFormula The LTL formula to construct the monitor from
+	 * @return the unique LTL monitor corresponding to the given LTL formula
+	 * @throws ParseException
+	 */
+	public static CompactMoore<BitSet, BitSet> constructLTLMonitor(String ltlFormula) throws ParseException {
+		return constructLTLMonitor(ltlFormula, ConstructionListener.NONE);
+	}
+
+	/**
+	 * Constructs the unique LTL monitor given an LTL formula (according to Brauer
+	 * et al.), notifying a listener about the progress of the construction.
+	 *
+	 * @param ltlFormula The LTL formula to construct the monitor from
+	 * @param listener   The listener to notify
+	 * @return the unique LTL monitor corresponding to the given LTL formula
+	 * @throws ParseException
+	 */
+	public static CompactMoore<BitSet, BitSet> constructLTLMonitor(String ltlFormula, ConstructionListener listener)
+			throws ParseException {
+		return constructLTLMonitor(ltlFormula, ConstructionOptions.DEFAULT, listener);
+	}
+
+	/**
+	 * Constructs the unique LTL monitor given an LTL formula (according to Brauer
+	 * et al.) with the given options, notifying a listener about the progress of
+	 * the construction.
+	 *
 	 * @param ltlFormula The LTL formula to construct the monitor from
+	 * @param options    The options of the construction
+	 * @param listener   The listener to notify
 	 * @return the unique LTL monitor corresponding to the given LTL formula
-	 * @throws ParseException 
+	 * @throws ParseException
 	 */
-	public static FastMoore<BitSet, BitSet> constructLTLMonitor(String ltlFormula) throws ParseException {
+	public static CompactMoore<BitSet, BitSet> constructLTLMonitor(String ltlFormula, ConstructionOptions options,
+			ConstructionListener listener) throws ParseException {
 
 		//
 		// Use the rLTL2LTL parser in order to avoid inconsistencies in operator precedence
 		//
-		LTLParser parser = new LTLParser(new BufferedReader(new StringReader(ltlFormula)));
-		var expr = parser.expression();
-		var parsedLTLFormula = (new PrettyPrintVisitor()).expression2String(expr);
-		
-		//
-		// Negate LTL formula
-		//
-		String negatedLTLFormula = "!(" + parsedLTLFormula + ")";
+		var timer = StageTimer.start();
+		var parsedLTLFormula = parseLTLFormula(ltlFormula);
+		timer.stop(listener, Stage.PARSE);
 
 		//
-		// Owl automaton for negated formula
+		// Moore machines for original and negated formula (the parity automaton of
+		// the negated formula is the complement of the one of the original formula)
 		//
-		var environment = Environment.standard();
-		var translator = new LTL2DPAFunction(environment, EnumSet.of(
-				LTL2DPAFunction.Configuration.OPTIMISE_INITIAL_STATE,
-				LTL2DPAFunction.Configuration.COMPRESS_COLOURS
-		));
-//		var translator = new LTL2DPAFunction(environment,
-//				Set.of(LTL2DPAFunction.Configuration.OPTIMISE_INITIAL_STATE, LTL2DPAFunction.Configuration.COMPLETE,
-//						LTL2DPAFunction.Configuration.EXISTS_SAFETY_CORE,
-//						LTL2DPAFunction.Configuration.COMPRESS_COLOURS));
-
-		var negatedOwlAutomaton = translator.apply(LtlParser.parse(negatedLTLFormula));
-//		var negatedOwlAutomaton = AutomatonUtil.cast(translator.apply(LtlParser.parse(negatedLTLFormula)));
-		assert negatedOwlAutomaton.is(Automaton.Property.COMPLETE);
-
-		System.out.println("Negated formula: " + negatedLTLFormula);
-		System.out.println("\n---------- Start Owl automaton ----------");
-		System.out.println(owl.automaton.output.HoaPrinter.toString(negatedOwlAutomaton));
-		System.out.print("Alphabet: ");
-		for (int i = 0; i < negatedOwlAutomaton.factory().alphabet().size(); ++i) {
-			System.out.print((i == 0 ? "" : "; ") + negatedOwlAutomaton.factory().alphabet().get(i) + " (" + i + ")");
-		}
-		System.out.println("\n---------- End Owl automaton ----------");
+		var session = ConstructionSession.forFormulas(parsedLTLFormula);
+		var translation = constructOwlAutomaton(session, parsedLTLFormula, 1, options, listener);
+		var originalMachine = toMachine(translation.automaton, 1, options, listener);
+		var complement = complementOwlAutomaton(translation.automaton, parsedLTLFormula.not(), 0, listener);
+		var negatedMachine = toMachine(complement, 0, options, listener);
+		session.releaseFactories(translation.factories);
 
-		//
-		// Convert to Moore machine
-		//
-		var negatedMachine = Owl2Automatalib.toAutomatalib((Automaton<Object, ?>) negatedOwlAutomaton, 0);
-		System.out.println("\n---------- Start Moore machine ----------");
-		System.out.println(Owl2Automatalib.toDot(negatedMachine));
-		System.out.println("---------- End Moore machine ----------");
+		originalMachine = minimizeMachine(originalMachine, 1, listener);
+		negatedMachine = minimizeMachine(negatedMachine, 0, listener);
 
 		//
-		// Minimize Moore machine
+		// Compute product
 		//
-		Automata.invasiveMinimize(negatedMachine, negatedMachine.getInputAlphabet());
-		System.out.println("\n---------- Start minimized Moore machine ----------");
-		System.out.println(Owl2Automatalib.toDot(negatedMachine));
-		System.out.println("---------- End minimized Moore machine ----------");
+		timer = StageTimer.start();
+		var combinedMachine = Owl2Automatalib.product(negatedMachine, originalMachine, false);
+		timer.stop(listener, Stage.PRODUCT);
+		listener.mooreMachineConstructed(-1, "combined Moore machine", combinedMachine);
 
-		//
-		// Owl automaton for original formula
-		//
-//		var originalOwlAutomaton = AutomatonUtil.cast(translator.apply(LtlParser.parse(parsedLTLFormula)));
-		var originalOwlAutomaton = translator.apply(LtlParser.parse(parsedLTLFormula));
-		assert (originalOwlAutomaton.is(Automaton.Property.COMPLETE));
-		System.out.println("Original formula: " + parsedLTLFormula);
-		System.out.println("\n---------- Start Owl automaton ----------");
-		System.out.println(owl.automaton.output.HoaPrinter.toString(originalOwlAutomaton));
-		System.out.print("Alphabet: ");
-		for (int i = 0; i < originalOwlAutomaton.factory().alphabet().size(); ++i) {
-			System.out.print((i == 0 ? "" : "; ") + originalOwlAutomaton.factory().alphabet().get(i) + " (" + i + ")");
-		}
-		System.out.println("\n---------- End Owl automaton ----------");
+		// Minimize
+		timer = StageTimer.start();
+		var minimizedMachine = MooreMinimization.minimize(combinedMachine);
+		timer.stop(listener, Stage.MINIMIZATION);
+		listener.mooreMachineConstructed(-1, "minimized combined Moore machine", minimizedMachine);
 
-		//
-		// Convert to Moore machine
-		//
-		var originalMachine = Owl2Automatalib.toAutomatalib((Automaton<Object, ?>) originalOwlAutomaton, 1);
-		System.out.println("\n---------- Start Moore machine ----------");
-		System.out.println(Owl2Automatalib.toDot(originalMachine));
-		System.out.println("---------- End Moore machine ----------");
+		return minimizedMachine;
+
+	}
+
+	/**
+	 * Constructs the unique rLTL monitor given an rLTL formula.
+	 *
+	 * @param rLTLFormula The rLTL formula to construct the monitor from
+	 * @return the unique rLTL monitor corresponding to the given rLTL formula
+	 * @throws ParseException               Throws this exception if the formula
+	 *                                      cannot be parsed
+	 * @throws UnsupportedEncodingException Throws this exception if the formula is
+	 *                                      not an appropriate character encoding
+	 */
+	public static CompactMoore<BitSet, BitSet> constructrLTLMonitor(String rLTLFormula)
+			throws ParseException, UnsupportedEncodingException {
+		return constructrLTLMonitor(rLTLFormula, 1, ConstructionListener.NONE);
+	}
+
+	/**
+	 * Constructs the unique rLTL monitor given an rLTL formula, translating the
+	 * formulas of the individual truth values concurrently using up to
+	 * {@code parallelism} threads.
+	 *
+	 * @param rLTLFormula The rLTL formula to construct the monitor from
+	 * @param parallelism The maximal number of threads to use
+	 * @return the unique rLTL monitor corresponding to the given rLTL formula
+	 * @throws ParseException               Throws this exception if the formula
+	 *                                      cannot be parsed
+	 * @throws UnsupportedEncodingException Throws this exception if the formula is
+	 *                                      not an appropriate character encoding
+	 */
+	public static CompactMoore<BitSet, BitSet> constructrLTLMonitor(String rLTLFormula, int parallelism)
+			throws ParseException, UnsupportedEncodingException {
+		return constructrLTLMonitor(rLTLFormula, parallelism, ConstructionListener.NONE);
+	}
+
+	/**
+	 * Constructs the unique rLTL monitor given an rLTL formula, translating the
+	 * formulas of the individual truth values concurrently using up to
+	 * {@code parallelism} threads and notifying a listener about the progress of
+	 * the construction.
+	 *
+	 * @param rLTLFormula The rLTL formula to construct the monitor from
+	 * @param parallelism The maximal number of threads to use
+	 * @param listener    The listener to notify
+	 * @return the unique rLTL monitor corresponding to the given rLTL formula
+	 * @throws ParseException               Throws this exception if the formula
+	 *                                      cannot be parsed
+	 * @throws UnsupportedEncodingException Throws this exception if the formula is
+	 *                                      not an appropriate character encoding
+	 */
+	public static CompactMoore<BitSet, BitSet> constructrLTLMonitor(String rLTLFormula, int parallelism,
+			ConstructionListener listener) throws ParseException, UnsupportedEncodingException {
+		return constructrLTLMonitor(rLTLFormula, parallelism, ConstructionOptions.DEFAULT, listener);
+	}
+
+	/**
+	 * Constructs the unique rLTL monitor given an rLTL formula with the given
+	 * options, translating the formulas of the individual truth values
+	 * concurrently using up to {@code parallelism} threads and notifying a
+	 * listener about the progress of the construction.
+	 *
+	 * @param rLTLFormula The rLTL formula to construct the monitor from
+	 * @param parallelism The maximal number of threads to use
+	 * @param options     The options of the construction
+	 * @param listener    The listener to notify
+	 * @return the unique rLTL monitor corresponding to the given rLTL formula
+	 * @throws ParseException               Throws this exception if the formula
+	 *                                      cannot be parsed
+	 * @throws UnsupportedEncodingException Throws this exception if the formula is
+	 *                                      not an appropriate character encoding
+	 */
+	public static CompactMoore<BitSet, BitSet> constructrLTLMonitor(String rLTLFormula, int parallelism,
+			ConstructionOptions options, ConstructionListener listener)
+			throws ParseException, UnsupportedEncodingException {
 
 		//
-		// Minimize Moore machine
+		// Construct one minimized Moore machine per truth value
 		//
-		Automata.invasiveMinimize(originalMachine, originalMachine.getInputAlphabet());
-		System.out.println("\n---------- Start minimized Moore machine ----------");
-		System.out.println(Owl2Automatalib.toDot(originalMachine));
-		System.out.println("---------- End minimized Moore machine ----------");
+		var machines = constructTruthValueMachines(rLTLFormula, parallelism, options, listener);
 
 		//
-		// Compute product
+		// Compute product of all machines at once
 		//
-		var combinedMachine = Owl2Automatalib.naiveProduct(negatedMachine, originalMachine);
-		System.out.println("\n---------- Start combined Moore machine ----------");
-		System.out.println(Owl2Automatalib.toDot(combinedMachine));
-		System.out.println("---------- End combined Moore machine ----------");
+		var timer = StageTimer.start();
+		var combinedMachine = Owl2Automatalib.product(machines);
+		timer.stop(listener, Stage.PRODUCT);
+		listener.mooreMachineConstructed(-1, "combined Moore machine", combinedMachine);
 
 		// Minimize
-		Automata.invasiveMinimize(combinedMachine, combinedMachine.getInputAlphabet());
-		System.out.println("\n---------- Start minimized combined Moore machine ----------");
-		System.out.println(Owl2Automatalib.toDot(combinedMachine));
-		System.out.println("---------- End minimized combined Moore machine ----------");
+		timer = StageTimer.start();
+		var minimizedMachine = MooreMinimization.minimize(combinedMachine);
+		timer.stop(listener, Stage.MINIMIZATION);
+		listener.mooreMachineConstructed(-1, "minimized combined Moore machine", minimizedMachine);
+
+		return minimizedMachine;
+
+	}
+
+	/**
+	 * Combines the Moore machines of the individual truth values by folding them
+	 * pairwise (i.e., computing and minimizing the product of the first two
+	 * machines, then the product of the result with the third machine, and so on).
+	 * <p>
+	 * This is the original combination step of the rLTL monitor construction. It
+	 * yields the same minimized monitor as the n-ary product used by
+	 * {@link #constructrLTLMonitor(String)} and is kept for comparison.
+	 *
+	 * @param machines The minimized Moore machines of the individual truth values
+	 * @return the minimized product of all {@code machines}
+	 */
+	public static CompactMoore<BitSet, BitSet> combinePairwise(List<CompactMoore<BitSet, BitSet>> machines) {
 
+		CompactMoore<BitSet, BitSet> combinedMachine = machines.get(0);
+		for (int i = 1; i < machines.size(); ++i) {
+			combinedMachine = Owl2Automatalib.product(combinedMachine, machines.get(i), true);
+		}
 		return combinedMachine;
 
 	}
 
 	/**
-	 * Constructs the unique rLTL monitor given an rLTL formula.
-	 * 
-	 * @param rLTLFormula The rLTL formula to construct the monitor from
-	 * @return the unique rLTL monitor corresponding to the given rLTL formula
+	 * Constructs the minimized Moore machine of each truth value of the given rLTL
+	 * formula. The output of a state of the machine for truth value {@code i} is
+	 * {@code {i}} if the formula may still evaluate to {@code i} and the empty set
+	 * otherwise.
+	 *
+	 * @param rLTLFormula The rLTL formula to construct the Moore machines from
+	 * @return the five minimized Moore machines, ordered by truth value
+	 * @throws ParseException               Throws this exception if the formula
+	 *                                      cannot be parsed
+	 * @throws UnsupportedEncodingException Throws this exception if the formula is
+	 *                                      not an appropriate character encoding
+	 */
+	public static List<CompactMoore<BitSet, BitSet>> constructTruthValueMachines(String rLTLFormula)
+			throws ParseException, UnsupportedEncodingException {
+		return constructTruthValueMachines(rLTLFormula, 1, ConstructionListener.NONE);
+	}
+
+	/**
+	 * Constructs the minimized Moore machine of each truth value of the given rLTL
+	 * formula, using up to {@code parallelism} threads. The five translations are
+	 * independent of each other and are run as tasks of a bounded
+	 * {@link ForkJoinPool} if {@code parallelism} is greater than one.
+	 *
+	 * @param rLTLFormula The rLTL formula to construct the Moore machines from
+	 * @param parallelism The maximal number of threads to use
+	 * @param listener    The listener to notify
+	 * @return the five minimized Moore machines, ordered by truth value
+	 * @throws ParseException               Throws this exception if the formula
+	 *                                      cannot be parsed
+	 * @throws UnsupportedEncodingException Throws this exception if the formula is
+	 *                                      not an appropriate character encoding
+	 */
+	public static List<CompactMoore<BitSet, BitSet>> constructTruthValueMachines(String rLTLFormula, int parallelism,
+			ConstructionListener listener) throws ParseException, UnsupportedEncodingException {
+		return constructTruthValueMachines(rLTLFormula, parallelism, ConstructionOptions.DEFAULT, listener);
+	}
+
+	/**
+	 * Constructs the minimized Moore machine of each truth value of the given rLTL
+	 * formula with the given options, using up to {@code parallelism} threads. If
+	 * the options name a {@link SubMonitorCache}, the machines are built from the
+	 * cache.
+	 *
+	 * @param rLTLFormula The rLTL formula to construct the Moore machines from
+	 * @param parallelism The maximal number of threads to use
+	 * @param options     The options of the construction
+	 * @param listener    The listener to notify
+	 * @return the five minimized Moore machines, ordered by truth value
+	 * @throws ParseException               Throws this exception if the formula
+	 *                                      cannot be parsed
+	 * @throws UnsupportedEncodingException Throws this exception if the formula is
+	 *                                      not an appropriate character encoding
+	 */
+	public static List<CompactMoore<BitSet, BitSet>> constructTruthValueMachines(String rLTLFormula, int parallelism,
+			ConstructionOptions options, ConstructionListener listener)
+			throws ParseException, UnsupportedEncodingException {
+
+		var ltlFormulas = truthValueFormulas(rLTLFormula, listener);
+		var session = ConstructionSession.forFormulas(ltlFormulas);
+		var cache = options.subMonitorCache();
+
+		return constructPerTruthValue(parallelism, new IntFunction<CompactMoore<BitSet, BitSet>>() {
+
+			@Override
+			public CompactMoore<BitSet, BitSet> apply(int truthValue) {
+				if (cache != null) {
+					return cache.machine(ltlFormulas[truthValue], truthValue, options, listener);
+				}
+				return constructMachine(session, ltlFormulas[truthValue], truthValue, options, listener);
+			}
+
+		});
+
+	}
+
+	/**
+	 * Parses an LTL formula with the rLTL2LTL parser and converts it into an Owl
+	 * formula (see {@link OwlFormulaVisitor}).
+	 *
+	 * @param ltlFormula The LTL formula
+	 * @return the labelled Owl formula
+	 * @throws ParseException Throws this exception if the formula cannot be parsed
+	 */
+	private static LabelledFormula parseLTLFormula(String ltlFormula) throws ParseException {
+		LTLParser parser = new LTLParser(new BufferedReader(new StringReader(ltlFormula)));
+		var visitor = new OwlFormulaVisitor();
+		return visitor.label(visitor.expression2Formula(parser.expression()));
+	}
+
+	/**
+	 * Parses an rLTL formula and generates the LTL formulas of its five truth
+	 * values.
+	 *
+	 * @param rLTLFormula The rLTL formula
+	 * @param listener    The listener to notify
+	 * @return the five LTL formulas, ordered by truth value
 	 * @throws ParseException               Throws this exception if the formula
 	 *                                      cannot be parsed
 	 * @throws UnsupportedEncodingException Throws this exception if the formula is
 	 *                                      not an appropriate character encoding
 	 */
-	public static FastMoore<BitSet, BitSet> constructrLTLMonitor(String rLTLFormula)
+	private static LabelledFormula[] truthValueFormulas(String rLTLFormula, ConstructionListener listener)
 			throws ParseException, UnsupportedEncodingException {
 
 		//
 		// Parse rLTL expressions
 		//
+		var timer = StageTimer.start();
 		var parser = new LTLParser(new ByteArrayInputStream(rLTLFormula.getBytes("UTF-8")));
 		var rLTLExpr = parser.expression();
+		timer.stop(listener, Stage.PARSE);
 
 		//
 		// Convert to LTL expressions
 		//
-		var ltlExprs = RLTL2LTLVisitor.convert(rLTLExpr);
+		timer = StageTimer.start();
+		var ltlExprs = SharingRLTL2LTLVisitor.convert(rLTLExpr);
+		var ltlFormulas = truthValueFormulas(ltlExprs, OwlFormulaVisitor.atomicPropositions(rLTLExpr));
+		timer.stop(listener, Stage.RLTL_TO_LTL);
+
+		return ltlFormulas;
+
+	}
+
+	/**
+	 * Runs a construction for each of the five truth values, concurrently using up
+	 * to {@code parallelism} threads. The five constructions are independent of
+	 * each other and are run as tasks of a bounded {@link ForkJoinPool} if
+	 * {@code parallelism} is greater than one.
+	 *
+	 * @param <M>          The type of the constructed objects
+	 * @param parallelism  The maximal number of threads to use
+	 * @param construction The construction, taking the truth value as argument
+	 * @return the constructed objects, ordered by truth value
+	 */
+	private static <M> List<M> constructPerTruthValue(int parallelism, IntFunction<M> construction) {
+
+		List<M> results = new ArrayList<>(5);
+		if (parallelism <= 1) {
+
+			for (int truthValue = 0; truthValue < 5; ++truthValue) {
+				results.add(construction.apply(truthValue));
+			}
+
+		} else {
+
+			var pool = new ForkJoinPool(Math.min(parallelism, 5));
+			try {
+
+				List<ForkJoinTask<M>> tasks = new ArrayList<>(5);
+				for (int truthValue = 0; truthValue < 5; ++truthValue) {
+
+					final int value = truthValue;
+					tasks.add(pool.submit(new Callable<M>() {
+
+						@Override
+						public M call() {
+							return construction.apply(value);
+						}
+
+					}));
+
+				}
+
+				for (var task : tasks) {
+					results.add(task.join());
+				}
+
+			} finally {
+				pool.shutdown();
+			}
+
+		}
+
+		return results;
+
+	}
+
+	/**
+	 * Generates the LTL formulas of the five truth values from the four LTL
+	 * expressions obtained by translating an rLTL formula. The formula of truth
+	 * value {@code i} holds if and only if the rLTL formula evaluates to
+	 * {@code i}.
+	 * <p>
+	 * The expressions are converted into Owl formulas directly (see
+	 * {@link OwlFormulaVisitor}), so the five formulas share their subformulas.
+	 * All formulas number the atomic propositions as given, so that the alphabets
+	 * of the resulting automata agree (up to propositions beyond the last one
+	 * occurring in a formula).
+	 *
+	 * @param ltlExprs           The four LTL expressions obtained from the rLTL
+	 *                           formula
+	 * @param atomicPropositions The atomic propositions of the rLTL formula (see
+	 *                           {@link #propositions(String)})
+	 * @return the five LTL formulas, ordered by truth value
+	 */
+	public static LabelledFormula[] truthValueFormulas(Expression[] ltlExprs, List<String> atomicPropositions) {
+
+		//
+		// Convert LTL expressions to Owl formulas
+		//
+		var visitor = new OwlFormulaVisitor(atomicPropositions);
+		var formulas = new Formula[] { visitor.expression2Formula(ltlExprs[0]), visitor.expression2Formula(ltlExprs[1]),
+				visitor.expression2Formula(ltlExprs[2]), visitor.expression2Formula(ltlExprs[3]) };
 
 		//
-		// Convert LTL expression to Strings
+		// Generate LTL formulas
 		//
-		var visitor = new PrettyPrintVisitor();
+		return new LabelledFormula[] { visitor.label(formulas[0]),
+				visitor.label(Conjunction.of(formulas[0].not(), formulas[1])),
+				visitor.label(Conjunction.of(formulas[1].not(), formulas[2])),
+				visitor.label(Conjunction.of(formulas[2].not(), formulas[3])), visitor.label(formulas[3].not()) };
+
+	}
+
+	/**
+	 * Constructs the minimized Moore machine of a single LTL formula. The output of
+	 * a state is {@code {output}} if the language from this state is non-empty and
+	 * the empty set otherwise. This method may be called concurrently.
+	 *
+	 * @param session    The session providing the Owl factories
+	 * @param ltlFormula The LTL formula
+	 * @param output     The output of states with non-empty language (i.e., the
+	 *                   truth value)
+	 * @param options    The options of the construction
+	 * @param listener   The listener to notify
+	 * @return the minimized Moore machine of the given formula
+	 */
+	static CompactMoore<BitSet, BitSet> constructMachine(ConstructionSession session, LabelledFormula ltlFormula,
+			int output, ConstructionOptions options, ConstructionListener listener) {
+
+		// The factories (and the Owl automaton) must not be used after releasing them
+		var translation = constructOwlAutomaton(session, ltlFormula, output, options, listener);
+		var automatalibMachine = toMachine(translation.automaton, output, options, listener);
+		session.releaseFactories(translation.factories);
+
+		return minimizeMachine(automatalibMachine, output, listener);
+
+	}
+
+	/**
+	 * Converts a parity automaton into a Moore machine. The output of a state is
+	 * {@code {output}} if the language from this state is non-empty and the empty
+	 * set otherwise.
+	 *
+	 * @param owlAutomaton The parity automaton
+	 * @param output       The output of states with non-empty language
+	 * @param options      The options of the construction
+	 * @param listener     The listener to notify
+	 * @return the (unminimized or, with the incremental construction, partially
+	 *         minimized) Moore machine
+	 */
+	private static CompactMoore<BitSet, BitSet> toMachine(Automaton<Object, ?> owlAutomaton, int output,
+			ConstructionOptions options, ConstructionListener listener) {
 
-		var ltlStrings = new String[] { visitor.expression2String(ltlExprs[0]), visitor.expression2String(ltlExprs[1]),
-				visitor.expression2String(ltlExprs[2]), visitor.expression2String(ltlExprs[3]) };
+		var timer = StageTimer.start();
+		var automatalibMachine = options.incremental()
+				? IncrementalMooreBuilder.toAutomatalib(owlAutomaton, output)
+				: Owl2Automatalib.toAutomatalib(owlAutomaton, output);
+		timer.stop(listener, Stage.LABELLING);
+		listener.mooreMachineConstructed(output, "Moore machine", automatalibMachine);
+
+		return automatalibMachine;
+
+	}
+
+	/**
+	 * Minimizes the Moore machine of a single LTL formula.
+	 *
+	 * @param machine  The Moore machine
+	 * @param output   The output of states with non-empty language
+	 * @param listener The listener to notify
+	 * @return the minimized Moore machine
+	 */
+	private static CompactMoore<BitSet, BitSet> minimizeMachine(CompactMoore<BitSet, BitSet> machine, int output,
+			ConstructionListener listener) {
+
+		var timer = StageTimer.start();
+		var minimizedMachine = MooreMinimization.minimize(machine);
+		timer.stop(listener, Stage.MINIMIZATION);
+		listener.mooreMachineConstructed(output, "minimized Moore machine", minimizedMachine);
+
+		return minimizedMachine;
+
+	}
+
+	/**
+	 * Translates an LTL formula into a deterministic parity automaton using Owl
+	 * (see {@link TranslationPortfolio}).
+	 * <p>
+	 * The BDD factories of Owl are not thread-safe. Therefore, the automaton may
+	 * only be used by the calling thread and only until the factories of the
+	 * returned translation are released to the session.
+	 *
+	 * @param session    The session providing the Owl factories
+	 * @param ltlFormula The LTL formula
+	 * @param output     The truth value the formula belongs to
+	 * @param options    The options of the construction
+	 * @param listener   The listener to notify
+	 * @return the deterministic parity automaton of the given formula and the
+	 *         factories to release
+	 */
+	private static TranslationPortfolio.Translation constructOwlAutomaton(ConstructionSession session,
+			LabelledFormula ltlFormula, int output, ConstructionOptions options, ConstructionListener listener) {
+
+		listener.ltlFormulaGenerated(output, ltlFormula);
 
 		//
-		// Construct monitor
+		// Convert LTL expression to Owl automaton
 		//
-		FastMoore<BitSet, BitSet> combinedMachine = null;
-		for (int truthValue = 0; truthValue < 5; ++truthValue) {
-
-			System.out.println("\n========== (truth value=" + truthValue + ") ==========\n");
-
-			//
-			// Generate LTL expression
-			//
-			String ltlString = null;
-			if (truthValue == 0) {
-				ltlString = ltlStrings[0];
-			} else if (truthValue == 1) {
-				ltlString = "!(" + ltlStrings[0] + ") & (" + ltlStrings[1] + ")";
-			} else if (truthValue == 2) {
-				ltlString = "!(" + ltlStrings[1] + ") & (" + ltlStrings[2] + ")";
-			} else if (truthValue == 3) {
-				ltlString = "!(" + ltlStrings[2] + ") & (" + ltlStrings[3] + ")";
-			} else {
-				ltlString = "!(" + ltlStrings[3] + ")";
-			}
-			System.out.println("LTL formula is: " + ltlString);
-
-			//
-			// Convert LTL expression to Owl automaton
-			//
-			// var translator = new
-			// owl.translations.LTL2DAFunction(owl.run.DefaultEnvironment.standard(), false,
-			// EnumSet.allOf(owl.translations.LTL2DAFunction.Constructions.class));
-			// var translator = new LTL2DAFunction(DefaultEnvironment.standard(), false,
-			// EnumSet.of(LTL2DAFunction.Constructions.RABIN));
-			var environment = Environment.standard();
-			var translator = new LTL2DPAFunction(environment, EnumSet.of(
-					LTL2DPAFunction.Configuration.OPTIMISE_INITIAL_STATE,
-					LTL2DPAFunction.Configuration.COMPRESS_COLOURS
-			));
-//			var translator = new LTL2DPAFunction(environment,
-//					Set.of(LTL2DPAFunction.Configuration.OPTIMISE_INITIAL_STATE, LTL2DPAFunction.Configuration.COMPLETE,
-//							LTL2DPAFunction.Configuration.EXISTS_SAFETY_CORE,
-//							LTL2DPAFunction.Configuration.COMPRESS_COLOURS));
-
-//			var owlAutomaton = owl.automaton.AutomatonUtil.
-//					.cast(translator.apply(owl.ltl.parser.LtlParser.parse(ltlString)));
-			var owlAutomaton = translator.apply(owl.ltl.parser.LtlParser.parse(ltlString));
-			assert (owlAutomaton.is(Automaton.Property.COMPLETE));
-			System.out.println("\n---------- Start Owl automaton ----------");
-			System.out.println(owl.automaton.output.HoaPrinter.toString(owlAutomaton));
-			System.out.print("Alphabet: ");
-			for (int i = 0; i < owlAutomaton.factory().alphabet().size(); ++i) {
-				System.out.print((i == 0 ? "" : "; ") + owlAutomaton.factory().alphabet().get(i) + " (" + i + ")");
-			}
-			System.out.println("\n---------- End Owl automaton ----------");
-
-			//
-			// Convert to Moore machine
-			//
-			var automatalibMachine = Owl2Automatalib.toAutomatalib((Automaton<Object, ?>) owlAutomaton, truthValue);
-			System.out.println("\n---------- Start Moore machine ----------");
-			System.out.println(Owl2Automatalib.toDot(automatalibMachine));
-			System.out.println("---------- End Moore machine ----------");
-
-			//
-			// Minimize Moore machine
-			//
-			Automata.invasiveMinimize(automatalibMachine, automatalibMachine.getInputAlphabet());
-			System.out.println("\n---------- Start minimized Moore machine ----------");
-			System.out.println(Owl2Automatalib.toDot(automatalibMachine));
-			System.out.println("---------- End minimized Moore machine ----------");
-
-			//
-			// In first iteration, just store AutomataLib Moore machine
-			//
-			if (truthValue == 0) {
-				combinedMachine = automatalibMachine;
-			}
+		var timer = StageTimer.start();
+		var translation = TranslationPortfolio.translate(session, ltlFormula, options.portfolioBudget());
+		timer.stop(listener, Stage.LTL_TO_DPA);
+		listener.owlAutomatonConstructed(output, translation.automaton);
+
+		return translation;
 
-			//
-			// Otherwise compute product with previous Moore machine
-			//
-			else {
+	}
 
-				// Combine
-				combinedMachine = Owl2Automatalib.naiveProduct(combinedMachine, automatalibMachine);
-				System.out.println("\n---------- Start combined Moore machine ----------");
-				System.out.println(Owl2Automatalib.toDot(combinedMachine));
-				System.out.println("---------- End combined Moore machine ----------");
+	/**
+	 * Complements a deterministic parity automaton obtained from
+	 * {@link #constructOwlAutomaton}, which yields the automaton of the negated
+	 * formula without translating it. The given automaton is modified and must not
+	 * be used afterwards.
+	 *
+	 * @param owlAutomaton      The parity automaton
+	 * @param negatedLTLFormula The negation of the formula of {@code owlAutomaton}
+	 * @param output            The truth value the negated formula belongs to
+	 * @param listener          The listener to notify
+	 * @return the deterministic parity automaton of the negated formula
+	 */
+	private static Automaton<Object, ParityAcceptance> complementOwlAutomaton(
+			Automaton<Object, ParityAcceptance> owlAutomaton, LabelledFormula negatedLTLFormula, int output,
+			ConstructionListener listener) {
 
-				// Minimize
-				Automata.invasiveMinimize(combinedMachine, combinedMachine.getInputAlphabet());
-				System.out.println("\n---------- Start minimized combined Moore machine ----------");
-				System.out.println(Owl2Automatalib.toDot(combinedMachine));
-				System.out.println("---------- End minimized combined Moore machine ----------");
+		listener.ltlFormulaGenerated(output, negatedLTLFormula);
 
-			}
+		var timer = StageTimer.start();
+		var complement = TranslationPortfolio.complement(owlAutomaton);
+		timer.stop(listener, Stage.LTL_TO_DPA);
+		listener.owlAutomatonConstructed(output, complement);
+
+		return complement;
+
+	}
+
+	//
+	// Lazy monitors
+	//
+
+	/**
+	 * Creates a {@link LazyMonitor} for an LTL formula, which explores the
+	 * automata of the formula and of its negation only along the observed traces.
+	 * Its verdicts coincide with those of the unique LTL monitor constructed by
+	 * {@link #constructLTLMonitor(String)}.
+	 *
+	 * @param ltlFormula The LTL formula to construct the monitor from
+	 * @param capacity   The maximal number of states to cache
+	 * @return the lazy LTL monitor of the given formula
+	 * @throws ParseException Throws this exception if the formula cannot be parsed
+	 */
+	public static LazyMonitor constructLazyLTLMonitor(String ltlFormula, int capacity) throws ParseException {
+		var parsedLTLFormula = parseLTLFormula(ltlFormula);
+		return new LazyMonitor(new LabelledFormula[] { parsedLTLFormula.not(), parsedLTLFormula }, capacity);
+	}
+
+	/**
+	 * Creates a {@link LazyMonitor} for an rLTL formula, which explores the
+	 * automata of the five truth values only along the observed traces. Its
+	 * verdicts coincide with those of the unique rLTL monitor constructed by
+	 * {@link #constructrLTLMonitor(String)}.
+	 *
+	 * @param rLTLFormula The rLTL formula to construct the monitor from
+	 * @param capacity    The maximal number of states to cache
+	 * @return the lazy rLTL monitor of the given formula
+	 * @throws ParseException               Throws this exception if the formula
+	 *                                      cannot be parsed
+	 * @throws UnsupportedEncodingException Throws this exception if the formula is
+	 *                                      not an appropriate character encoding
+	 */
+	public static LazyMonitor constructLazyrLTLMonitor(String rLTLFormula, int capacity)
+			throws ParseException, UnsupportedEncodingException {
+		return new LazyMonitor(truthValueFormulas(rLTLFormula, ConstructionListener.NONE), capacity);
+	}
+
+	//
+	// Progression monitors
+	//
+
+	/**
+	 * Creates a {@link ProgressionMonitor} for an LTL formula, which progresses
+	 * the negation of the formula along the observed traces. Its verdicts coincide
+	 * with those of the unique LTL monitor constructed by
+	 * {@link #constructLTLMonitor(String)}.
+	 *
+	 * @param ltlFormula The LTL formula to construct the monitor from
+	 * @return the progression LTL monitor of the given formula
+	 * @throws ParseException Throws this exception if the formula cannot be parsed
+	 */
+	public static ProgressionMonitor constructProgressionLTLMonitor(String ltlFormula) throws ParseException {
+		return new ProgressionMonitor(new LabelledFormula[] { parseLTLFormula(ltlFormula).not() });
+	}
+
+	/**
+	 * Creates a {@link ProgressionMonitor} for an rLTL formula, which progresses
+	 * the four LTL formulas of the rLTL formula (see
+	 * {@link SharingRLTL2LTLVisitor}) along the observed traces. Its verdicts
+	 * coincide with those of the unique rLTL monitor constructed by
+	 * {@link #constructrLTLMonitor(String)}.
+	 *
+	 * @param rLTLFormula The rLTL formula to construct the monitor from
+	 * @return the progression rLTL monitor of the given formula
+	 * @throws ParseException               Throws this exception if the formula
+	 *                                      cannot be parsed
+	 * @throws UnsupportedEncodingException Throws this exception if the formula is
+	 *                                      not an appropriate character encoding
+	 */
+	public static ProgressionMonitor constructProgressionrLTLMonitor(String rLTLFormula)
+			throws ParseException, UnsupportedEncodingException {
 
+		var parser = new LTLParser(new ByteArrayInputStream(rLTLFormula.getBytes("UTF-8")));
+		var rLTLExpr = parser.expression();
+		var ltlExprs = SharingRLTL2LTLVisitor.convert(rLTLExpr);
+
+		var visitor = new OwlFormulaVisitor(OwlFormulaVisitor.atomicPropositions(rLTLExpr));
+		var formulas = new LabelledFormula[ltlExprs.length];
+		for (int i = 0; i < ltlExprs.length; ++i) {
+			formulas[i] = visitor.label(visitor.expression2Formula(ltlExprs[i]));
 		}
+		return new ProgressionMonitor(formulas);
 
-		return combinedMachine;
+	}
+
+	//
+	// Symbolic monitors
+	//
+
+	/**
+	 * Constructs the unique LTL monitor given an LTL formula (according to Brauer
+	 * et al.) as a {@link SymbolicMonitor}, whose transitions are labelled with
+	 * decision diagrams instead of individual letters.
+	 *
+	 * @param ltlFormula The LTL formula to construct the monitor from
+	 * @param listener   The listener to notify
+	 * @return the unique LTL monitor corresponding to the given LTL formula
+	 * @throws ParseException Throws this exception if the formula cannot be parsed
+	 */
+	public static SymbolicMonitor constructSymbolicLTLMonitor(String ltlFormula, ConstructionListener listener)
+			throws ParseException {
+		return constructSymbolicLTLMonitor(ltlFormula, ConstructionOptions.DEFAULT, listener);
+	}
+
+	/**
+	 * Constructs the unique LTL monitor given an LTL formula as a
+	 * {@link SymbolicMonitor} with the given options (of which only the portfolio
+	 * budget applies to symbolic monitors).
+	 *
+	 * @param ltlFormula The LTL formula to construct the monitor from
+	 * @param options    The options of the construction
+	 * @param listener   The listener to notify
+	 * @return the unique LTL monitor corresponding to the given LTL formula
+	 * @throws ParseException Throws this exception if the formula cannot be parsed
+	 */
+	public static SymbolicMonitor constructSymbolicLTLMonitor(String ltlFormula, ConstructionOptions options,
+			ConstructionListener listener) throws ParseException {
+
+		var parseTimer = StageTimer.start();
+		var parsedLTLFormula = parseLTLFormula(ltlFormula);
+		parseTimer.stop(listener, Stage.PARSE);
+
+		var session = ConstructionSession.forFormulas(parsedLTLFormula);
+		var translation = constructOwlAutomaton(session, parsedLTLFormula, 1, options, listener);
+		var timer = StageTimer.start();
+		var originalMonitor = SymbolicMonitors.fromOwl(translation.automaton, 1);
+		timer.stop(listener, Stage.LABELLING);
+		var complement = complementOwlAutomaton(translation.automaton, parsedLTLFormula.not(), 0, listener);
+		timer = StageTimer.start();
+		var negatedMonitor = SymbolicMonitors.fromOwl(complement, 0);
+		timer.stop(listener, Stage.LABELLING);
+		session.releaseFactories(translation.factories);
+
+		negatedMonitor = minimizeSymbolic(negatedMonitor, listener);
+		originalMonitor = minimizeSymbolic(originalMonitor, listener);
+
+		return combineSymbolic(List.of(negatedMonitor, originalMonitor), listener);
+
+	}
+
+	/**
+	 * Constructs the unique rLTL monitor given an rLTL formula as a
+	 * {@link SymbolicMonitor}, whose transitions are labelled with decision
+	 * diagrams instead of individual letters. Thus, the size of the monitor does
+	 * not grow exponentially in the number of atomic propositions a priori.
+	 *
+	 * @param rLTLFormula The rLTL formula to construct the monitor from
+	 * @param parallelism The maximal number of threads to use
+	 * @param listener    The listener to notify
+	 * @return the unique rLTL monitor corresponding to the given rLTL formula
+	 * @throws ParseException               Throws this exception if the formula
+	 *                                      cannot be parsed
+	 * @throws UnsupportedEncodingException Throws this exception if the formula is
+	 *                                      not an appropriate character encoding
+	 */
+	public static SymbolicMonitor constructSymbolicrLTLMonitor(String rLTLFormula, int parallelism,
+			ConstructionListener listener) throws ParseException, UnsupportedEncodingException {
+		return constructSymbolicrLTLMonitor(rLTLFormula, parallelism, ConstructionOptions.DEFAULT, listener);
+	}
+
+	/**
+	 * Constructs the unique rLTL monitor given an rLTL formula as a
+	 * {@link SymbolicMonitor} with the given options (of which only the portfolio
+	 * budget applies to symbolic monitors).
+	 *
+	 * @param rLTLFormula The rLTL formula to construct the monitor from
+	 * @param parallelism The maximal number of threads to use
+	 * @param options     The options of the construction
+	 * @param listener    The listener to notify
+	 * @return the unique rLTL monitor corresponding to the given rLTL formula
+	 * @throws ParseException               Throws this exception if the formula
+	 *                                      cannot be parsed
+	 * @throws UnsupportedEncodingException Throws this exception if the formula is
+	 *                                      not an appropriate character encoding
+	 */
+	public static SymbolicMonitor constructSymbolicrLTLMonitor(String rLTLFormula, int parallelism,
+			ConstructionOptions options, ConstructionListener listener)
+			throws ParseException, UnsupportedEncodingException {
+
+		var ltlFormulas = truthValueFormulas(rLTLFormula, listener);
+		var session = ConstructionSession.forFormulas(ltlFormulas);
+
+		var monitors = constructPerTruthValue(parallelism, new IntFunction<SymbolicMonitor>() {
+
+			@Override
+			public SymbolicMonitor apply(int truthValue) {
+				return constructSymbolicMonitor(session, ltlFormulas[truthValue], truthValue, options, listener);
+			}
+
+		});
+
+		return combineSymbolic(monitors, listener);
+
+	}
+
+	/**
+	 * Computes the minimized product of symbolic monitors.
+	 *
+	 * @param monitors The monitors
+	 * @param listener The listener to notify
+	 * @return the minimized product of all {@code monitors}
+	 */
+	private static SymbolicMonitor combineSymbolic(List<SymbolicMonitor> monitors, ConstructionListener listener) {
+
+		var timer = StageTimer.start();
+		var product = SymbolicMonitors.product(monitors);
+		timer.stop(listener, Stage.PRODUCT);
+
+		timer = StageTimer.start();
+		var minimized = SymbolicMonitors.minimize(product);
+		timer.stop(listener, Stage.MINIMIZATION);
+
+		return minimized;
+
+	}
+
+	/**
+	 * Constructs the minimized symbolic monitor of a single LTL formula, analogous
+	 * to {@link #constructMachine}. This method may be called concurrently.
+	 *
+	 * @param session    The session providing the Owl factories
+	 * @param ltlFormula The LTL formula
+	 * @param output     The output of states with non-empty language (i.e., the
+	 *                   truth value)
+	 * @param options    The options of the construction
+	 * @param listener   The listener to notify
+	 * @return the minimized symbolic monitor of the given formula
+	 */
+	static SymbolicMonitor constructSymbolicMonitor(ConstructionSession session, LabelledFormula ltlFormula,
+			int output, ConstructionOptions options, ConstructionListener listener) {
+
+		var translation = constructOwlAutomaton(session, ltlFormula, output, options, listener);
+
+		var timer = StageTimer.start();
+		var monitor = SymbolicMonitors.fromOwl(translation.automaton, output);
+		timer.stop(listener, Stage.LABELLING);
+		session.releaseFactories(translation.factories);
+
+		return minimizeSymbolic(monitor, listener);
+
+	}
+
+	/**
+	 * Minimizes the symbolic monitor of a single LTL formula.
+	 *
+	 * @param monitor  The symbolic monitor
+	 * @param listener The listener to notify
+	 * @return the minimized symbolic monitor
+	 */
+	private static SymbolicMonitor minimizeSymbolic(SymbolicMonitor monitor, ConstructionListener listener) {
+
+		var timer = StageTimer.start();
+		var minimized = SymbolicMonitors.minimize(monitor);
+		timer.stop(listener, Stage.MINIMIZATION);
+
+		return minimized;
 
 	}
 
@@ -0,0 +1,247 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jhoafparser.consumer.HOAConsumerPrint;
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
+import net.automatalib.words.Alphabet;
+import owl.automaton.Automaton;
+import owl.automaton.output.HoaPrinter;
+
+/**
+ * Writers that stream textual representations of automata to an
+ * {@link Appendable} (e.g., a {@link Writer} obtained from
+ * {@link java.nio.channels.Channels#newWriter}) instead of building them in
+ * memory.
+ * <p>
+ * The Dot writer for Moore machines merges all transitions between a pair of
+ * states into one edge, which is labelled with a guard in disjunctive normal
+ * form (one disjunct per path of the reduced decision tree of the transition
+ * function of the source state, as for
+ * {@link de.mpi_sws.rltlmonitor.symbolic.SymbolicMonitor#writeDot}). At any time,
+ * only the transitions of one state are held in memory.
+ */
+public class MonitorWriters {
+
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private MonitorWriters() {
+	}
+
+	/**
+	 * Writes a Moore machine over the power-set alphabet (as constructed by
+	 * {@link Owl2Automatalib}) in the Graphviz Dot format.
+	 *
+	 * @param machine          The Moore machine
+	 * @param propositionNames The names of the atomic propositions (propositions
+	 *                         without a name are printed as {@code p<i>})
+	 * @param out              The destination
+	 * @throws IOException If writing fails
+	 */
+	public static void writeDot(CompactMoore<BitSet, BitSet> machine, List<String> propositionNames, Appendable out)
+			throws IOException {
+
+		//
+		// Map letters to their bit masks
+		//
+		Alphabet<BitSet> alphabet = machine.getInputAlphabet();
+		int alphabetSize = alphabet.size();
+		if (Integer.bitCount(alphabetSize) != 1) {
+			throw new IllegalArgumentException("Input alphabet is not a power set");
+		}
+		int numPropositions = Integer.numberOfTrailingZeros(alphabetSize);
+		int[] masks = new int[alphabetSize];
+		for (int i = 0; i < alphabetSize; ++i) {
+			var letter = alphabet.getSymbol(i);
+			if (letter.length() > numPropositions) {
+				throw new IllegalArgumentException("Input alphabet is not a power set");
+			}
+			masks[i] = letter.isEmpty() ? 0 : (int) letter.toLongArray()[0];
+		}
+
+		//
+		// Header
+		//
+		out.append("digraph Moore {").append(System.lineSeparator());
+
+		//
+		// States
+		//
+		for (int state = 0; state < machine.size(); ++state) {
+			out.append("  ").append(String.valueOf(state)).append(" [label=\"").append(String.valueOf(state))
+					.append("; ").append(String.valueOf(machine.getStateOutput(state))).append("\"];")
+					.append(System.lineSeparator());
+		}
+
+		//
+		// Initial state
+		//
+		int initialState = machine.getIntInitialState();
+		if (initialState >= 0) {
+			out.append("  ").append("initial").append(String.valueOf(initialState))
+					.append(" [shape=plaintext,label=\"\"];").append(System.lineSeparator());
+			out.append("  ").append("initial").append(String.valueOf(initialState)).append(" -> ")
+					.append(String.valueOf(initialState)).append(";").append(System.lineSeparator());
+		}
+
+		//
+		// Transitions (one edge per pair of states)
+		//
+		int[] successors = new int[alphabetSize];
+		for (int state = 0; state < machine.size(); ++state) {
+
+			for (int i = 0; i < alphabetSize; ++i) {
+				successors[masks[i]] = machine.getSuccessor(state, i);
+			}
+
+			Map<Integer, List<String>> guards = new LinkedHashMap<>();
+			collectGuards(successors, 0, numPropositions, new ArrayList<>(), propositionNames, guards);
+
+			for (var entry : guards.entrySet()) {
+				if (entry.getKey() < 0) {
+					// Missing transitions
+					continue;
+				}
+				out.append("  ").append(String.valueOf(state)).append(" -> ").append(String.valueOf(entry.getKey()))
+						.append(" [label=\"").append(String.join(" | ", entry.getValue())).append("\"];")
+						.append(System.lineSeparator());
+			}
+
+		}
+
+		//
+		// Footer
+		//
+		out.append("};");
+
+	}
+
+	/**
+	 * Collects the paths of the reduced decision tree of a transition function as
+	 * conjunctions of literals, grouped by the successor they lead to. The tree
+	 * tests the propositions in increasing order, skipping tests whose branches
+	 * coincide.
+	 *
+	 * @param successors       The successor of each letter (indexed by bit mask)
+	 * @param from             The first letter of the subtree
+	 * @param numPropositions  The number of propositions not tested yet (the
+	 *                         subtree covers {@code 2^numPropositions} letters)
+	 * @param literals         The literals of the path leading to the subtree
+	 * @param propositionNames The names of the atomic propositions
+	 * @param guards           The conjunctions found so far, grouped by successor
+	 */
+	private static void collectGuards(int[] successors, int from, int numPropositions, List<String> literals,
+			List<String> propositionNames, Map<Integer, List<String>> guards) {
+
+		//
+		// The letters of a subtree agree on the propositions tested on the path, i.e.,
+		// they are every (2^tested)-th letter starting at the first letter
+		//
+		int stride = successors.length >> numPropositions;
+		int length = 1 << numPropositions;
+		int successor = successors[from];
+		boolean constant = true;
+		for (int i = 1; i < length && constant; ++i) {
+			constant = successors[from + i * stride] == successor;
+		}
+		if (constant) {
+			guards.computeIfAbsent(successor, k -> new ArrayList<>())
+					.add(literals.isEmpty() ? "true" : String.join(" & ", literals));
+			return;
+		}
+
+		int proposition = Integer.numberOfTrailingZeros(stride);
+		int high = from + stride;
+		if (sameBranches(successors, from, high, stride << 1, length >> 1)) {
+			collectGuards(successors, from, numPropositions - 1, literals, propositionNames, guards);
+			return;
+		}
+
+		String name = proposition < propositionNames.size() ? propositionNames.get(proposition) : "p" + proposition;
+
+		literals.add(name);
+		collectGuards(successors, high, numPropositions - 1, literals, propositionNames, guards);
+		literals.set(literals.size() - 1, "!" + name);
+		collectGuards(successors, from, numPropositions - 1, literals, propositionNames, guards);
+		literals.remove(literals.size() - 1);
+
+	}
+
+	/**
+	 * Checks whether two branches of a decision tree lead to the same successors.
+	 *
+	 * @param successors The successor of each letter (indexed by bit mask)
+	 * @param low        The first letter of the first branch
+	 * @param high       The first letter of the second branch
+	 * @param stride     The distance between two letters of a branch
+	 * @param length     The number of letters of a branch
+	 * @return whether both branches map corresponding letters to the same
+	 *         successors
+	 */
+	private static boolean sameBranches(int[] successors, int low, int high, int stride, int length) {
+		for (int i = 0; i < length; ++i) {
+			if (successors[low + i * stride] != successors[high + i * stride]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes an Owl automaton in the HOA format. In contrast to
+	 * {@link HoaPrinter#toString(Automaton)}, the document is not built in memory,
+	 * and states are not annotated with their (often lengthy) descriptions.
+	 *
+	 * @param automaton The automaton
+	 * @param out       The destination
+	 * @throws IOException If writing fails
+	 */
+	public static void writeHoa(Automaton<?, ?> automaton, Appendable out) throws IOException {
+
+		// The HOA printer logs and swallows exceptions of the writer, so the first
+		// exception is recorded and rethrown afterwards
+		IOException[] failure = new IOException[1];
+		Writer writer = new Writer() {
+
+			@Override
+			public void write(char[] buffer, int offset, int length) throws IOException {
+				try {
+					out.append(CharBuffer.wrap(buffer, offset, length));
+				} catch (IOException e) {
+					if (failure[0] == null) {
+						failure[0] = e;
+					}
+					throw e;
+				}
+			}
+
+			@Override
+			public void flush() throws IOException {
+				if (out instanceof Flushable) {
+					((Flushable) out).flush();
+				}
+			}
+
+			@Override
+			public void close() {
+			}
+
+		};
+
+		HoaPrinter.feedTo(automaton, new HOAConsumerPrint(writer));
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+
+	}
+
+}
@@ -0,0 +1,130 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntFunction;
+
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
+import net.automatalib.util.partitionrefinement.Block;
+import net.automatalib.util.partitionrefinement.PaigeTarjan;
+import net.automatalib.util.partitionrefinement.PaigeTarjanInitializers;
+
+/**
+ * Minimization of Moore machines by partition refinement.
+ * <p>
+ * In contrast to {@link net.automatalib.util.automata.Automata#invasiveMinimize},
+ * which builds a graph of state and edge objects and rebuilds the given machine
+ * in place, the minimization is performed on the integer arrays of
+ * {@link PaigeTarjan}. The initial partition groups the states by their output,
+ * and the minimized machine is returned as a new {@link CompactMoore}, whose
+ * transitions are stored in a single array as well.
+ * <p>
+ * Only states reachable from the initial state are considered. Missing
+ * transitions (Owl omits transitions into rejecting sinks) are treated as
+ * transitions into a sink with a given output, which is merged with equivalent
+ * states; hence, the minimized machine is complete.
+ */
+public class MooreMinimization {
+
+	/**
+	 * Minimizes a Moore machine whose outputs are sets of truth values. Missing
+	 * transitions lead to a sink whose output is the empty set.
+	 *
+	 * @param <I>     The type of the inputs
+	 * @param machine The Moore machine to minimize (must have an initial state)
+	 * @return the minimal complete Moore machine equivalent to {@code machine}
+	 */
+	public static <I> CompactMoore<I, BitSet> minimize(CompactMoore<I, BitSet> machine) {
+		return minimize(machine, new BitSet());
+	}
+
+	/**
+	 * Minimizes a Moore machine. The states of the minimized machine are numbered
+	 * in breadth-first order starting with the initial state (which has id 0), so
+	 * that equivalent machines are minimized to identical machines.
+	 *
+	 * @param <I>        The type of the inputs
+	 * @param <O>        The type of the outputs
+	 * @param machine    The Moore machine to minimize (must have an initial state)
+	 * @param sinkOutput The output of the sink that missing transitions lead to
+	 * @return the minimal complete Moore machine equivalent to {@code machine}
+	 */
+	public static <I, O> CompactMoore<I, O> minimize(CompactMoore<I, O> machine, O sinkOutput) {
+
+		int initialState = machine.getIntInitialState();
+		if (initialState < 0) {
+			throw new IllegalArgumentException("Moore machine has no initial state");
+		}
+		int numStates = machine.size();
+		int numInputs = machine.numInputs();
+
+		//
+		// Compute coarsest stable partition, starting from the partition by output
+		// (the sink has id numStates)
+		//
+		PaigeTarjan pt = new PaigeTarjan();
+		PaigeTarjanInitializers.initDeterministic(pt, machine, new IntFunction<O>() {
+
+			@Override
+			public O apply(int state) {
+				return machine.getStateProperty(state);
+			}
+
+		}, sinkOutput);
+		pt.initWorklist(false);
+		pt.computeCoarsestStablePartition();
+
+		//
+		// Number blocks in breadth-first order (-1 if not numbered yet)
+		//
+		int numBlocks = pt.getNumBlocks();
+		int[] blockIds = new int[numBlocks];
+		Arrays.fill(blockIds, -1);
+		Block[] blocks = new Block[numBlocks];
+
+		Block initialBlock = pt.getBlockForState(initialState);
+		blockIds[initialBlock.id] = 0;
+		blocks[0] = initialBlock;
+		int count = 1;
+
+		int[] successors = new int[numBlocks * numInputs];
+		for (int current = 0; current < count; ++current) {
+
+			int representative = pt.getRepresentative(blocks[current]);
+			for (int input = 0; input < numInputs; ++input) {
+
+				int successor = representative == numStates ? numStates
+						: machine.getSuccessor(representative, input);
+				Block block = pt.getBlockForState(successor < 0 ? numStates : successor);
+
+				if (blockIds[block.id] < 0) {
+					blockIds[block.id] = count;
+					blocks[count++] = block;
+				}
+				successors[current * numInputs + input] = blockIds[block.id];
+
+			}
+
+		}
+
+		//
+		// Create minimized machine
+		//
+		CompactMoore<I, O> result = new CompactMoore<>(machine.getInputAlphabet(), count, 1.5f);
+		for (int block = 0; block < count; ++block) {
+			int representative = pt.getRepresentative(blocks[block]);
+			result.addIntState(representative == numStates ? sinkOutput : machine.getStateProperty(representative));
+		}
+		result.setInitialState(0);
+
+		for (int block = 0; block < count; ++block) {
+			for (int input = 0; input < numInputs; ++input) {
+				result.setTransition(block, input, successors[block * numInputs + input]);
+			}
+		}
+
+		return result;
+
+	}
+
+}
@@ -0,0 +1,278 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import owl.automaton.Automaton;
+import owl.automaton.acceptance.ParityAcceptance;
+import owl.automaton.edge.Edge;
+import owl.automaton.edge.Edges;
+
+/**
+ * Decides whether the language from a state of a deterministic parity
+ * automaton is non-empty, exploring only as much of the automaton as
+ * necessary. This is meant for automata that Owl constructs on the fly (see
+ * {@link TranslationPortfolio#translateOnTheFly}), whose edges are computed
+ * when they are requested.
+ * <p>
+ * The results are memoized for the most recently decided states. Instances of
+ * this class are not thread-safe.
+ */
+final class OnTheFlyEmptiness {
+
+	/**
+	 * A state of the depth-first search whose successors are being explored.
+	 */
+	private static final class Frame {
+
+		final Object state;
+
+		/**
+		 * The edge leading to this state from the previous frame ({@code null} for
+		 * the first frame).
+		 */
+		final Edge<Object> entry;
+
+		/**
+		 * The position of this frame on the call stack.
+		 */
+		final int depth;
+
+		/**
+		 * The edges of the state computed so far.
+		 */
+		final Set<Edge<Object>> edges = new HashSet<>();
+
+		/**
+		 * The next valuation to compute the edge of.
+		 */
+		int valuation = 0;
+
+		int lowlink;
+
+		Frame(Object state, Edge<Object> entry, int depth, int index) {
+			this.state = state;
+			this.entry = entry;
+			this.depth = depth;
+			this.lowlink = index;
+		}
+
+	}
+
+	private final Automaton<Object, ParityAcceptance> automaton;
+
+	/**
+	 * Number of valuations of the automaton.
+	 */
+	private final int numValuations;
+
+	/**
+	 * Whether the language from a state is non-empty (for the most recently
+	 * decided states).
+	 */
+	private final Map<Object, Boolean> nonEmpty;
+
+	/**
+	 * Creates a new emptiness check for an automaton.
+	 *
+	 * @param automaton The parity automaton (usually constructed on the fly)
+	 * @param capacity  The maximal number of states whose emptiness is memoized
+	 */
+	OnTheFlyEmptiness(Automaton<Object, ParityAcceptance> automaton, int capacity) {
+		this.automaton = automaton;
+		this.numValuations = 1 << automaton.factory().alphabetSize();
+		this.nonEmpty = new LinkedHashMap<>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Boolean> eldest) {
+				return size() > capacity;
+			}
+
+		};
+	}
+
+	/**
+	 * Checks whether the language from a state is non-empty.
+	 * <p>
+	 * The SCCs reachable from the state are computed with Tarjan's algorithm,
+	 * which completes every SCC after all SCCs reachable from it. The first
+	 * completed SCC containing an accepting cycle (or the first state known to
+	 * have a non-empty language) ends the search, since all states on the current
+	 * path reach it. Until then, every completed SCC has an empty language.
+	 * <p>
+	 * Owl computes the edge of a state for one valuation at a time, and an SCC is
+	 * only complete once all edges of its states are known. Therefore, the search
+	 * follows each new edge right away and also ends as soon as an edge closes an
+	 * accepting cycle with the current path, which usually happens long before
+	 * the first SCC is complete.
+	 *
+	 * @param root The state
+	 * @return whether the language from {@code root} is non-empty
+	 */
+	boolean isNonEmpty(Object root) {
+
+		Boolean known = nonEmpty.get(root);
+		if (known != null) {
+			return known;
+		}
+
+		// The states decided by this search
+		Map<Object, Boolean> results = new HashMap<>();
+		Map<Object, Integer> indices = new HashMap<>();
+		Map<Object, Set<Edge<Object>>> edges = new HashMap<>();
+		Map<Object, Frame> active = new HashMap<>();
+		Deque<Object> sccStack = new ArrayDeque<>();
+		List<Frame> callStack = new ArrayList<>();
+		push(new Frame(root, null, 0, 0), indices, edges, active, sccStack, callStack);
+
+		while (!callStack.isEmpty()) {
+
+			var frame = callStack.get(callStack.size() - 1);
+
+			if (frame.valuation < numValuations) {
+
+				Edge<Object> edge = automaton.edge(frame.state, BitSet.valueOf(new long[] { frame.valuation }));
+				frame.valuation += 1;
+				if (edge == null || !frame.edges.add(edge)) {
+					continue;
+				}
+
+				Object successor = edge.successor();
+				if (results.containsKey(successor)) {
+					continue;
+				}
+				Frame target = active.get(successor);
+				if (target != null && closesAcceptingCycle(callStack, target, edge)) {
+					return accept(callStack, results);
+				}
+				Integer index = indices.get(successor);
+				if (index != null) {
+					// The successor is still on the SCC stack
+					frame.lowlink = Math.min(frame.lowlink, index);
+					continue;
+				}
+				known = nonEmpty.get(successor);
+				if (known == null) {
+					push(new Frame(successor, edge, callStack.size(), indices.size()), indices, edges, active,
+							sccStack, callStack);
+				} else if (known) {
+					return accept(callStack, results);
+				} else {
+					results.put(successor, false);
+				}
+
+			} else {
+
+				callStack.remove(callStack.size() - 1);
+				active.remove(frame.state);
+				if (frame.lowlink == indices.get(frame.state)) {
+
+					Set<Object> scc = new HashSet<>();
+					Object state;
+					do {
+						state = sccStack.pop();
+						scc.add(state);
+					} while (state != frame.state);
+
+					boolean trivial = scc.size() == 1 && !Edges.successors(edges.get(state)).contains(state);
+					boolean accepting = !trivial
+							&& Owl2Automatalib.hasAcceptingCycle(edges::get, automaton.acceptance(), scc, -1);
+					for (Object member : scc) {
+						results.put(member, accepting);
+					}
+					if (accepting) {
+						return accept(callStack, results);
+					}
+
+				}
+				if (!callStack.isEmpty()) {
+					var parent = callStack.get(callStack.size() - 1);
+					parent.lowlink = Math.min(parent.lowlink, frame.lowlink);
+				}
+
+			}
+
+		}
+
+		nonEmpty.putAll(results);
+		return false;
+
+	}
+
+	/**
+	 * Pushes a new state on the stacks of the search.
+	 *
+	 * @param frame     The frame of the state
+	 * @param indices   The depth-first search index of each state
+	 * @param edges     The edges of each state
+	 * @param active    The frame of each state on the call stack
+	 * @param sccStack  The states whose SCC is not complete
+	 * @param callStack The current path
+	 */
+	private static void push(Frame frame, Map<Object, Integer> indices, Map<Object, Set<Edge<Object>>> edges,
+			Map<Object, Frame> active, Deque<Object> sccStack, List<Frame> callStack) {
+		indices.put(frame.state, frame.lowlink);
+		edges.put(frame.state, frame.edges);
+		active.put(frame.state, frame);
+		sccStack.push(frame.state);
+		callStack.add(frame);
+	}
+
+	/**
+	 * Checks whether an edge from the last state of the current path back to a
+	 * state on the path closes an accepting cycle.
+	 *
+	 * @param callStack The current path
+	 * @param target    The frame of the successor of {@code edge}
+	 * @param edge      The edge
+	 * @return whether the cycle formed by {@code edge} and the path from
+	 *         {@code target} is accepting
+	 */
+	private boolean closesAcceptingCycle(List<Frame> callStack, Frame target, Edge<Object> edge) {
+
+		var acceptance = automaton.acceptance();
+		boolean max = acceptance.parity().max();
+
+		int dominant = edge.hasAcceptanceSets() ? edge.smallestAcceptanceSet() : -1;
+		for (int i = target.depth + 1; i < callStack.size(); ++i) {
+			var entry = callStack.get(i).entry;
+			if (!entry.hasAcceptanceSets()) {
+				continue;
+			}
+			int colour = entry.smallestAcceptanceSet();
+			if (dominant < 0 || (max ? colour > dominant : colour < dominant)) {
+				dominant = colour;
+			}
+		}
+
+		return dominant < 0 ? acceptance.emptyIsAccepting() : acceptance.isAccepting(dominant);
+
+	}
+
+	/**
+	 * Ends a search that found a state with non-empty language: all states on
+	 * the current path reach this state.
+	 *
+	 * @param callStack The current path
+	 * @param results   The states decided by the search
+	 * @return {@code true}
+	 */
+	private boolean accept(List<Frame> callStack, Map<Object, Boolean> results) {
+		for (var frame : callStack) {
+			results.put(frame.state, true);
+		}
+		nonEmpty.putAll(results);
+		return true;
+	}
+
+}
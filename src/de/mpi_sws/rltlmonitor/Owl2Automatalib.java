@@ -1,85 +1,385 @@
 package de.mpi_sws.rltlmonitor;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
+import de.mpi_sws.rltlmonitor.util.IntTupleInterner;
+import de.mpi_sws.rltlmonitor.util.LongIntHashMap;
 import de.tum.in.naturals.bitset.BitSets;
-import net.automatalib.automata.transducers.impl.FastMoore;
-import net.automatalib.automata.transducers.impl.FastMooreState;
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
 import net.automatalib.words.Alphabet;
 import net.automatalib.words.impl.Alphabets;
 import owl.automaton.Automaton;
+import owl.automaton.SuccessorFunction;
 import owl.automaton.Views;
+import owl.automaton.acceptance.ParityAcceptance;
 import owl.automaton.algorithms.LanguageEmptiness;
+import owl.automaton.algorithms.SccDecomposition;
+import owl.automaton.edge.Edge;
 
 public class Owl2Automatalib {
 
 	/**
 	 * Computes the product of two Moore machines in a naive way (i.e., constructs
 	 * all pairs of states, even such that are unreachable). To combine the output
-	 * of two states, the logical OR defined by the BitSet class is used.
+	 * of two states, the logical OR defined by the BitSet class is used. Input
+	 * alphabets of different size are handled as in
+	 * {@link #product(CompactMoore, CompactMoore, boolean)}.
 	 * 
 	 * @param first  The first Moore machine
 	 * @param second The second moore machine
 	 * @return The product of {@code first} and {@code second}
 	 */
-	public static FastMoore<BitSet, BitSet> naiveProduct(FastMoore<BitSet, BitSet> first,
-			FastMoore<BitSet, BitSet> second) {
+	public static CompactMoore<BitSet, BitSet> naiveProduct(CompactMoore<BitSet, BitSet> first,
+			CompactMoore<BitSet, BitSet> second) {
 
-		assert (first.getInputAlphabet().equals(second.getInputAlphabet()));
+		//
+		// Create Moore machine over the larger alphabet
+		//
+		Alphabet<BitSet> alphabet = first.getInputAlphabet().size() >= second.getInputAlphabet().size()
+				? first.getInputAlphabet()
+				: second.getInputAlphabet();
+		CompactMoore<BitSet, BitSet> result = new CompactMoore<>(alphabet);
+		int[] firstInputs = projectAlphabet(alphabet, first.getInputAlphabet());
+		int[] secondInputs = projectAlphabet(alphabet, second.getInputAlphabet());
 
 		//
-		// Create Moore machine
+		// Create states (the pair (s1, s2) has the id s1 * |second| + s2)
 		//
-		FastMoore<BitSet, BitSet> result = new FastMoore<>(first.getInputAlphabet());
+		int size2 = second.size();
+		for (int state1 = 0; state1 < first.size(); ++state1) {
+			for (int state2 = 0; state2 < size2; ++state2) {
+				BitSet output = (BitSet) first.getStateProperty(state1).clone();
+				output.or(second.getStateProperty(state2));
+				result.addIntState(output);
+			}
+		}
 
 		//
-		// Create states
+		// Initial state
+		//
+		result.setInitialState(first.getIntInitialState() * size2 + second.getIntInitialState());
+
+		//
+		// Transitions
+		//
+		for (int state1 = 0; state1 < first.size(); ++state1) {
+			for (int state2 = 0; state2 < size2; ++state2) {
+				for (int input = 0; input < firstInputs.length; ++input) {
+
+					int successor1 = first.getSuccessor(state1, firstInputs[input]);
+					int successor2 = second.getSuccessor(state2, secondInputs[input]);
+
+					if (successor1 >= 0 && successor2 >= 0) {
+						result.setTransition(state1 * size2 + state2, input, successor1 * size2 + successor2);
+					}
+
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Computes the product of two Moore machines, constructing only those pairs of
+	 * states that are reachable from the pair of initial states. To combine the
+	 * output of two states, the logical OR defined by the BitSet class is used.
+	 * <p>
+	 * Missing transitions (Owl omits transitions into rejecting sinks) are treated
+	 * as transitions into a sink whose output is the empty set. Hence, the product
+	 * is complete even if {@code first} or {@code second} is not.
+	 * <p>
+	 * Pairs of states are identified by packing the ids of both components into a
+	 * single {@code long}, which is looked up in a primitive hash map. The input
+	 * alphabets of both machines must be power sets of the atomic propositions
+	 * (numbered consistently); if one alphabet is smaller than the other, the
+	 * corresponding machine does not depend on the remaining propositions and the
+	 * product uses the larger alphabet.
+	 * 
+	 * @param first    The first Moore machine
+	 * @param second   The second Moore machine
+	 * @param minimize Whether to minimize the product (see
+	 *                 {@link MooreMinimization}) once all reachable pairs have
+	 *                 been explored
+	 * @return The (reachable part of the) product of {@code first} and
+	 *         {@code second}
+	 */
+	public static CompactMoore<BitSet, BitSet> product(CompactMoore<BitSet, BitSet> first,
+			CompactMoore<BitSet, BitSet> second, boolean minimize) {
+
+		//
+		// Create Moore machine over the larger alphabet
+		//
+		Alphabet<BitSet> alphabet = first.getInputAlphabet().size() >= second.getInputAlphabet().size()
+				? first.getInputAlphabet()
+				: second.getInputAlphabet();
+		CompactMoore<BitSet, BitSet> result = new CompactMoore<>(alphabet);
+
+		//
+		// Map each letter of the product to the corresponding letter of the components
+		//
+		int[] firstInputs = projectAlphabet(alphabet, first.getInputAlphabet());
+		int[] secondInputs = projectAlphabet(alphabet, second.getInputAlphabet());
+
+		//
+		// Initial state (ids of components are stored by product state id; -1 denotes
+		// the sink)
+		//
+		int[] firstIds = new int[16];
+		int[] secondIds = new int[16];
+		LongIntHashMap stateMap = new LongIntHashMap();
+
+		firstIds[0] = first.getIntInitialState();
+		secondIds[0] = second.getIntInitialState();
+		stateMap.put(pack(firstIds[0], secondIds[0]), 0);
+		result.setInitialState(result.addIntState(combineOutputs(first, firstIds[0], second, secondIds[0])));
+
+		//
+		// Explore reachable pairs (states are processed in the order of their ids)
+		//
+		for (int current = 0; current < result.size(); ++current) {
+
+			int state1 = firstIds[current];
+			int state2 = secondIds[current];
+
+			for (int input = 0; input < firstInputs.length; ++input) {
+
+				int id1 = state1 < 0 ? -1 : first.getSuccessor(state1, firstInputs[input]);
+				int id2 = state2 < 0 ? -1 : second.getSuccessor(state2, secondInputs[input]);
+
+				long key = pack(id1, id2);
+				int successorId = stateMap.getOrDefault(key, -1);
+				if (successorId < 0) {
+
+					successorId = result.size();
+					if (successorId == firstIds.length) {
+						firstIds = Arrays.copyOf(firstIds, successorId << 1);
+						secondIds = Arrays.copyOf(secondIds, successorId << 1);
+					}
+					firstIds[successorId] = id1;
+					secondIds[successorId] = id2;
+					stateMap.put(key, successorId);
+					result.addIntState(combineOutputs(first, id1, second, id2));
+
+				}
+
+				result.setTransition(current, input, successorId);
+
+			}
+
+		}
+
 		//
-		HashMap<FastMooreState<BitSet>, HashMap<FastMooreState<BitSet>, FastMooreState<BitSet>>> stateMap = new HashMap<>();
-		for (var state1 : first.getStates()) {
+		// Minimize
+		//
+		return minimize ? MooreMinimization.minimize(result) : result;
+
+	}
+
+	/**
+	 * Computes the synchronous product of several Moore machines at once,
+	 * constructing only those tuples of states that are reachable from the tuple
+	 * of initial states. The output of a tuple is the logical OR of the outputs of
+	 * its components. Missing transitions are treated as in
+	 * {@link #product(CompactMoore, CompactMoore, boolean)}.
+	 * <p>
+	 * In contrast to folding the machines pairwise, no intermediate products are
+	 * built. Tuples of states are interned in an {@link IntTupleInterner}, whose
+	 * ids coincide with the ids of the states of the product. The product is not
+	 * minimized.
+	 * 
+	 * @param machines The Moore machines (at least one)
+	 * @return The (reachable part of the) product of all {@code machines}
+	 */
+	public static CompactMoore<BitSet, BitSet> product(List<CompactMoore<BitSet, BitSet>> machines) {
 
-			HashMap<FastMooreState<BitSet>, FastMooreState<BitSet>> tmpMap = new HashMap<>();
-			stateMap.put(state1, tmpMap);
+		if (machines.isEmpty()) {
+			throw new IllegalArgumentException("No Moore machines given");
+		}
+		int arity = machines.size();
 
-			for (var state2 : second.getStates()) {
-				BitSet output = (BitSet) state1.getOutput().clone();
-				output.or(state2.getOutput());
-				tmpMap.put(state2, result.addState(output));
+		//
+		// Create Moore machine over the largest alphabet
+		//
+		Alphabet<BitSet> alphabet = machines.get(0).getInputAlphabet();
+		for (var machine : machines) {
+			if (machine.getInputAlphabet().size() > alphabet.size()) {
+				alphabet = machine.getInputAlphabet();
 			}
+		}
+		int numInputs = alphabet.size();
+		CompactMoore<BitSet, BitSet> result = new CompactMoore<>(alphabet);
+
+		//
+		// Flatten the components into successor and output tables (-1 denotes the sink)
+		//
+		int[][] successors = new int[arity][];
+		BitSet[][] outputs = new BitSet[arity][];
+		int[] initialTuple = new int[arity];
+		for (int k = 0; k < arity; ++k) {
+
+			var machine = machines.get(k);
+			int[] projection = projectAlphabet(alphabet, machine.getInputAlphabet());
+			successors[k] = new int[machine.size() * numInputs];
+			outputs[k] = new BitSet[machine.size()];
+
+			for (int state = 0; state < machine.size(); ++state) {
+				int offset = state * numInputs;
+				outputs[k][state] = machine.getStateProperty(state);
+				for (int input = 0; input < numInputs; ++input) {
+					successors[k][offset + input] = machine.getSuccessor(state, projection[input]);
+				}
+			}
+
+			initialTuple[k] = machine.getIntInitialState();
 
 		}
 
 		//
 		// Initial state
 		//
-		var combinedInitialState = stateMap.get(first.getInitialState()).get(second.getInitialState());
-		result.setInitialState(combinedInitialState);
+		IntTupleInterner tuples = new IntTupleInterner(arity, 64);
+		tuples.intern(initialTuple);
+		result.setInitialState(result.addIntState(combineOutputs(outputs, initialTuple)));
 
 		//
-		// Transitions
+		// Explore reachable tuples (states are processed in the order of their ids)
 		//
-		for (var state1 : first.getStates()) {
-			for (var state2 : second.getStates()) {
-				for (var input : first.getInputAlphabet()) {
+		int[] tuple = new int[arity];
+		int[] successorTuple = new int[arity];
+		for (int current = 0; current < result.size(); ++current) {
 
-					var successor1 = first.getSuccessor(state1, input);
-					var successor2 = second.getSuccessor(state2, input);
+			tuples.copyTo(current, tuple);
 
-					if (successor1 != null && successor2 != null) {
-						result.addTransition(stateMap.get(state1).get(state2), input,
-								stateMap.get(successor1).get(successor2));
-					}
+			for (int input = 0; input < numInputs; ++input) {
+
+				for (int k = 0; k < arity; ++k) {
+					successorTuple[k] = tuple[k] < 0 ? -1 : successors[k][tuple[k] * numInputs + input];
+				}
 
+				int successorId = tuples.intern(successorTuple);
+				if (successorId == result.size()) {
+					result.addIntState(combineOutputs(outputs, successorTuple));
 				}
+
+				result.setTransition(current, input, successorId);
+
 			}
+
 		}
 
 		return result;
+
+	}
+
+	/**
+	 * Combines the outputs of a tuple of states using the logical OR. The sink
+	 * (i.e., the id -1) has the empty set as output.
+	 * 
+	 * @param outputs The outputs of the states of each component
+	 * @param tuple   The ids of the states
+	 * @return the combined output
+	 */
+	private static BitSet combineOutputs(BitSet[][] outputs, int[] tuple) {
+		BitSet output = new BitSet();
+		for (int k = 0; k < tuple.length; ++k) {
+			if (tuple[k] >= 0) {
+				output.or(outputs[k][tuple[k]]);
+			}
+		}
+		return output;
+	}
+
+	/**
+	 * Maps each letter of a power-set alphabet to the index of its restriction to
+	 * the atomic propositions of a (possibly smaller) power-set alphabet.
+	 * 
+	 * @param alphabet    The alphabet whose letters are mapped
+	 * @param subAlphabet The alphabet to whose letters are mapped
+	 * @return an array containing for each index of {@code alphabet} the index of
+	 *         the corresponding letter of {@code subAlphabet}
+	 */
+	static int[] projectAlphabet(Alphabet<BitSet> alphabet, Alphabet<BitSet> subAlphabet) {
+
+		int size = subAlphabet.size();
+		if (Integer.bitCount(size) != 1 || size > alphabet.size()) {
+			throw new IllegalArgumentException("Incompatible input alphabets");
+		}
+
+		// Index of each letter of the sub-alphabet by its bit mask
+		int[] byMask = new int[size];
+		for (int i = 0; i < size; ++i) {
+			int mask = mask(subAlphabet.getSymbol(i));
+			if (mask >= size) {
+				throw new IllegalArgumentException("Input alphabet is not a power set");
+			}
+			byMask[mask] = i;
+		}
+
+		// Restrict letters of the alphabet
+		int[] projection = new int[alphabet.size()];
+		for (int i = 0; i < projection.length; ++i) {
+			projection[i] = byMask[mask(alphabet.getSymbol(i)) & (size - 1)];
+		}
+
+		return projection;
+
+	}
+
+	/**
+	 * Returns the bit mask of a letter of a power-set alphabet.
+	 * 
+	 * @param bits The letter
+	 * @return the bit mask of {@code bits}
+	 */
+	private static int mask(BitSet bits) {
+		return bits.length() > 31 ? Integer.MAX_VALUE : (int) (bits.isEmpty() ? 0 : bits.toLongArray()[0]);
+	}
+
+	/**
+	 * Packs the ids of two states into a single {@code long}. Ids may be -1.
+	 * 
+	 * @param id1 The first id
+	 * @param id2 The second id
+	 * @return the packed ids
+	 */
+	private static long pack(int id1, int id2) {
+		return ((long) (id1 + 1) << 32) | ((id2 + 1) & 0xffffffffL);
+	}
+
+	/**
+	 * Combines the outputs of two states using the logical OR. The sink (i.e., the
+	 * id -1) has the empty set as output.
+	 * 
+	 * @param first  The first Moore machine
+	 * @param state1 The id of the state of the first machine
+	 * @param second The second Moore machine
+	 * @param state2 The id of the state of the second machine
+	 * @return the combined output
+	 */
+	private static BitSet combineOutputs(CompactMoore<BitSet, BitSet> first, int state1,
+			CompactMoore<BitSet, BitSet> second, int state2) {
+		BitSet output = new BitSet();
+		if (state1 >= 0) {
+			output.or(first.getStateProperty(state1));
+		}
+		if (state2 >= 0) {
+			output.or(second.getStateProperty(state2));
+		}
+		return output;
 	}
 
 	/**
@@ -92,44 +392,51 @@ public class Owl2Automatalib {
 	 * non-empty, the output of the Moore machine is a singleton set containing the
 	 * argument {@code output}; otherwise, the output is the empty set.
 	 * <p>
-	 * The Owl automaton must be deterministic (in particular, it must have a unique
-	 * initial state).
+	 * The Owl automaton must be deterministic (in particular, it must have at most
+	 * one initial state). An automaton without initial state (i.e., with an empty
+	 * language) results in a single sink whose output is the empty set.
 	 * 
 	 * @param owlAutomaton The Owl ω-automaton
 	 * @param output       The output to set if the language from a state is
 	 *                     non-empty
 	 * @return The Moore machine as described in the paper
 	 */
-	public static FastMoore<BitSet, BitSet> toAutomatalib(Automaton<Object, ?> owlAutomaton, int output) {
+	public static CompactMoore<BitSet, BitSet> toAutomatalib(Automaton<Object, ?> owlAutomaton, int output) {
 
-		assert (owlAutomaton.initialStates().size() == 1);
+		assert (owlAutomaton.initialStates().size() <= 1);
 		assert (owlAutomaton.is(Automaton.Property.DETERMINISTIC));
 		assert (0 <= output && output <= 4);
 
 		//
 		// Create alphabet
 		//
-		var owlAlphabet = BitSets.powerSet(owlAutomaton.factory().alphabetSize());
-
-		ArrayList<BitSet> list = new ArrayList<>(owlAlphabet.size());
-		for (var bits : owlAlphabet) {
-			list.add((BitSet) bits.clone());
-		}
-		Alphabet<BitSet> automatalibAlphabet = Alphabets.fromList(list);
+		Alphabet<BitSet> automatalibAlphabet = powerSetAlphabet(owlAutomaton.factory().alphabetSize());
 
 		//
 		// Create Moore machine
 		//
-		FastMoore<BitSet, BitSet> result = new FastMoore<>(automatalibAlphabet);
+		CompactMoore<BitSet, BitSet> result = new CompactMoore<>(automatalibAlphabet);
+
+		//
+		// Owl returns an automaton without states if the language is empty, which
+		// corresponds to a single sink whose output is the empty set
+		//
+		if (owlAutomaton.initialStates().isEmpty()) {
+			int sink = result.addIntInitialState(new BitSet(4));
+			for (int input = 0; input < automatalibAlphabet.size(); ++input) {
+				result.setTransition(sink, input, sink);
+			}
+			return result;
+		}
 
 		//
 		// Create states
 		//
-		HashMap<Object, FastMooreState<BitSet>> stateMap = new HashMap<>(owlAutomaton.size());
+		HashMap<Object, Integer> stateMap = new HashMap<>(owlAutomaton.size());
 		for (Object owlState : owlAutomaton.states()) {
 
 			// Create AutomatonLib states
-			var automatalibState = result.addState(new BitSet(4)); // We'll set the output later
+			int automatalibState = result.addIntState(new BitSet(4)); // We'll set the output later
 
 			// Store mapping between Owl states and Brics states
 			stateMap.put(owlState, automatalibState);
@@ -139,22 +446,9 @@ public class Owl2Automatalib {
 		//
 		// Define output of states
 		//
-		stateMap.forEach(new BiConsumer<Object, FastMooreState<BitSet>>() {
-
-			@Override
-			public void accept(Object owlState, FastMooreState<BitSet> automatalibState) {
-
-				// Create view with given state as new initial state
-				var changedInitialStateAutomaton = Views.replaceInitialState(owlAutomaton, Set.of(owlState));
-
-				// Check whether language from this state is empty
-				if (!LanguageEmptiness.isEmpty(changedInitialStateAutomaton)) {
-					automatalibState.getOutput().set(output);
-				}
-
-			}
-
-		});
+		for (Object owlState : nonEmptyStates(owlAutomaton)) {
+			result.getStateProperty(stateMap.get(owlState)).set(output);
+		}
 
 		//
 		// Initial state
@@ -165,12 +459,14 @@ public class Owl2Automatalib {
 		// Create transitions
 		//
 		for (Object owlState : owlAutomaton.states()) {
+			int source = stateMap.get(owlState);
 			for (var entry : owlAutomaton.edgeMap(owlState).entrySet()) {
+				int successor = stateMap.get(entry.getKey().successor());
 				entry.getValue().forEach(new Consumer<BitSet>() {
 
 					@Override
 					public void accept(BitSet input) {
-						result.setTransition(stateMap.get(owlState), input, stateMap.get(entry.getKey().successor()));
+						result.setTransition(source, automatalibAlphabet.getSymbolIndex(input), successor);
 					}
 
 				});
@@ -182,68 +478,221 @@ public class Owl2Automatalib {
 	}
 
 	/**
-	 * Produces a textual representation of the given Moore machine in the Graphviz
-	 * Dot format.
+	 * Creates the alphabet of the Moore machines over the given number of atomic
+	 * propositions, i.e., the power set of the propositions (in the order used by
+	 * {@link #toAutomatalib}).
+	 *
+	 * @param numPropositions The number of atomic propositions
+	 * @return the power-set alphabet
+	 */
+	static Alphabet<BitSet> powerSetAlphabet(int numPropositions) {
+
+		var owlAlphabet = BitSets.powerSet(numPropositions);
+
+		ArrayList<BitSet> list = new ArrayList<>(owlAlphabet.size());
+		for (var bits : owlAlphabet) {
+			list.add((BitSet) bits.clone());
+		}
+		return Alphabets.fromList(list);
+
+	}
+
+	/**
+	 * Computes all states of an Owl ω-automaton from which the language is
+	 * non-empty.
+	 * <p>
+	 * For parity automata, all strongly connected components (SCCs) are computed
+	 * once using {@link SccDecomposition}, and each SCC is checked for an accepting
+	 * cycle (see {@link #hasAcceptingCycle}). The language from a state is
+	 * non-empty if and only if the state can reach such an SCC, which is
+	 * determined by a single backward search over the reversed transition graph
+	 * starting from the accepting SCCs. Thus, the states are labelled in time
+	 * linear in the size of the automaton (for a fixed number of colours). For
+	 * other acceptance conditions, an emptiness check is performed for every
+	 * state.
 	 * 
-	 * @param automatalibAutomaton The Moore machine to visualize
-	 * @return a textual representation of the given Moore machine in the Graphviz
-	 *         Dot format
+	 * @param <S>          The type of the states
+	 * @param owlAutomaton The Owl ω-automaton
+	 * @return the set of states with a non-empty language
 	 */
-	public static String toDot(FastMoore<BitSet, BitSet> automatalibAutomaton) {
+	public static <S> Set<S> nonEmptyStates(Automaton<S, ?> owlAutomaton) {
 
-		StringBuilder builder = new StringBuilder();
+		Set<S> nonEmpty = new HashSet<>();
+
+		//
+		// Fall back to one emptiness check per state for non-parity automata
+		//
+		if (!(owlAutomaton.acceptance() instanceof ParityAcceptance)) {
+			for (S state : owlAutomaton.states()) {
+				if (!LanguageEmptiness.isEmpty(Views.replaceInitialState(owlAutomaton, Set.of(state)))) {
+					nonEmpty.add(state);
+				}
+			}
+			return nonEmpty;
+		}
+		var acceptance = (ParityAcceptance) owlAutomaton.acceptance();
 
 		//
-		// Header
+		// Find accepting SCCs
 		//
-		builder.append("digraph Moore {").append(System.lineSeparator());
+		Deque<S> worklist = new ArrayDeque<>();
+		var sccs = SccDecomposition.computeSccs(owlAutomaton::successors, owlAutomaton.states(), false);
+		for (Set<S> scc : sccs) {
+			if (hasAcceptingCycle(owlAutomaton, acceptance, scc, -1)) {
+				nonEmpty.addAll(scc);
+				worklist.addAll(scc);
+			}
+		}
 
 		//
-		// States
+		// Reverse transition graph
 		//
-		automatalibAutomaton.forEach(new Consumer<FastMooreState<?>>() {
+		Map<S, List<S>> predecessors = new HashMap<>(owlAutomaton.size());
+		for (S state : owlAutomaton.states()) {
+			for (S successor : owlAutomaton.successors(state)) {
+				predecessors.computeIfAbsent(successor, s -> new ArrayList<>()).add(state);
+			}
+		}
 
-			@Override
-			public void accept(FastMooreState<?> state) {
+		//
+		// Propagate non-emptiness backwards
+		//
+		while (!worklist.isEmpty()) {
+			S state = worklist.removeFirst();
+			for (S predecessor : predecessors.getOrDefault(state, List.of())) {
+				if (nonEmpty.add(predecessor)) {
+					worklist.addLast(predecessor);
+				}
+			}
+		}
 
-				builder.append("  ").append(state.getId()).append(" [label=\"").append(state.getId()).append("; ")
-						.append(state.getOutput()).append("\"];").append(System.lineSeparator());
+		return nonEmpty;
 
-			}
+	}
 
-		});
+	/**
+	 * Checks whether an SCC of a parity automaton contains a cycle whose dominant
+	 * colour (i.e., the smallest colour for min-parity and the largest colour for
+	 * max-parity conditions) is accepting, considering only edges whose colour is
+	 * dominated by {@code bound}.
+	 * <p>
+	 * Since the SCC is strongly connected, it contains a cycle visiting all of its
+	 * edges. Hence, if the dominant colour of all internal edges is accepting, the
+	 * SCC contains an accepting cycle. Otherwise, every cycle using an edge of this
+	 * colour is rejecting, so these edges are removed and the remaining sub-SCCs
+	 * are checked recursively.
+	 * 
+	 * @param <S>        The type of the states
+	 * @param automaton  The parity automaton
+	 * @param acceptance The acceptance condition of {@code automaton}
+	 * @param scc        The SCC to check (must not be transient)
+	 * @param bound      Colour whose edges and all edges dominating it are ignored
+	 *                   (-1 if all edges are considered)
+	 * @return whether the SCC contains an accepting cycle
+	 */
+	static <S> boolean hasAcceptingCycle(Automaton<S, ?> automaton, ParityAcceptance acceptance,
+			Set<S> scc, int bound) {
+		return hasAcceptingCycle(automaton::edges, acceptance, scc, bound);
+	}
+
+	/**
+	 * Checks whether an SCC contains an accepting cycle (see
+	 * {@link #hasAcceptingCycle(Automaton, ParityAcceptance, Set, int)}), given
+	 * the edges of its states (e.g., edges that have already been computed for an
+	 * automaton constructed on the fly).
+	 * 
+	 * @param <S>        The type of the states
+	 * @param edges      The edges of each state of the SCC
+	 * @param acceptance The acceptance condition of the automaton
+	 * @param scc        The SCC to check (must not be transient)
+	 * @param bound      Colour whose edges and all edges dominating it are ignored
+	 *                   (-1 if all edges are considered)
+	 * @return whether the SCC contains an accepting cycle
+	 */
+	static <S> boolean hasAcceptingCycle(Function<S, ? extends Collection<Edge<S>>> edges,
+			ParityAcceptance acceptance, Set<S> scc, int bound) {
+
+		boolean max = acceptance.parity().max();
 
 		//
-		// Initial States
+		// Determine dominant colour of the internal edges (-1 if no edge is coloured)
 		//
-		for (var state : automatalibAutomaton.getInitialStates()) {
-			builder.append("  ").append("initial").append(state.getId()).append(" [shape=plaintext,label=\"\"];")
-					.append(System.lineSeparator());
-			builder.append("  ").append("initial").append(state.getId()).append(" -> ").append(state.getId())
-					.append(";").append(System.lineSeparator());
+		int dominant = -1;
+		for (S state : scc) {
+			for (Edge<S> edge : edges.apply(state)) {
+				if (!scc.contains(edge.successor()) || !edge.hasAcceptanceSets()) {
+					continue;
+				}
+				int colour = edge.smallestAcceptanceSet();
+				if (bound >= 0 && (max ? colour >= bound : colour <= bound)) {
+					continue;
+				}
+				if (dominant < 0 || (max ? colour > dominant : colour < dominant)) {
+					dominant = colour;
+				}
+			}
+		}
+
+		if (dominant < 0) {
+			return acceptance.emptyIsAccepting();
+		} else if (acceptance.isAccepting(dominant)) {
+			return true;
 		}
 
 		//
-		// Transitions
+		// Remove edges of the dominant colour and check remaining sub-SCCs
 		//
-		for (var state : automatalibAutomaton.getStates()) {
-			for (var bits : automatalibAutomaton.getInputAlphabet()) {
-
-				var successor = automatalibAutomaton.getSuccessor(state, bits);
+		final int newBound = dominant;
+		var successorFunction = new SuccessorFunction<S>() {
 
-				if (successor != null) {
-					builder.append("  ").append(state.getId()).append(" -> ").append(successor.getId())
-							.append(" [label=\"").append(bits).append("\"];").append(System.lineSeparator());
+			@Override
+			public Collection<S> successors(S state) {
+				List<S> successors = new ArrayList<>();
+				for (Edge<S> edge : edges.apply(state)) {
+					if (!scc.contains(edge.successor())) {
+						continue;
+					}
+					if (edge.hasAcceptanceSets()) {
+						int colour = edge.smallestAcceptanceSet();
+						if (max ? colour >= newBound : colour <= newBound) {
+							continue;
+						}
+					}
+					successors.add(edge.successor());
 				}
+				return successors;
+			}
+
+		};
 
+		for (Set<S> subScc : SccDecomposition.computeSccs(successorFunction, scc, false)) {
+			if (hasAcceptingCycle(edges, acceptance, subScc, newBound)) {
+				return true;
 			}
 		}
 
-		//
-		// Footer
-		//
-		builder.append("};");
+		return false;
+
+	}
 
+	/**
+	 * Produces a textual representation of the given Moore machine in the Graphviz
+	 * Dot format (see {@link MonitorWriters#writeDot}). Since the names of the
+	 * atomic propositions are unknown, the guards refer to them as {@code p<i>}.
+	 * 
+	 * @param automatalibAutomaton The Moore machine to visualize
+	 * @return a textual representation of the given Moore machine in the Graphviz
+	 *         Dot format
+	 */
+	public static String toDot(CompactMoore<BitSet, BitSet> automatalibAutomaton) {
+
+		StringBuilder builder = new StringBuilder();
+		try {
+			MonitorWriters.writeDot(automatalibAutomaton, List.of(), builder);
+		} catch (IOException e) {
+			// StringBuilder does not throw
+			throw new RuntimeException(e);
+		}
 		return builder.toString();
 
 	}
@@ -0,0 +1,225 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mpi_sws.rltl.expressions.Atom;
+import org.mpi_sws.rltl.expressions.Conjunction;
+import org.mpi_sws.rltl.expressions.Disjunction;
+import org.mpi_sws.rltl.expressions.Expression;
+import org.mpi_sws.rltl.expressions.Finally;
+import org.mpi_sws.rltl.expressions.Globally;
+import org.mpi_sws.rltl.expressions.Implication;
+import org.mpi_sws.rltl.expressions.Negation;
+import org.mpi_sws.rltl.expressions.Next;
+import org.mpi_sws.rltl.expressions.Release;
+import org.mpi_sws.rltl.expressions.Until;
+import org.mpi_sws.rltl.visitors.Visitor;
+
+import owl.ltl.BooleanConstant;
+import owl.ltl.FOperator;
+import owl.ltl.Formula;
+import owl.ltl.GOperator;
+import owl.ltl.LabelledFormula;
+import owl.ltl.Literal;
+import owl.ltl.ROperator;
+import owl.ltl.UOperator;
+import owl.ltl.XOperator;
+
+/**
+ * Converts expressions of the rLTL2LTL library into Owl formulas directly,
+ * i.e., without printing them and parsing the result with Owl's parser.
+ * <p>
+ * The formulas are built exactly as Owl's parser builds them (e.g., an
+ * implication {@code a => b} becomes {@code !a | b}), so the results coincide
+ * with those of {@code LtlParser.parse(new PrettyPrintVisitor()
+ * .expression2String(expr))}. The atomic propositions are numbered in the order
+ * in which they are first encountered; by passing the propositions to the
+ * constructor, several expressions can be converted over the same numbering
+ * (e.g., the LTL formulas of all truth values of an rLTL formula). As in Owl,
+ * the identifiers {@code tt}/{@code true} and {@code ff}/{@code false} denote
+ * Boolean constants.
+ * <p>
+ * Converted formulas are remembered by identity of the expression, so
+ * expressions shared by several converted expressions result in shared
+ * formulas. Instances of this class are not thread-safe.
+ */
+public class OwlFormulaVisitor implements Visitor {
+
+	/**
+	 * The atomic propositions, ordered by their index.
+	 */
+	private final List<String> atomicPropositions;
+
+	/**
+	 * Whether new atomic propositions may be added.
+	 */
+	private final boolean fixedPropositions;
+
+	/**
+	 * The formula of each expression converted so far.
+	 */
+	private final Map<Expression, Formula> formulas = new HashMap<>();
+
+	/**
+	 * The formula of the expression visited last.
+	 */
+	private Formula result;
+
+	/**
+	 * Creates a visitor that numbers atomic propositions in the order in which
+	 * they are encountered.
+	 */
+	public OwlFormulaVisitor() {
+		this.atomicPropositions = new ArrayList<>();
+		this.fixedPropositions = false;
+	}
+
+	/**
+	 * Creates a visitor that uses the given numbering of atomic propositions.
+	 * Converting an expression containing any other proposition fails.
+	 *
+	 * @param atomicPropositions The atomic propositions, ordered by their index
+	 */
+	public OwlFormulaVisitor(List<String> atomicPropositions) {
+		this.atomicPropositions = List.copyOf(atomicPropositions);
+		this.fixedPropositions = true;
+	}
+
+	/**
+	 * Returns the atomic propositions of an expression in the order in which they
+	 * first occur (i.e., in the order in which Owl's parser numbers them).
+	 *
+	 * @param expr The expression
+	 * @return the atomic propositions of {@code expr}
+	 */
+	public static List<String> atomicPropositions(Expression expr) {
+		var visitor = new OwlFormulaVisitor();
+		visitor.expression2Formula(expr);
+		return visitor.atomicPropositions();
+	}
+
+	/**
+	 * Returns the atomic propositions known to this visitor, ordered by their
+	 * index.
+	 *
+	 * @return the atomic propositions
+	 */
+	public List<String> atomicPropositions() {
+		return List.copyOf(atomicPropositions);
+	}
+
+	/**
+	 * Converts an expression into an Owl formula.
+	 *
+	 * @param expr The expression to convert
+	 * @return the formula of {@code expr}
+	 */
+	public Formula expression2Formula(Expression expr) {
+
+		if (expr == null) {
+			throw new IllegalArgumentException("Expression must not be null");
+		}
+
+		var formula = formulas.get(expr);
+		if (formula == null) {
+			expr.accept(this);
+			formula = result;
+			formulas.put(expr, formula);
+		}
+		return formula;
+
+	}
+
+	/**
+	 * Labels a formula with the atomic propositions of this visitor.
+	 *
+	 * @param formula A formula returned by this visitor
+	 * @return the labelled formula
+	 */
+	public LabelledFormula label(Formula formula) {
+		return LabelledFormula.of(formula, atomicPropositions);
+	}
+
+	@Override
+	public void visit(Atom atom) {
+
+		switch (atom.identifier) {
+		case "tt":
+		case "true":
+			result = BooleanConstant.TRUE;
+			return;
+		case "ff":
+		case "false":
+			result = BooleanConstant.FALSE;
+			return;
+		default:
+			break;
+		}
+
+		int index = atomicPropositions.indexOf(atom.identifier);
+		if (index < 0) {
+			if (fixedPropositions) {
+				throw new IllegalArgumentException(
+						"Unknown atomic proposition " + atom.identifier + " (known: " + atomicPropositions + ")");
+			}
+			index = atomicPropositions.size();
+			atomicPropositions.add(atom.identifier);
+		}
+		result = Literal.of(index);
+
+	}
+
+	@Override
+	public void visit(Conjunction conjunction) {
+		var left = expression2Formula(conjunction.subExpr1);
+		result = owl.ltl.Conjunction.of(left, expression2Formula(conjunction.subExpr2));
+	}
+
+	@Override
+	public void visit(Disjunction disjunction) {
+		var left = expression2Formula(disjunction.subExpr1);
+		result = owl.ltl.Disjunction.of(left, expression2Formula(disjunction.subExpr2));
+	}
+
+	@Override
+	public void visit(Implication implication) {
+		var left = expression2Formula(implication.subExpr1);
+		result = owl.ltl.Disjunction.of(left.not(), expression2Formula(implication.subExpr2));
+	}
+
+	@Override
+	public void visit(Negation negation) {
+		result = expression2Formula(negation.subExpr).not();
+	}
+
+	@Override
+	public void visit(Next nextExpr) {
+		result = XOperator.of(expression2Formula(nextExpr.subExpr));
+	}
+
+	@Override
+	public void visit(Finally finallyExpr) {
+		result = FOperator.of(expression2Formula(finallyExpr.subExpr));
+	}
+
+	@Override
+	public void visit(Globally globallyExpr) {
+		result = GOperator.of(expression2Formula(globallyExpr.subExpr));
+	}
+
+	@Override
+	public void visit(Until untilExpr) {
+		var left = expression2Formula(untilExpr.subExpr1);
+		result = UOperator.of(left, expression2Formula(untilExpr.subExpr2));
+	}
+
+	@Override
+	public void visit(Release releaseExpr) {
+		var left = expression2Formula(releaseExpr.subExpr1);
+		result = ROperator.of(left, expression2Formula(releaseExpr.subExpr2));
+	}
+
+}
@@ -0,0 +1,313 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.mpi_sws.rltlmonitor.util.LongIntHashMap;
+import owl.factories.EquivalenceClassFactory;
+import owl.ltl.BooleanConstant;
+import owl.ltl.Conjunction;
+import owl.ltl.EquivalenceClass;
+import owl.ltl.Formula;
+import owl.ltl.LabelledFormula;
+import owl.run.Environment;
+
+/**
+ * A monitor based on formula progression, which does not construct any
+ * automaton upfront.
+ * <p>
+ * The monitor tracks the residual of each of the LTL formulas an rLTL formula
+ * is translated into (see {@link SharingRLTL2LTLVisitor}), i.e., the formula
+ * the remainder of the trace has to satisfy. Residuals are Owl equivalence
+ * classes, which are unfolded and progressed by
+ * {@link EquivalenceClass#temporalStep} (as in Owl's
+ * {@link owl.translations.canonical.DeterministicConstructions.Tracking}).
+ * Given the residuals {@code r_0, ..., r_(m-1)} of the formulas
+ * {@code f_0, ..., f_(m-1)}, a state may still evaluate to truth value
+ * {@code i} if and only if the residual of its formula (as in
+ * {@link MonitorConstructor#truthValueFormulas}), which is {@code r_0} for
+ * {@code i = 0}, {@code !r_(i-1) & r_i} for {@code 0 < i < m} and
+ * {@code !r_(m-1)} for {@code i = m}, is satisfiable. Residuals that are
+ * propositionally valid or unsatisfiable (before or after unfolding) are
+ * decided by the equivalence class factory; all others are checked by an
+ * {@link OnTheFlyEmptiness} check of the parity automaton of the residual,
+ * which Owl constructs on the fly. The residual is built from the
+ * representatives of {@code r_(i-1)} and {@code r_i}, since the representative
+ * of a conjunction of classes may be much larger.
+ * <p>
+ * States are tuples of residuals and are numbered in the order they are
+ * reached. Their transitions and verdicts are memoized, so memory grows with
+ * the number of distinct residuals and transitions observed. Letters and
+ * verdicts are represented as for
+ * {@link de.mpi_sws.rltlmonitor.runtime.CompiledMonitor}. Since Owl's
+ * factories are not thread-safe, stepping is synchronized.
+ */
+public final class ProgressionMonitor {
+
+	/**
+	 * The names of the atomic propositions, ordered by their index.
+	 */
+	private final List<String> propositions;
+
+	/**
+	 * Number of letters (i.e., {@code 2^numPropositions}).
+	 */
+	private final int alphabetSize;
+
+	/**
+	 * Number of truth values (i.e., one more than the number of formulas).
+	 */
+	private final int numTruthValues;
+
+	/**
+	 * The environment used to translate residuals.
+	 */
+	private final Environment environment;
+
+	/**
+	 * The factory of the residuals.
+	 */
+	private final EquivalenceClassFactory factory;
+
+	/**
+	 * The residuals of each state.
+	 */
+	private final List<EquivalenceClass[]> states = new ArrayList<>();
+
+	/**
+	 * The number of each state, indexed by its residuals.
+	 */
+	private final Map<List<EquivalenceClass>, Integer> ids = new HashMap<>();
+
+	/**
+	 * The verdict of each state.
+	 */
+	private byte[] verdicts = new byte[16];
+
+	/**
+	 * The memoized transitions, indexed by {@code state << 32 | letter}.
+	 */
+	private final LongIntHashMap transitions = new LongIntHashMap();
+
+	/**
+	 * The memoized satisfiability of residuals of the truth values.
+	 */
+	private final Map<EquivalenceClass, Boolean> satisfiable = new HashMap<>();
+
+	/**
+	 * Creates a new progression monitor for the given formulas. Truth value
+	 * {@code i} of the monitor holds if and only if the formula with index
+	 * {@code i} is the first formula satisfied by the trace (or, for the last
+	 * truth value, if no formula is satisfied).
+	 *
+	 * @param formulas The formulas, which must number the atomic propositions
+	 *                 consistently
+	 */
+	ProgressionMonitor(LabelledFormula[] formulas) {
+
+		if (formulas.length + 1 > Byte.SIZE) {
+			throw new IllegalArgumentException("Too many truth values: " + (formulas.length + 1));
+		}
+
+		// The factories are never released, since the residuals use them as long as
+		// the monitor exists
+		var session = ConstructionSession.forFormulas(formulas);
+		var factories = session.acquireFactories();
+		this.propositions = session.atomicPropositions();
+		this.alphabetSize = 1 << propositions.size();
+		this.numTruthValues = formulas.length + 1;
+		this.environment = session.environment(factories);
+		this.factory = factories.eqFactory;
+
+		EquivalenceClass[] residuals = new EquivalenceClass[formulas.length];
+		for (int i = 0; i < formulas.length; ++i) {
+			residuals[i] = factory.of(formulas[i].formula());
+		}
+		state(residuals);
+
+	}
+
+	/**
+	 * Returns the initial state.
+	 *
+	 * @return the initial state
+	 */
+	public int initialState() {
+		return 0;
+	}
+
+	/**
+	 * Returns the successor of a state on a letter, progressing its residuals if
+	 * the transition is not memoized.
+	 *
+	 * @param state  The current state
+	 * @param letter The letter (i.e., a bit mask of the propositions that hold)
+	 * @return the successor state
+	 */
+	public synchronized int step(int state, int letter) {
+
+		if (state < 0 || state >= states.size()) {
+			throw new IllegalArgumentException("Invalid state: " + state);
+		} else if (letter < 0 || letter >= alphabetSize) {
+			throw new IllegalArgumentException("Invalid letter: " + letter);
+		}
+
+		long key = (long) state << 32 | letter;
+		int successor = transitions.getOrDefault(key, -1);
+		if (successor >= 0) {
+			return successor;
+		}
+
+		BitSet valuation = BitSet.valueOf(new long[] { letter });
+		EquivalenceClass[] residuals = states.get(state).clone();
+		for (int i = 0; i < residuals.length; ++i) {
+			residuals[i] = residuals[i].unfold().temporalStep(valuation);
+		}
+		successor = state(residuals);
+		transitions.put(key, successor);
+		return successor;
+
+	}
+
+	/**
+	 * Returns the state reached after reading the given letters from a state.
+	 *
+	 * @param state   The state to start from
+	 * @param letters The letters to read
+	 * @param from    Index of the first letter to read (inclusive)
+	 * @param to      Index of the last letter to read (exclusive)
+	 * @return the state reached
+	 */
+	public synchronized int run(int state, int[] letters, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			state = step(state, letters[i]);
+		}
+		return state;
+	}
+
+	/**
+	 * Returns the verdict of a state as bit mask of the truth values that are
+	 * still possible.
+	 *
+	 * @param state The state
+	 * @return the verdict of {@code state}
+	 */
+	public synchronized byte verdict(int state) {
+		if (state < 0 || state >= states.size()) {
+			throw new IllegalArgumentException("Invalid state: " + state);
+		}
+		return verdicts[state];
+	}
+
+	/**
+	 * Returns the number of states reached so far.
+	 *
+	 * @return the number of states
+	 */
+	public synchronized int size() {
+		return states.size();
+	}
+
+	/**
+	 * Returns the names of the atomic propositions.
+	 *
+	 * @return the atomic propositions, ordered by their index
+	 */
+	public List<String> propositions() {
+		return propositions;
+	}
+
+	/**
+	 * Returns the number of atomic propositions.
+	 *
+	 * @return the number of atomic propositions
+	 */
+	public int numPropositions() {
+		return propositions.size();
+	}
+
+	/**
+	 * Returns the number of truth values (5 for rLTL and 2 for LTL monitors).
+	 *
+	 * @return the number of truth values
+	 */
+	public int numTruthValues() {
+		return numTruthValues;
+	}
+
+	/**
+	 * Returns the number of the state with the given residuals, adding a new
+	 * state (and computing its verdict) if there is none.
+	 *
+	 * @param residuals The residuals
+	 * @return the number of the state
+	 */
+	private int state(EquivalenceClass[] residuals) {
+
+		var key = Arrays.asList(residuals);
+		Integer id = ids.get(key);
+		if (id != null) {
+			return id;
+		}
+
+		id = states.size();
+		states.add(residuals);
+		ids.put(key, id);
+		if (id == verdicts.length) {
+			verdicts = Arrays.copyOf(verdicts, verdicts.length << 1);
+		}
+
+		//
+		// Compute verdict
+		//
+		int verdict = 0;
+		Formula previous = BooleanConstant.TRUE;
+		for (int i = 0; i <= residuals.length; ++i) {
+			var residual = i < residuals.length ? Conjunction.of(previous, residuals[i].representative()) : previous;
+			if (isSatisfiable(residual)) {
+				verdict |= 1 << i;
+			}
+			if (i < residuals.length) {
+				previous = residuals[i].representative().not();
+			}
+		}
+		verdicts[id] = (byte) verdict;
+
+		return id;
+
+	}
+
+	/**
+	 * Checks whether a residual is satisfiable, translating it into a parity
+	 * automaton if the equivalence class factory cannot decide it.
+	 *
+	 * @param residual The residual
+	 * @return whether some trace satisfies {@code residual}
+	 */
+	private boolean isSatisfiable(Formula residual) {
+
+		var clazz = factory.of(residual);
+		if (clazz.isFalse() || clazz.unfold().isFalse()) {
+			return false;
+		} else if (clazz.isTrue()) {
+			return true;
+		}
+
+		Boolean known = satisfiable.get(clazz);
+		if (known == null) {
+			var automaton = TranslationPortfolio.translateOnTheFly(environment,
+					LabelledFormula.of(residual, propositions));
+			known = !automaton.initialStates().isEmpty()
+					// Only a single state is queried, so nothing needs to be memoized
+					&& new OnTheFlyEmptiness(automaton, 1).isNonEmpty(automaton.onlyInitialState());
+			satisfiable.put(clazz, known);
+		}
+		return known;
+
+	}
+
+}
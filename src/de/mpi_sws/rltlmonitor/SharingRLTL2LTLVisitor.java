@@ -0,0 +1,237 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.mpi_sws.rltl.expressions.Atom;
+import org.mpi_sws.rltl.expressions.Conjunction;
+import org.mpi_sws.rltl.expressions.Disjunction;
+import org.mpi_sws.rltl.expressions.Expression;
+import org.mpi_sws.rltl.expressions.Finally;
+import org.mpi_sws.rltl.expressions.Globally;
+import org.mpi_sws.rltl.expressions.Implication;
+import org.mpi_sws.rltl.expressions.Negation;
+import org.mpi_sws.rltl.expressions.Next;
+import org.mpi_sws.rltl.expressions.Release;
+import org.mpi_sws.rltl.expressions.Until;
+import org.mpi_sws.rltl.visitors.RLTL2LTLVisitor;
+import org.mpi_sws.rltl.visitors.Visitor;
+
+/**
+ * Translates rLTL expressions into the four LTL expressions of their semantics,
+ * like {@link RLTL2LTLVisitor}, but returns the four expressions as a single
+ * directed acyclic graph.
+ * <p>
+ * {@link RLTL2LTLVisitor} makes sure that no two expressions share
+ * subexpressions, copying the translations of the subexpressions of every
+ * negation and implication four times. For nested negations and implications,
+ * the size of its result is, hence, exponential in the size of the rLTL
+ * expression. This visitor creates all expressions with an
+ * {@link ExpressionFactory} instead: identical subexpressions (including the
+ * atoms and the subexpressions shared by the four translations) are created
+ * once, and the translation of each distinct rLTL subexpression is computed
+ * once. The resulting expressions are structurally equal to those of
+ * {@link RLTL2LTLVisitor}, and visitors that remember their results by identity
+ * of the expression (e.g., {@link OwlFormulaVisitor}) process each distinct
+ * subexpression once.
+ * <p>
+ * The resulting expressions are shared and must not be modified.
+ */
+public class SharingRLTL2LTLVisitor implements Visitor {
+
+	/**
+	 * The factory creating the LTL expressions.
+	 */
+	private final ExpressionFactory factory;
+
+	/**
+	 * The translation of each (hash-consed) rLTL expression converted so far.
+	 */
+	private final Map<Expression, Expression[]> translations = new IdentityHashMap<>();
+
+	/**
+	 * The translation of the expression visited last.
+	 */
+	private Expression[] ltlExpr;
+
+	/**
+	 * Creates a visitor creating expressions with the given factory.
+	 *
+	 * @param factory The factory
+	 */
+	public SharingRLTL2LTLVisitor(ExpressionFactory factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * Converts an rLTL expression into four LTL expressions.
+	 *
+	 * @param expr The rLTL expression to convert
+	 * @return the four LTL expressions obtained from translating {@code expr}
+	 */
+	public static Expression[] convert(Expression expr) {
+		return new SharingRLTL2LTLVisitor(new ExpressionFactory()).translate(expr);
+	}
+
+	/**
+	 * Converts an rLTL expression into four LTL expressions, which are created
+	 * with the factory of this visitor.
+	 *
+	 * @param expr The rLTL expression to convert
+	 * @return the four LTL expressions obtained from translating {@code expr}
+	 */
+	public Expression[] translate(Expression expr) {
+		return translateInterned(factory.intern(expr)).clone();
+	}
+
+	/**
+	 * Converts a hash-consed rLTL expression, reusing earlier translations.
+	 *
+	 * @param expr The hash-consed rLTL expression
+	 * @return the four LTL expressions of {@code expr} (must not be modified)
+	 */
+	private Expression[] translateInterned(Expression expr) {
+
+		var result = translations.get(expr);
+		if (result == null) {
+			expr.accept(this);
+			result = ltlExpr;
+			translations.put(expr, result);
+		}
+		return result;
+
+	}
+
+	@Override
+	public void visit(Atom atom) {
+		var ltlAtom = factory.atom(atom.identifier);
+		ltlExpr = new Expression[] { ltlAtom, ltlAtom, ltlAtom, ltlAtom };
+	}
+
+	@Override
+	public void visit(Conjunction conjunction) {
+
+		var left = translateInterned(conjunction.subExpr1);
+		var right = translateInterned(conjunction.subExpr2);
+
+		ltlExpr = new Expression[4];
+		for (int i = 0; i < 4; ++i) {
+			ltlExpr[i] = factory.conjunction(left[i], right[i]);
+		}
+
+	}
+
+	@Override
+	public void visit(Disjunction disjunction) {
+
+		var left = translateInterned(disjunction.subExpr1);
+		var right = translateInterned(disjunction.subExpr2);
+
+		ltlExpr = new Expression[4];
+		for (int i = 0; i < 4; ++i) {
+			ltlExpr[i] = factory.disjunction(left[i], right[i]);
+		}
+
+	}
+
+	@Override
+	public void visit(Implication implication) {
+
+		var left = translateInterned(implication.subExpr1);
+		var right = translateInterned(implication.subExpr2);
+
+		// The premise (some bit of the left-hand side holds while the same bit of
+		// the right-hand side does not) is shared by all four expressions
+		var premise = factory.disjunction(
+				factory.conjunction(left[0], factory.negation(right[0])),
+				factory.disjunction(
+						factory.conjunction(left[1], factory.negation(right[1])),
+						factory.disjunction(
+								factory.conjunction(left[2], factory.negation(right[2])),
+								factory.conjunction(left[3], factory.negation(right[3])))));
+
+		ltlExpr = new Expression[4];
+		for (int i = 0; i < 4; ++i) {
+			ltlExpr[i] = factory.implication(premise, right[i]);
+		}
+
+	}
+
+	@Override
+	public void visit(Negation negation) {
+
+		var sub = translateInterned(negation.subExpr);
+
+		var ltlNegation = factory.negation(
+				factory.conjunction(sub[0], factory.conjunction(sub[1], factory.conjunction(sub[2], sub[3]))));
+		ltlExpr = new Expression[] { ltlNegation, ltlNegation, ltlNegation, ltlNegation };
+
+	}
+
+	@Override
+	public void visit(Finally finallyExpr) {
+
+		var sub = translateInterned(finallyExpr.subExpr);
+
+		ltlExpr = new Expression[4];
+		for (int i = 0; i < 4; ++i) {
+			ltlExpr[i] = factory.eventually(sub[i]);
+		}
+
+	}
+
+	@Override
+	public void visit(Globally globallyExpr) {
+
+		var sub = translateInterned(globallyExpr.subExpr);
+
+		ltlExpr = new Expression[] {
+				factory.globally(sub[0]),
+				factory.eventually(factory.globally(sub[1])),
+				factory.globally(factory.eventually(sub[2])),
+				factory.eventually(sub[3])
+		};
+
+	}
+
+	@Override
+	public void visit(Next nextExpr) {
+
+		var sub = translateInterned(nextExpr.subExpr);
+
+		ltlExpr = new Expression[4];
+		for (int i = 0; i < 4; ++i) {
+			ltlExpr[i] = factory.next(sub[i]);
+		}
+
+	}
+
+	@Override
+	public void visit(Until untilExpr) {
+
+		var left = translateInterned(untilExpr.subExpr1);
+		var right = translateInterned(untilExpr.subExpr2);
+
+		ltlExpr = new Expression[4];
+		for (int i = 0; i < 4; ++i) {
+			ltlExpr[i] = factory.until(left[i], right[i]);
+		}
+
+	}
+
+	@Override
+	public void visit(Release releaseExpr) {
+
+		var left = translateInterned(releaseExpr.subExpr1);
+		var right = translateInterned(releaseExpr.subExpr2);
+
+		ltlExpr = new Expression[] {
+				factory.release(left[0], right[0]),
+				factory.disjunction(factory.eventually(factory.globally(right[1])), factory.eventually(left[1])),
+				factory.disjunction(factory.globally(factory.eventually(right[2])), factory.eventually(left[2])),
+				factory.disjunction(factory.eventually(right[3]), factory.eventually(left[3]))
+		};
+
+	}
+
+}
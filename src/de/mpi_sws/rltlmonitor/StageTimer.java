@@ -0,0 +1,84 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.lang.management.ManagementFactory;
+
+import de.mpi_sws.rltlmonitor.ConstructionListener.Stage;
+
+/**
+ * Measures the time and the memory allocated by the current thread during one
+ * stage of the monitor construction.
+ */
+class StageTimer {
+
+	/**
+	 * Thread bean of the JVM if it can measure allocations, {@code null} otherwise.
+	 */
+	private static final com.sun.management.ThreadMXBean THREAD_BEAN = allocationBean();
+
+	/**
+	 * Time at which the stage started.
+	 */
+	private final long startNanos;
+
+	/**
+	 * Bytes allocated by the current thread when the stage started.
+	 */
+	private final long startBytes;
+
+	/**
+	 * Creates a timer and starts it.
+	 */
+	private StageTimer() {
+		this.startBytes = allocatedBytes();
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Starts measuring a stage.
+	 *
+	 * @return the started timer
+	 */
+	static StageTimer start() {
+		return new StageTimer();
+	}
+
+	/**
+	 * Stops measuring and reports the stage to a listener.
+	 *
+	 * @param listener The listener to notify
+	 * @param stage    The completed stage
+	 */
+	void stop(ConstructionListener listener, Stage stage) {
+		long elapsedNanos = System.nanoTime() - startNanos;
+		long endBytes = allocatedBytes();
+		listener.stageCompleted(stage, elapsedNanos, startBytes < 0 ? -1 : endBytes - startBytes);
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far.
+	 *
+	 * @return the allocated bytes or -1 if the JVM cannot measure them
+	 */
+	private static long allocatedBytes() {
+		return THREAD_BEAN == null ? -1 : THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Returns the thread bean of the JVM if it supports measuring allocations.
+	 *
+	 * @return the thread bean or {@code null}
+	 */
+	private static com.sun.management.ThreadMXBean allocationBean() {
+
+		var bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			var allocationBean = (com.sun.management.ThreadMXBean) bean;
+			if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+				return allocationBean;
+			}
+		}
+		return null;
+
+	}
+
+}
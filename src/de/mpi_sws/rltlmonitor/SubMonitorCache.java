@@ -0,0 +1,657 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.mpi_sws.rltlmonitor.ConstructionListener.Stage;
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
+import net.automatalib.words.Alphabet;
+import owl.ltl.Biconditional;
+import owl.ltl.BooleanConstant;
+import owl.ltl.Conjunction;
+import owl.ltl.Disjunction;
+import owl.ltl.FOperator;
+import owl.ltl.Formula;
+import owl.ltl.GOperator;
+import owl.ltl.LabelledFormula;
+import owl.ltl.Literal;
+import owl.ltl.MOperator;
+import owl.ltl.ROperator;
+import owl.ltl.UOperator;
+import owl.ltl.WOperator;
+import owl.ltl.XOperator;
+import owl.ltl.rewriter.DeduplicationRewriter;
+import owl.ltl.util.FormulaIsomorphism;
+
+/**
+ * An in-memory cache of the minimized Moore machines of LTL formulas (e.g., the
+ * formulas of the truth values of rLTL formulas), which is shared by the
+ * constructions of many formulas.
+ * <p>
+ * Formulas are normalized by renumbering their atomic propositions in the order
+ * in which they first occur, so that a machine can be reused by formulas that
+ * differ only in the names and the numbering of their propositions. If no
+ * machine of the normalized formula is cached, a cached machine of an
+ * isomorphic formula (i.e., one that is equal up to renaming its propositions,
+ * see {@link FormulaIsomorphism}) is used, provided that the formula is small
+ * enough for the isomorphism check. The machines are stored over the
+ * propositions of the normalized formula, with output {@code {0}} for states
+ * with non-empty language, and are mapped to the propositions and the output
+ * requested by the caller.
+ * <p>
+ * Formulas are built compositionally from cached machines where this is sound.
+ * Since the language from a state of the product is non-empty if and only if
+ * the language of one disjunct (or of all conjuncts) is non-empty, the machine
+ * of a disjunction is the product of the machines of its disjuncts. For
+ * conjunctions, this only holds if the conjuncts do not share atomic
+ * propositions, so the conjuncts are grouped by their propositions and only
+ * conjunctions of several independent groups are built from the machines of the
+ * groups. All other formulas are translated with Owl.
+ * <p>
+ * Instances of this class are thread-safe. Machines are translated and
+ * combined outside of the lock, so a machine may be computed more than once if
+ * several threads request it at the same time.
+ */
+public class SubMonitorCache {
+
+	/**
+	 * The default number of machines kept in a cache.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * The maximal number of atomic propositions of formulas looked up by
+	 * isomorphism (which tries all permutations of the propositions).
+	 */
+	private static final int MAX_ISOMORPHISM_PROPOSITIONS = 4;
+
+	/**
+	 * The maximal size (of the syntax tree) of formulas looked up by isomorphism
+	 * (which tries all permutations of the operands of Boolean operators).
+	 */
+	private static final int MAX_ISOMORPHISM_SIZE = 32;
+
+	/**
+	 * A formula whose atomic propositions are numbered in the order in which they
+	 * first occur.
+	 */
+	private static final class Normalized {
+
+		/**
+		 * The renumbered formula.
+		 */
+		final Formula formula;
+
+		/**
+		 * The original number of each atomic proposition of {@link #formula}.
+		 */
+		final int[] atoms;
+
+		Normalized(Formula formula, int[] atoms) {
+			this.formula = formula;
+			this.atoms = atoms;
+		}
+
+	}
+
+	/**
+	 * A cached machine. The machine is over the atomic propositions of the
+	 * (normalized) formula and has output {@code {0}} in states with non-empty
+	 * language.
+	 */
+	private static final class Entry {
+
+		final Formula formula;
+		final Formula skeleton;
+		final CompactMoore<BitSet, BitSet> machine;
+
+		Entry(Formula formula, Formula skeleton, CompactMoore<BitSet, BitSet> machine) {
+			this.formula = formula;
+			this.skeleton = skeleton;
+			this.machine = machine;
+		}
+
+	}
+
+	/**
+	 * The cached machines, indexed by their normalized formula and ordered by
+	 * their last use.
+	 */
+	private final Map<Formula, Entry> entries;
+
+	/**
+	 * The cached machines of formulas small enough to be looked up by isomorphism,
+	 * indexed by the skeleton of the formula (i.e., the formula with all
+	 * propositions replaced by the first one), which is invariant under renaming
+	 * propositions.
+	 */
+	private final Map<Formula, List<Entry>> skeletons = new HashMap<>();
+
+	/**
+	 * Creates a cache keeping up to {@value #DEFAULT_CAPACITY} machines.
+	 */
+	public SubMonitorCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a cache keeping up to {@code capacity} machines. The least recently
+	 * used machines are discarded first.
+	 *
+	 * @param capacity The maximal number of machines
+	 */
+	public SubMonitorCache(int capacity) {
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Formula, Entry> eldest) {
+				if (size() <= capacity) {
+					return false;
+				}
+				var bucket = skeletons.get(eldest.getValue().skeleton);
+				if (bucket != null) {
+					bucket.remove(eldest.getValue());
+					if (bucket.isEmpty()) {
+						skeletons.remove(eldest.getValue().skeleton);
+					}
+				}
+				return true;
+			}
+
+		};
+
+	}
+
+	/**
+	 * Returns the number of cached machines.
+	 *
+	 * @return the number of machines
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the minimized Moore machine of an LTL formula, analogous to
+	 * {@link MonitorConstructor#constructMachine}: the output of a state is
+	 * {@code {output}} if the language from this state is non-empty and the empty
+	 * set otherwise. The machine is built from cached machines where possible.
+	 *
+	 * @param formula  The LTL formula
+	 * @param output   The output of states with non-empty language (i.e., the
+	 *                 truth value)
+	 * @param options  The options of the translations of formulas that are not
+	 *                 cached
+	 * @param listener The listener to notify
+	 * @return the minimized Moore machine of the given formula over the atomic
+	 *         propositions of {@code formula} (which the caller may modify)
+	 */
+	public CompactMoore<BitSet, BitSet> machine(LabelledFormula formula, int output, ConstructionOptions options,
+			ConstructionListener listener) {
+		var normalized = normalize(formula.formula());
+		return embed(build(normalized.formula, options, listener), normalized.atoms,
+				Owl2Automatalib.powerSetAlphabet(formula.atomicPropositions().size()), output);
+	}
+
+	/**
+	 * Returns the machine of a normalized formula, building and caching it if
+	 * necessary.
+	 *
+	 * @param formula  The normalized formula
+	 * @param options  The options of the translations
+	 * @param listener The listener to notify
+	 * @return the minimized machine over the atomic propositions of
+	 *         {@code formula} (must not be modified)
+	 */
+	private CompactMoore<BitSet, BitSet> build(Formula formula, ConstructionOptions options,
+			ConstructionListener listener) {
+
+		var machine = lookup(formula);
+		if (machine != null) {
+			return machine;
+		}
+
+		var parts = decompose(formula);
+		if (parts == null) {
+
+			// Translate the formula over the propositions p0, p1, ...
+			List<String> propositions = new ArrayList<>();
+			for (int atom = 0; atom < numAtoms(formula); ++atom) {
+				propositions.add("p" + atom);
+			}
+			var session = ConstructionSession.of(propositions);
+			machine = MonitorConstructor.constructMachine(session, LabelledFormula.of(formula, propositions), 0,
+					options, listener);
+
+		} else {
+
+			// Combine the machines of the parts, marking the states with non-empty
+			// language of part i with output {i}
+			var alphabet = Owl2Automatalib.powerSetAlphabet(numAtoms(formula));
+			List<CompactMoore<BitSet, BitSet>> machines = new ArrayList<>(parts.size());
+			for (int i = 0; i < parts.size(); ++i) {
+				var part = normalize(parts.get(i));
+				machines.add(embed(build(part.formula, options, listener), part.atoms, alphabet, i));
+			}
+
+			var timer = StageTimer.start();
+			var product = Owl2Automatalib.product(machines);
+			boolean conjunction = formula instanceof Conjunction;
+			for (int state = 0; state < product.size(); ++state) {
+				var outputs = product.getStateProperty(state);
+				var combined = new BitSet(1);
+				combined.set(0, conjunction ? outputs.cardinality() == parts.size() : !outputs.isEmpty());
+				product.setStateProperty(state, combined);
+			}
+			timer.stop(listener, Stage.PRODUCT);
+
+			timer = StageTimer.start();
+			machine = MooreMinimization.minimize(product);
+			timer.stop(listener, Stage.MINIMIZATION);
+
+		}
+
+		store(formula, machine);
+		return machine;
+
+	}
+
+	/**
+	 * Splits a normalized formula into parts whose machines determine the machine
+	 * of the formula (see above).
+	 *
+	 * @param formula The normalized formula
+	 * @return the disjuncts of a disjunction, the conjunctions of the independent
+	 *         groups of conjuncts of a conjunction, or {@code null} if the formula
+	 *         has to be translated as a whole
+	 */
+	private static List<Formula> decompose(Formula formula) {
+
+		if (formula instanceof Disjunction) {
+			return formula.operands;
+		} else if (!(formula instanceof Conjunction)) {
+			return null;
+		}
+
+		//
+		// Group conjuncts sharing atomic propositions (union-find over the
+		// propositions, conjuncts without propositions form their own group)
+		//
+		int[] parent = new int[numAtoms(formula) + 1];
+		for (int i = 0; i < parent.length; ++i) {
+			parent[i] = i;
+		}
+		int noAtoms = parent.length - 1;
+
+		for (var operand : formula.operands) {
+			var atoms = operand.atomicPropositions(true);
+			int first = atoms.isEmpty() ? noAtoms : atoms.nextSetBit(0);
+			for (int atom = atoms.nextSetBit(0); atom >= 0; atom = atoms.nextSetBit(atom + 1)) {
+				parent[find(parent, atom)] = find(parent, first);
+			}
+		}
+
+		Map<Integer, List<Formula>> groups = new LinkedHashMap<>();
+		for (var operand : formula.operands) {
+			var atoms = operand.atomicPropositions(true);
+			int root = find(parent, atoms.isEmpty() ? noAtoms : atoms.nextSetBit(0));
+			groups.computeIfAbsent(root, k -> new ArrayList<>()).add(operand);
+		}
+
+		if (groups.size() == 1) {
+			return null;
+		}
+
+		List<Formula> parts = new ArrayList<>(groups.size());
+		for (var group : groups.values()) {
+			parts.add(Conjunction.of(group));
+		}
+		return parts;
+
+	}
+
+	/**
+	 * Returns the representative of an element of a union-find structure.
+	 *
+	 * @param parent  The parent of each element
+	 * @param element The element
+	 * @return the representative of {@code element}
+	 */
+	private static int find(int[] parent, int element) {
+		while (parent[element] != element) {
+			parent[element] = parent[parent[element]];
+			element = parent[element];
+		}
+		return element;
+	}
+
+	//
+	// Cache
+	//
+
+	/**
+	 * Looks up the machine of a normalized formula, either by the formula itself
+	 * or by an isomorphic formula.
+	 *
+	 * @param formula The normalized formula
+	 * @return the machine over the atomic propositions of {@code formula} or
+	 *         {@code null} if no machine is cached
+	 */
+	private CompactMoore<BitSet, BitSet> lookup(Formula formula) {
+
+		Entry isomorphic = null;
+		int[] mapping = null;
+
+		synchronized (this) {
+
+			var entry = entries.get(formula);
+			if (entry != null) {
+				return entry.machine;
+			}
+
+			if (!isomorphismCandidate(formula)) {
+				return null;
+			}
+			var bucket = skeletons.get(skeleton(formula));
+			if (bucket == null) {
+				return null;
+			}
+			for (var candidate : bucket) {
+				mapping = FormulaIsomorphism.compute(candidate.formula, formula);
+				if (mapping != null) {
+					isomorphic = candidate;
+					break;
+				}
+			}
+
+		}
+
+		if (isomorphic == null) {
+			return null;
+		}
+
+		// Rename the propositions of the machine of the isomorphic formula
+		var machine = embed(isomorphic.machine, mapping, isomorphic.machine.getInputAlphabet(), 0);
+		store(formula, machine);
+		return machine;
+
+	}
+
+	/**
+	 * Stores the machine of a normalized formula.
+	 *
+	 * @param formula The normalized formula
+	 * @param machine The machine
+	 */
+	private void store(Formula formula, CompactMoore<BitSet, BitSet> machine) {
+
+		var key = DeduplicationRewriter.deduplicate(formula);
+		var entry = new Entry(key, isomorphismCandidate(key) ? skeleton(key) : null, machine);
+
+		synchronized (this) {
+			if (entries.containsKey(key)) {
+				return;
+			}
+			if (entry.skeleton != null) {
+				skeletons.computeIfAbsent(entry.skeleton, k -> new ArrayList<>()).add(entry);
+			}
+			entries.put(key, entry);
+		}
+
+	}
+
+	/**
+	 * Checks whether a formula is small enough to be looked up by isomorphism.
+	 *
+	 * @param formula The formula
+	 * @return whether the formula has few propositions and a small syntax tree
+	 */
+	private static boolean isomorphismCandidate(Formula formula) {
+		return numAtoms(formula) <= MAX_ISOMORPHISM_PROPOSITIONS
+				&& treeSize(formula, MAX_ISOMORPHISM_SIZE + 1) <= MAX_ISOMORPHISM_SIZE;
+	}
+
+	/**
+	 * Returns the size of the syntax tree of a formula, counting at most up to a
+	 * limit (formulas may share subformulas, so the tree may be exponentially
+	 * larger than the formula).
+	 *
+	 * @param formula The formula
+	 * @param limit   The limit
+	 * @return the size of the syntax tree or a value of at least {@code limit}
+	 */
+	private static int treeSize(Formula formula, int limit) {
+		int size = 1;
+		for (var operand : formula.operands) {
+			size += treeSize(operand, limit - size);
+			if (size >= limit) {
+				break;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Replaces all atomic propositions of a formula by the first one, keeping
+	 * their polarity.
+	 *
+	 * @param formula The formula
+	 * @return the skeleton of {@code formula}
+	 */
+	private static Formula skeleton(Formula formula) {
+		return rename(formula, new int[numAtoms(formula)], new IdentityHashMap<>());
+	}
+
+	//
+	// Normalization
+	//
+
+	/**
+	 * Renumbers the atomic propositions of a formula in the order in which they
+	 * first occur.
+	 *
+	 * @param formula The formula
+	 * @return the normalized formula and the original number of each of its
+	 *         propositions
+	 */
+	private static Normalized normalize(Formula formula) {
+
+		// Number of each original proposition (or -1)
+		int[] numbers = new int[numAtoms(formula)];
+		Arrays.fill(numbers, -1);
+		List<Integer> atoms = new ArrayList<>();
+		collectAtoms(formula, numbers, atoms, new IdentityHashMap<>());
+
+		int[] original = new int[atoms.size()];
+		for (int i = 0; i < original.length; ++i) {
+			original[i] = atoms.get(i);
+		}
+		return new Normalized(rename(formula, numbers, new IdentityHashMap<>()), original);
+
+	}
+
+	/**
+	 * Numbers the atomic propositions of a formula in the order in which they are
+	 * first encountered in a depth-first traversal.
+	 *
+	 * @param formula The formula
+	 * @param numbers The number of each proposition (or -1 if not yet numbered)
+	 * @param atoms   The propositions in the order in which they were numbered
+	 * @param visited The subformulas visited so far
+	 */
+	private static void collectAtoms(Formula formula, int[] numbers, List<Integer> atoms,
+			Map<Formula, Boolean> visited) {
+
+		if (visited.put(formula, Boolean.TRUE) != null) {
+			return;
+		}
+
+		if (formula instanceof Literal) {
+			int atom = ((Literal) formula).getAtom();
+			if (numbers[atom] < 0) {
+				numbers[atom] = atoms.size();
+				atoms.add(atom);
+			}
+		}
+		for (var operand : formula.operands) {
+			collectAtoms(operand, numbers, atoms, visited);
+		}
+
+	}
+
+	/**
+	 * Renames the atomic propositions of a formula, rebuilding every distinct
+	 * subformula once.
+	 *
+	 * @param formula The formula
+	 * @param numbers The new number of each proposition
+	 * @param renamed The subformulas renamed so far
+	 * @return the renamed formula
+	 */
+	private static Formula rename(Formula formula, int[] numbers, Map<Formula, Formula> renamed) {
+
+		var result = renamed.get(formula);
+		if (result != null) {
+			return result;
+		}
+
+		if (formula instanceof Literal) {
+			var literal = (Literal) formula;
+			result = Literal.of(numbers[literal.getAtom()], literal.isNegated());
+		} else if (formula instanceof BooleanConstant) {
+			result = formula;
+		} else {
+
+			List<Formula> operands = new ArrayList<>(formula.operands.size());
+			for (var operand : formula.operands) {
+				operands.add(rename(operand, numbers, renamed));
+			}
+
+			if (formula instanceof Conjunction) {
+				result = Conjunction.of(operands);
+			} else if (formula instanceof Disjunction) {
+				result = Disjunction.of(operands);
+			} else if (formula instanceof Biconditional) {
+				result = Biconditional.of(operands.get(0), operands.get(1));
+			} else if (formula instanceof FOperator) {
+				result = FOperator.of(operands.get(0));
+			} else if (formula instanceof GOperator) {
+				result = GOperator.of(operands.get(0));
+			} else if (formula instanceof XOperator) {
+				result = XOperator.of(operands.get(0));
+			} else if (formula instanceof UOperator) {
+				result = UOperator.of(operands.get(0), operands.get(1));
+			} else if (formula instanceof ROperator) {
+				result = ROperator.of(operands.get(0), operands.get(1));
+			} else if (formula instanceof WOperator) {
+				result = WOperator.of(operands.get(0), operands.get(1));
+			} else if (formula instanceof MOperator) {
+				result = MOperator.of(operands.get(0), operands.get(1));
+			} else {
+				throw new IllegalArgumentException("Unsupported formula " + formula);
+			}
+
+		}
+
+		renamed.put(formula, result);
+		return result;
+
+	}
+
+	/**
+	 * Returns the number of atomic propositions a formula may refer to (i.e., one
+	 * more than the largest proposition).
+	 *
+	 * @param formula The formula
+	 * @return the number of propositions
+	 */
+	private static int numAtoms(Formula formula) {
+		return formula.atomicPropositions(true).length();
+	}
+
+	/**
+	 * Maps a machine over the atomic propositions of a normalized formula to a
+	 * power-set alphabet over more (or renamed) propositions.
+	 *
+	 * @param machine  The machine (with output {@code {0}} for states with
+	 *                 non-empty language)
+	 * @param atoms    The proposition of the alphabet corresponding to each
+	 *                 proposition of the machine
+	 * @param alphabet The alphabet
+	 * @param output   The output of states with non-empty language
+	 * @return the machine over {@code alphabet}, which is complete
+	 */
+	private static CompactMoore<BitSet, BitSet> embed(CompactMoore<BitSet, BitSet> machine, int[] atoms,
+			Alphabet<BitSet> alphabet, int output) {
+
+		//
+		// Map each letter of the alphabet to the letter of the machine
+		//
+		var inputs = machine.getInputAlphabet();
+		int[] byMask = new int[inputs.size()];
+		for (int i = 0; i < inputs.size(); ++i) {
+			var letter = inputs.getSymbol(i);
+			int mask = letter.isEmpty() ? 0 : (int) letter.toLongArray()[0];
+			byMask[mask] = i;
+		}
+
+		int[] projection = new int[alphabet.size()];
+		for (int i = 0; i < projection.length; ++i) {
+			var letter = alphabet.getSymbol(i);
+			int mask = 0;
+			for (int j = 0; j < atoms.length; ++j) {
+				if (letter.get(atoms[j])) {
+					mask |= 1 << j;
+				}
+			}
+			projection[i] = byMask[mask];
+		}
+
+		//
+		// Copy states and transitions (missing transitions lead to a sink)
+		//
+		CompactMoore<BitSet, BitSet> result = new CompactMoore<>(alphabet);
+		for (int state = 0; state < machine.size(); ++state) {
+			var stateOutput = new BitSet(5);
+			if (!machine.getStateProperty(state).isEmpty()) {
+				stateOutput.set(output);
+			}
+			result.addIntState(stateOutput);
+		}
+		result.setInitialState(machine.getIntInitialState());
+
+		int sink = -1;
+		for (int state = 0; state < machine.size(); ++state) {
+			for (int input = 0; input < projection.length; ++input) {
+				int successor = machine.getSuccessor(state, projection[input]);
+				if (successor < 0) {
+					if (sink < 0) {
+						sink = result.addIntState(new BitSet(5));
+						for (int sinkInput = 0; sinkInput < projection.length; ++sinkInput) {
+							result.setTransition(sink, sinkInput, sink);
+						}
+					}
+					successor = sink;
+				}
+				result.setTransition(state, input, successor);
+			}
+		}
+
+		return result;
+
+	}
+
+}
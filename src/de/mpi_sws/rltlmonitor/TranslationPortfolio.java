@@ -0,0 +1,284 @@
+package de.mpi_sws.rltlmonitor;
+
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import owl.automaton.Automaton;
+import owl.automaton.MutableAutomatonUtil;
+import owl.automaton.acceptance.ParityAcceptance;
+import owl.automaton.transformations.ParityUtil;
+import owl.factories.Factories;
+import owl.ltl.LabelledFormula;
+import owl.run.Environment;
+import owl.translations.ltl2dpa.LTL2DPAFunction;
+
+/**
+ * Translates LTL formulas into deterministic parity automata, optionally racing
+ * alternative translations against each other.
+ * <p>
+ * By default, a formula is translated with Owl's asymmetric construction in the
+ * calling thread. With a non-negative budget, the asymmetric construction runs
+ * on Owl's shared pool (see {@link Environment#executor()}) instead; if it has
+ * not finished within the budget, the symmetric construction and the
+ * complement of the asymmetric construction of the negated formula are started
+ * as well, and the first automaton to be completed is returned. All three
+ * automata recognize the language of the formula, but their sizes can differ
+ * by orders of magnitude depending on the formula, which is hard to predict up
+ * front.
+ * <p>
+ * Owl's constructions do not react to interrupts. The losers of a race are,
+ * hence, not cancelled but run to completion in the background (and return
+ * their factories to the session afterwards). To bound the threads and BDD
+ * memory taken by such translations, each racing translation holds one of
+ * {@link #RACING} permits until it finishes: a formula is translated in the
+ * calling thread if no permit is available, and alternative translations are
+ * only started if permits are available.
+ */
+final class TranslationPortfolio {
+
+	/**
+	 * The configuration of the default (asymmetric) construction.
+	 */
+	private static final EnumSet<LTL2DPAFunction.Configuration> ASYMMETRIC = EnumSet.of(
+			LTL2DPAFunction.Configuration.OPTIMISE_INITIAL_STATE,
+			LTL2DPAFunction.Configuration.COMPRESS_COLOURS);
+
+	/**
+	 * The configuration of the symmetric construction.
+	 */
+	private static final EnumSet<LTL2DPAFunction.Configuration> SYMMETRIC = EnumSet.of(
+			LTL2DPAFunction.Configuration.SYMMETRIC,
+			LTL2DPAFunction.Configuration.OPTIMISE_INITIAL_STATE,
+			LTL2DPAFunction.Configuration.COMPRESS_COLOURS);
+
+	/**
+	 * The maximal number of racing translations running at the same time
+	 * (including losers that still run in the background).
+	 */
+	private static final int RACING = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The permits of the racing translations.
+	 */
+	private static final Semaphore PERMITS = new Semaphore(RACING);
+
+	/**
+	 * The alternative translations of a formula.
+	 */
+	private enum Strategy {
+		ASYMMETRIC, SYMMETRIC, ASYMMETRIC_COMPLEMENT
+	}
+
+	/**
+	 * A parity automaton together with the factories it was built with. The
+	 * factories must be returned to the session once the automaton is no longer
+	 * used.
+	 */
+	static final class Translation {
+
+		final Automaton<Object, ParityAcceptance> automaton;
+		final Factories factories;
+
+		Translation(Automaton<Object, ParityAcceptance> automaton, Factories factories) {
+			this.automaton = automaton;
+			this.factories = factories;
+		}
+
+	}
+
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private TranslationPortfolio() {
+	}
+
+	/**
+	 * Translates an LTL formula into a deterministic parity automaton.
+	 *
+	 * @param session The session providing the Owl factories
+	 * @param formula The LTL formula
+	 * @param budget  The time (in milliseconds) after which alternative
+	 *                translations are started, or a negative value to translate
+	 *                the formula with the asymmetric construction in the calling
+	 *                thread
+	 * @return the automaton and the factories the caller has to release
+	 */
+	static Translation translate(ConstructionSession session, LabelledFormula formula, long budget) {
+
+		var race = new Race(session, formula);
+		if (budget < 0 || !race.start(Strategy.ASYMMETRIC)) {
+			var factories = session.acquireFactories();
+			return new Translation(translate(session.environment(factories), formula, Strategy.ASYMMETRIC), factories);
+		}
+
+		try {
+
+			try {
+				return race.result.get(budget, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				race.start(Strategy.SYMMETRIC);
+				race.start(Strategy.ASYMMETRIC_COMPLEMENT);
+				return race.result.get();
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+
+	}
+
+	/**
+	 * Complements a deterministic parity automaton returned by
+	 * {@link #translate(ConstructionSession, LabelledFormula, long)}, completing it
+	 * with a fresh sink state. The automaton is modified in place, so it must not
+	 * be used afterwards (except through the returned complement).
+	 * <p>
+	 * States that are no longer reachable (e.g., the states of an automaton
+	 * without initial state, whose complement starts in the sink state) are
+	 * removed.
+	 *
+	 * @param automaton The automaton
+	 * @return an automaton recognizing the complement of the language of
+	 *         {@code automaton}
+	 */
+	static Automaton<Object, ParityAcceptance> complement(Automaton<Object, ParityAcceptance> automaton) {
+		var complement = ParityUtil.complement(MutableAutomatonUtil.asMutable(automaton),
+				(Object) new MutableAutomatonUtil.Sink());
+		complement.trim();
+		return complement;
+	}
+
+	/**
+	 * Translates an LTL formula into a deterministic parity automaton that is
+	 * constructed on the fly: without the post-processing of the regular
+	 * translation (which needs all states), Owl computes the edges of a state only
+	 * when they are requested. The automaton may only be used while the factories
+	 * of {@code environment} are not used by another thread.
+	 *
+	 * @param environment The Owl environment providing the factories
+	 * @param formula     The LTL formula
+	 * @return an on-the-fly automaton recognizing the language of {@code formula}
+	 */
+	@SuppressWarnings("unchecked")
+	static Automaton<Object, ParityAcceptance> translateOnTheFly(Environment environment, LabelledFormula formula) {
+		return (Automaton<Object, ParityAcceptance>) new LTL2DPAFunction(environment,
+				EnumSet.noneOf(LTL2DPAFunction.Configuration.class)).apply(formula);
+	}
+
+	/**
+	 * Translates an LTL formula with one of the alternative translations.
+	 *
+	 * @param environment The Owl environment providing the factories
+	 * @param formula     The LTL formula
+	 * @param strategy    The translation
+	 * @return an automaton recognizing the language of {@code formula}
+	 */
+	@SuppressWarnings("unchecked")
+	private static Automaton<Object, ParityAcceptance> translate(Environment environment, LabelledFormula formula,
+			Strategy strategy) {
+
+		switch (strategy) {
+		case SYMMETRIC:
+			return (Automaton<Object, ParityAcceptance>) new LTL2DPAFunction(environment, SYMMETRIC).apply(formula);
+		case ASYMMETRIC_COMPLEMENT:
+			return complement((Automaton<Object, ParityAcceptance>) new LTL2DPAFunction(environment, ASYMMETRIC)
+					.apply(formula.not()));
+		default:
+			return (Automaton<Object, ParityAcceptance>) new LTL2DPAFunction(environment, ASYMMETRIC).apply(formula);
+		}
+
+	}
+
+	/**
+	 * The translations of a single formula racing against each other.
+	 */
+	private static final class Race {
+
+		private final ConstructionSession session;
+		private final LabelledFormula formula;
+
+		/**
+		 * The translation that finished first.
+		 */
+		private final CompletableFuture<Translation> result = new CompletableFuture<>();
+
+		/**
+		 * The number of translations that have been started and have neither
+		 * finished nor failed. The race fails once all started translations failed.
+		 */
+		private final AtomicInteger pending = new AtomicInteger();
+
+		Race(ConstructionSession session, LabelledFormula formula) {
+			this.session = session;
+			this.formula = formula;
+		}
+
+		/**
+		 * Starts a translation on the shared pool if a permit is available. The
+		 * winner hands its factories to the caller, all other translations release
+		 * their factories themselves.
+		 *
+		 * @param strategy The translation
+		 * @return whether the translation was started
+		 */
+		boolean start(Strategy strategy) {
+
+			if (!PERMITS.tryAcquire()) {
+				return false;
+			}
+
+			pending.incrementAndGet();
+			Environment.standard().executor().execute(new Runnable() {
+
+				@Override
+				public void run() {
+
+					try {
+
+						if (result.isDone()) {
+							return;
+						}
+
+						var factories = session.acquireFactories();
+						Automaton<Object, ParityAcceptance> automaton;
+						try {
+							automaton = translate(session.environment(factories), formula, strategy);
+						} catch (RuntimeException | Error e) {
+							// The factories of a failed translation are discarded
+							if (pending.decrementAndGet() == 0) {
+								result.completeExceptionally(e);
+							}
+							return;
+						}
+
+						if (!result.complete(new Translation(automaton, factories))) {
+							session.releaseFactories(factories);
+						}
+
+					} finally {
+						PERMITS.release();
+					}
+
+				}
+
+			});
+			return true;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,440 @@
+package de.mpi_sws.rltlmonitor.runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
+import net.automatalib.words.Alphabet;
+import net.automatalib.words.impl.Alphabets;
+
+/**
+ * A table-driven, immutable representation of an (r)LTL monitor, which is
+ * intended for evaluating traces at runtime.
+ * <p>
+ * States are represented by integers {@code 0, ..., size() - 1}. Letters are
+ * represented by the bit mask of the atomic propositions that hold (i.e., bit
+ * {@code i} is set if and only if proposition {@code i} of the Owl alphabet
+ * holds), which is exactly the index of the letter in the power-set alphabet
+ * of the Moore machines constructed by {@link de.mpi_sws.rltlmonitor.Owl2Automatalib}.
+ * The successor of a state {@code s} on letter {@code l} is stored at
+ * {@code next[s * alphabetSize() + l]}, and the verdict of a state is the
+ * output of the Moore machine encoded as a bit mask (i.e., bit {@code i} is set
+ * if and only if truth value {@code i} is still possible).
+ * <p>
+ * Letters passed to the stepping methods must be below {@link #alphabetSize()}
+ * (i.e., only propositions of the monitor may be set). This is only checked by
+ * assertions, since stepping on a larger letter reads the transition of
+ * another state and, hence, yields a wrong verdict rather than an exception.
+ * <p>
+ * A state is conclusive if every state reachable from it has the same verdict,
+ * i.e., its verdict is final and no further event needs to be fed. Conclusive
+ * states are precomputed when a monitor is created (see
+ * {@link #isConclusive(int)}).
+ * <p>
+ * Stepping a monitor neither allocates nor performs any lookups in hash-based
+ * structures. Instances of this class are thread-safe.
+ */
+public final class CompiledMonitor {
+
+	/**
+	 * Number of atomic propositions.
+	 */
+	private final int numPropositions;
+
+	/**
+	 * Number of letters (i.e., {@code 2^numPropositions}).
+	 */
+	private final int alphabetSize;
+
+	/**
+	 * The initial state.
+	 */
+	private final int initialState;
+
+	/**
+	 * The transition table (indexed by {@code state * alphabetSize + letter}).
+	 */
+	private final int[] next;
+
+	/**
+	 * The verdict of each state.
+	 */
+	private final byte[] verdicts;
+
+	/**
+	 * Whether each state is conclusive.
+	 */
+	private final boolean[] conclusive;
+
+	/**
+	 * Creates a new monitor from its tables. The arrays are not copied.
+	 *
+	 * @param numPropositions The number of atomic propositions
+	 * @param initialState    The initial state
+	 * @param next            The transition table
+	 * @param verdicts        The verdict of each state
+	 */
+	CompiledMonitor(int numPropositions, int initialState, int[] next, byte[] verdicts) {
+
+		assert (0 <= numPropositions && numPropositions < 31);
+		assert (next.length == verdicts.length << numPropositions);
+		assert (0 <= initialState && initialState < verdicts.length);
+
+		this.numPropositions = numPropositions;
+		this.alphabetSize = 1 << numPropositions;
+		this.initialState = initialState;
+		this.next = next;
+		this.verdicts = verdicts;
+		this.conclusive = conclusiveStates(alphabetSize, next, verdicts);
+
+	}
+
+	/**
+	 * Determines the conclusive states of a monitor. A state is not conclusive if
+	 * and only if it can reach a transition between states with different
+	 * verdicts, so the states that are not conclusive are found by a backward
+	 * search from the sources of such transitions.
+	 *
+	 * @param alphabetSize The number of letters
+	 * @param next         The transition table
+	 * @param verdicts     The verdict of each state
+	 * @return whether each state is conclusive
+	 */
+	private static boolean[] conclusiveStates(int alphabetSize, int[] next, byte[] verdicts) {
+
+		int numStates = verdicts.length;
+
+		//
+		// Index the predecessors of each state (predecessors of state s are stored
+		// at predecessors[offsets[s] ... offsets[s + 1] - 1])
+		//
+		int[] offsets = new int[numStates + 1];
+		for (int successor : next) {
+			offsets[successor + 1] += 1;
+		}
+		for (int s = 0; s < numStates; ++s) {
+			offsets[s + 1] += offsets[s];
+		}
+		int[] predecessors = new int[next.length];
+		int[] fill = Arrays.copyOf(offsets, numStates);
+		for (int i = 0; i < next.length; ++i) {
+			predecessors[fill[next[i]]++] = i / alphabetSize;
+		}
+
+		//
+		// Search backwards from states with a transition changing the verdict
+		//
+		boolean[] changing = new boolean[numStates];
+		int[] queue = new int[numStates];
+		int tail = 0;
+		for (int s = 0; s < numStates; ++s) {
+			for (int l = 0; l < alphabetSize; ++l) {
+				if (verdicts[next[s * alphabetSize + l]] != verdicts[s]) {
+					changing[s] = true;
+					queue[tail++] = s;
+					break;
+				}
+			}
+		}
+		for (int head = 0; head < tail; ++head) {
+			int s = queue[head];
+			for (int i = offsets[s]; i < offsets[s + 1]; ++i) {
+				int predecessor = predecessors[i];
+				if (!changing[predecessor]) {
+					changing[predecessor] = true;
+					queue[tail++] = predecessor;
+				}
+			}
+		}
+
+		boolean[] conclusive = new boolean[numStates];
+		for (int s = 0; s < numStates; ++s) {
+			conclusive[s] = !changing[s];
+		}
+		return conclusive;
+
+	}
+
+	/**
+	 * Compiles a Moore machine constructed by
+	 * {@link de.mpi_sws.rltlmonitor.MonitorConstructor} into a table-driven
+	 * monitor.
+	 * <p>
+	 * The input alphabet of the Moore machine must be the power set of the atomic
+	 * propositions. Missing transitions (Owl omits transitions into rejecting sinks)
+	 * lead to an additional sink state whose verdict is the empty set. The
+	 * resulting monitor is as large as the given Moore machine (plus the sink if
+	 * required); thus, the Moore machine should be minimized beforehand.
+	 *
+	 * @param monitor The Moore machine to compile
+	 * @return the compiled monitor
+	 */
+	public static CompiledMonitor compile(CompactMoore<BitSet, BitSet> monitor) {
+
+		var alphabet = monitor.getInputAlphabet();
+		int alphabetSize = alphabet.size();
+		if (Integer.bitCount(alphabetSize) != 1) {
+			throw new IllegalArgumentException("Input alphabet is not a power set");
+		}
+		int numPropositions = Integer.numberOfTrailingZeros(alphabetSize);
+
+		//
+		// Map letters of the alphabet to their bit masks
+		//
+		int[] letters = new int[alphabetSize];
+		for (int i = 0; i < alphabetSize; ++i) {
+			letters[i] = letter(alphabet.getSymbol(i));
+			if (letters[i] >= alphabetSize) {
+				throw new IllegalArgumentException("Input alphabet is not a power set");
+			}
+		}
+
+		//
+		// Create tables (with room for an additional sink state)
+		//
+		int numStates = monitor.size();
+		int sink = numStates;
+		boolean needsSink = false;
+		int[] next = new int[(numStates + 1) * alphabetSize];
+		byte[] verdicts = new byte[numStates + 1];
+
+		for (int id = 0; id < numStates; ++id) {
+
+			verdicts[id] = verdict(monitor.getStateOutput(id));
+
+			for (int i = 0; i < alphabetSize; ++i) {
+
+				int successor = monitor.getSuccessor(id, i);
+				if (successor < 0) {
+					next[id * alphabetSize + letters[i]] = sink;
+					needsSink = true;
+				} else {
+					next[id * alphabetSize + letters[i]] = successor;
+				}
+
+			}
+
+		}
+
+		//
+		// Finish sink or drop it if it is not needed
+		//
+		if (needsSink) {
+			for (int l = 0; l < alphabetSize; ++l) {
+				next[sink * alphabetSize + l] = sink;
+			}
+		} else {
+			next = Arrays.copyOf(next, numStates * alphabetSize);
+			verdicts = Arrays.copyOf(verdicts, numStates);
+		}
+
+		return new CompiledMonitor(numPropositions, monitor.getIntInitialState(), next, verdicts);
+
+	}
+
+	/**
+	 * Converts this monitor back into a Moore machine over the power-set alphabet
+	 * (see {@link #powerSetAlphabet(int)}). The ids of the states are preserved.
+	 *
+	 * @return the Moore machine
+	 */
+	public CompactMoore<BitSet, BitSet> toMooreMachine() {
+
+		CompactMoore<BitSet, BitSet> result = new CompactMoore<>(powerSetAlphabet(numPropositions));
+		for (int state = 0; state < size(); ++state) {
+			result.addIntState(truthValues(verdicts[state]));
+		}
+		result.setInitialState(initialState);
+
+		for (int state = 0; state < size(); ++state) {
+			for (int l = 0; l < alphabetSize; ++l) {
+				result.setTransition(state, l, next[state * alphabetSize + l]);
+			}
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * Returns the power set of {@code numPropositions} atomic propositions as an
+	 * alphabet in which the index of each letter is its bit mask.
+	 *
+	 * @param numPropositions The number of atomic propositions
+	 * @return the power-set alphabet
+	 */
+	public static Alphabet<BitSet> powerSetAlphabet(int numPropositions) {
+
+		if (numPropositions < 0 || numPropositions >= 31) {
+			throw new IllegalArgumentException("Invalid number of atomic propositions: " + numPropositions);
+		}
+
+		List<BitSet> letters = new ArrayList<>(1 << numPropositions);
+		for (int mask = 0; mask < 1 << numPropositions; ++mask) {
+			letters.add(BitSet.valueOf(new long[] { mask }));
+		}
+		return Alphabets.fromList(letters);
+
+	}
+
+	/**
+	 * Converts a valuation of the atomic propositions to a letter of a compiled
+	 * monitor. This method does not allocate.
+	 *
+	 * @param valuation The set of atomic propositions that hold
+	 * @return the corresponding letter
+	 */
+	public static int letter(BitSet valuation) {
+
+		int letter = 0;
+		for (int i = valuation.nextSetBit(0); i >= 0; i = valuation.nextSetBit(i + 1)) {
+			letter |= 1 << i;
+		}
+		return letter;
+
+	}
+
+	/**
+	 * Converts an output of a Moore machine to a verdict.
+	 *
+	 * @param output The output
+	 * @return the verdict as bit mask
+	 */
+	static byte verdict(BitSet output) {
+		return (byte) letter(output);
+	}
+
+	/**
+	 * Converts a verdict back to the set of possible truth values.
+	 *
+	 * @param verdict The verdict
+	 * @return the set of truth values contained in {@code verdict}
+	 */
+	public static BitSet truthValues(byte verdict) {
+		return BitSet.valueOf(new long[] { verdict & 0xff });
+	}
+
+	/**
+	 * Returns the successor of a state on a letter.
+	 *
+	 * @param state  The current state
+	 * @param letter The letter (i.e., a bit mask of the propositions that hold),
+	 *               which must be below {@link #alphabetSize()}
+	 * @return the successor state
+	 */
+	public int step(int state, int letter) {
+		assert (0 <= letter && letter < alphabetSize);
+		return next[state * alphabetSize + letter];
+	}
+
+	/**
+	 * Returns the state reached after reading the given letters from a state.
+	 *
+	 * @param state   The state to start from
+	 * @param letters The letters to read, each of which must be below
+	 *                {@link #alphabetSize()}
+	 * @param from    Index of the first letter to read (inclusive)
+	 * @param to      Index of the last letter to read (exclusive)
+	 * @return the state reached
+	 */
+	public int run(int state, int[] letters, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			assert (0 <= letters[i] && letters[i] < alphabetSize);
+			state = next[state * alphabetSize + letters[i]];
+		}
+		return state;
+	}
+
+	/**
+	 * Advances many independent traces by one letter each: state
+	 * {@code states[i]} is replaced by its successor on {@code letters[i]}, and
+	 * the verdict of the successor is stored in {@code verdicts[i]} (for
+	 * {@code from <= i < to}).
+	 * <p>
+	 * The loop consists of two table lookups per trace without any calls, so
+	 * that replaying many traces column by column (e.g., one column per position
+	 * of archived logs) is bound by memory rather than by dispatch.
+	 *
+	 * @param states   The current state of each trace, which is overwritten by
+	 *                 its successor
+	 * @param letters  The next letter of each trace, each of which must be below
+	 *                 {@link #alphabetSize()} (a larger letter would select the
+	 *                 row of another state, since the index is computed by a
+	 *                 shift instead of a multiplication)
+	 * @param verdicts The array to store the verdict of each trace in
+	 * @param from     Index of the first trace to advance (inclusive)
+	 * @param to       Index of the last trace to advance (exclusive)
+	 */
+	public void step(int[] states, int[] letters, byte[] verdicts, int from, int to) {
+		int shift = numPropositions;
+		int[] next = this.next;
+		byte[] stateVerdicts = this.verdicts;
+		for (int i = from; i < to; ++i) {
+			assert (letters[i] >>> shift == 0);
+			int successor = next[states[i] << shift | letters[i]];
+			states[i] = successor;
+			verdicts[i] = stateVerdicts[successor];
+		}
+	}
+
+	/**
+	 * Returns the verdict of a state as bit mask of the truth values that are
+	 * still possible.
+	 *
+	 * @param state The state
+	 * @return the verdict of {@code state}
+	 */
+	public byte verdict(int state) {
+		return verdicts[state];
+	}
+
+	/**
+	 * Checks whether a state is conclusive, i.e., whether its verdict can no
+	 * longer change.
+	 *
+	 * @param state The state
+	 * @return whether all states reachable from {@code state} have its verdict
+	 */
+	public boolean isConclusive(int state) {
+		return conclusive[state];
+	}
+
+	/**
+	 * Returns the initial state.
+	 *
+	 * @return the initial state
+	 */
+	public int initialState() {
+		return initialState;
+	}
+
+	/**
+	 * Returns the number of states.
+	 *
+	 * @return the number of states
+	 */
+	public int size() {
+		return verdicts.length;
+	}
+
+	/**
+	 * Returns the number of atomic propositions.
+	 *
+	 * @return the number of atomic propositions
+	 */
+	public int numPropositions() {
+		return numPropositions;
+	}
+
+	/**
+	 * Returns the number of letters.
+	 *
+	 * @return the number of letters
+	 */
+	public int alphabetSize() {
+		return alphabetSize;
+	}
+
+}
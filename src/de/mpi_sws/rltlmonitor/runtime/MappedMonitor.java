@@ -0,0 +1,286 @@
+package de.mpi_sws.rltlmonitor.runtime;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.Optional;
+
+import de.mpi_sws.rltlmonitor.symbolic.SymbolicMonitor;
+import net.automatalib.serialization.FormatException;
+
+/**
+ * A monitor in the binary format of {@link MonitorFormat} that is evaluated
+ * directly on the buffer it was read from (usually a memory-mapped file).
+ * <p>
+ * Opening a monitor parses its header and checks once that every successor in
+ * the transition table is a state (see {@link MonitorFormat#read}), so a
+ * corrupt file is rejected when it is loaded. The tables are not copied, and
+ * they are accessed through bounds-checked buffers, so a buffer modified
+ * afterwards never leads to undefined behavior. Use
+ * {@link #toCompiledMonitor()} to copy the tables (which also checks the
+ * verdicts).
+ * <p>
+ * States and letters are represented as for {@link CompiledMonitor} (in
+ * particular, letters must be below {@link #alphabetSize()}). Instances of
+ * this class are thread-safe (as long as the underlying buffer is not
+ * modified).
+ */
+public final class MappedMonitor {
+
+	/**
+	 * The names of the atomic propositions, ordered by their index.
+	 */
+	private final List<String> propositions;
+
+	/**
+	 * Number of truth values (i.e., the number of bits of the verdicts).
+	 */
+	private final int numTruthValues;
+
+	/**
+	 * Number of letters (i.e., {@code 2^numPropositions}).
+	 */
+	private final int alphabetSize;
+
+	/**
+	 * The initial state.
+	 */
+	private final int initialState;
+
+	/**
+	 * The transition table (indexed by {@code state * alphabetSize + letter}).
+	 */
+	private final IntBuffer next;
+
+	/**
+	 * The verdict of each state.
+	 */
+	private final ByteBuffer verdicts;
+
+	/**
+	 * The symbolic representation of this monitor or {@code null} if the file
+	 * does not contain one.
+	 */
+	private final ByteBuffer guards;
+
+	/**
+	 * The key of this monitor or {@code null} if the file does not contain one.
+	 */
+	private final String key;
+
+	/**
+	 * Creates a new monitor from the (unchecked) sections of a file.
+	 *
+	 * @param propositions   The names of the atomic propositions
+	 * @param numTruthValues The number of truth values
+	 * @param initialState   The initial state
+	 * @param next           The transition table
+	 * @param verdicts       The verdict of each state
+	 * @param guards         The symbolic representation or {@code null}
+	 * @param key            The key or {@code null}
+	 */
+	MappedMonitor(List<String> propositions, int numTruthValues, int initialState, IntBuffer next,
+			ByteBuffer verdicts, ByteBuffer guards, String key) {
+
+		assert (next.capacity() == verdicts.capacity() << propositions.size());
+		assert (0 <= initialState && initialState < verdicts.capacity());
+
+		this.propositions = propositions;
+		this.numTruthValues = numTruthValues;
+		this.alphabetSize = 1 << propositions.size();
+		this.initialState = initialState;
+		this.next = next;
+		this.verdicts = verdicts;
+		this.guards = guards;
+		this.key = key;
+
+	}
+
+	/**
+	 * Returns the successor of a state on a letter.
+	 *
+	 * @param state  The current state
+	 * @param letter The letter (i.e., a bit mask of the propositions that hold),
+	 *               which must be below {@link #alphabetSize()}
+	 * @return the successor state
+	 */
+	public int step(int state, int letter) {
+		assert (0 <= letter && letter < alphabetSize);
+		return next.get(state * alphabetSize + letter);
+	}
+
+	/**
+	 * Returns the state reached after reading the given letters from a state.
+	 *
+	 * @param state   The state to start from
+	 * @param letters The letters to read, each of which must be below
+	 *                {@link #alphabetSize()}
+	 * @param from    Index of the first letter to read (inclusive)
+	 * @param to      Index of the last letter to read (exclusive)
+	 * @return the state reached
+	 */
+	public int run(int state, int[] letters, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			assert (0 <= letters[i] && letters[i] < alphabetSize);
+			state = next.get(state * alphabetSize + letters[i]);
+		}
+		return state;
+	}
+
+	/**
+	 * Advances many independent traces by one letter each: state
+	 * {@code states[i]} is replaced by its successor on {@code letters[i]}, and
+	 * the verdict of the successor is stored in {@code verdicts[i]} (for
+	 * {@code from <= i < to}).
+	 *
+	 * @param states   The current state of each trace, which is overwritten by
+	 *                 its successor
+	 * @param letters  The next letter of each trace, each of which must be below
+	 *                 {@link #alphabetSize()}
+	 * @param verdicts The array to store the verdict of each trace in
+	 * @param from     Index of the first trace to advance (inclusive)
+	 * @param to       Index of the last trace to advance (exclusive)
+	 */
+	public void step(int[] states, int[] letters, byte[] verdicts, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			assert (0 <= letters[i] && letters[i] < alphabetSize);
+			int successor = next.get(states[i] * alphabetSize + letters[i]);
+			states[i] = successor;
+			verdicts[i] = this.verdicts.get(successor);
+		}
+	}
+
+	/**
+	 * Returns the verdict of a state as bit mask of the truth values that are
+	 * still possible.
+	 *
+	 * @param state The state
+	 * @return the verdict of {@code state}
+	 */
+	public byte verdict(int state) {
+		return verdicts.get(state);
+	}
+
+	/**
+	 * Returns the initial state.
+	 *
+	 * @return the initial state
+	 */
+	public int initialState() {
+		return initialState;
+	}
+
+	/**
+	 * Returns the number of states.
+	 *
+	 * @return the number of states
+	 */
+	public int size() {
+		return verdicts.capacity();
+	}
+
+	/**
+	 * Returns the names of the atomic propositions.
+	 *
+	 * @return the atomic propositions, ordered by their index
+	 */
+	public List<String> propositions() {
+		return propositions;
+	}
+
+	/**
+	 * Returns the number of atomic propositions.
+	 *
+	 * @return the number of atomic propositions
+	 */
+	public int numPropositions() {
+		return propositions.size();
+	}
+
+	/**
+	 * Returns the number of letters.
+	 *
+	 * @return the number of letters
+	 */
+	public int alphabetSize() {
+		return alphabetSize;
+	}
+
+	/**
+	 * Returns the number of truth values (5 for rLTL and 2 for LTL monitors).
+	 *
+	 * @return the number of truth values
+	 */
+	public int numTruthValues() {
+		return numTruthValues;
+	}
+
+	/**
+	 * Returns the key identifying this monitor, if the file contains one.
+	 *
+	 * @return the key or an empty optional
+	 */
+	public Optional<String> key() {
+		return Optional.ofNullable(key);
+	}
+
+	/**
+	 * Copies the tables of this monitor into a {@link CompiledMonitor}, checking
+	 * that all transitions and verdicts are valid.
+	 *
+	 * @return the compiled monitor
+	 * @throws FormatException If the tables are invalid
+	 */
+	public CompiledMonitor toCompiledMonitor() {
+
+		int[] table = new int[next.capacity()];
+		next.duplicate().get(table);
+		for (int successor : table) {
+			if (successor < 0 || successor >= size()) {
+				throw new FormatException("Invalid transition table");
+			}
+		}
+
+		byte[] bytes = new byte[verdicts.capacity()];
+		verdicts.duplicate().get(bytes);
+		for (byte verdict : bytes) {
+			if ((verdict & 0xff) >= 1 << numTruthValues) {
+				throw new FormatException("Invalid verdict");
+			}
+		}
+
+		return new CompiledMonitor(numPropositions(), initialState, table, bytes);
+
+	}
+
+	/**
+	 * Reads the symbolic representation of this monitor, if the file contains one.
+	 * The decision diagrams are copied and checked.
+	 *
+	 * @return the symbolic monitor or an empty optional if the file does not
+	 *         contain symbolic guards
+	 * @throws FormatException If the symbolic representation is invalid or does
+	 *                         not match this monitor
+	 */
+	public Optional<SymbolicMonitor> symbolicMonitor() {
+
+		if (guards == null) {
+			return Optional.empty();
+		}
+
+		SymbolicMonitor monitor;
+		try {
+			monitor = SymbolicMonitor.readFrom(guards.duplicate());
+		} catch (IllegalArgumentException | BufferUnderflowException e) {
+			throw new FormatException("Invalid symbolic guards", e);
+		}
+		if (monitor.numPropositions() > numPropositions() || monitor.size() != size()
+				|| monitor.initialState() != initialState) {
+			throw new FormatException("Symbolic guards do not match the transition table");
+		}
+		return Optional.of(monitor);
+
+	}
+
+}
@@ -0,0 +1,415 @@
+package de.mpi_sws.rltlmonitor.runtime;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import de.mpi_sws.rltlmonitor.symbolic.SymbolicMonitor;
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
+import net.automatalib.serialization.FormatException;
+import net.automatalib.serialization.InputModelData;
+import net.automatalib.serialization.InputModelSerializationProvider;
+import net.automatalib.words.Alphabet;
+
+/**
+ * A versioned binary format for deploying (r)LTL monitors.
+ * <p>
+ * A file consists of the following sections, each of which starts at a
+ * multiple of four bytes (all integers are big-endian):
+ * <ol>
+ * <li>A header of eight {@code int}s: the magic number ("RLTB"), the format
+ * version, flags (bit 0 is set if the file contains symbolic guards, bit 1 if
+ * it contains a key), the number of atomic propositions, the number of truth
+ * values (5 for rLTL and 2 for LTL monitors; bit {@code i} of a verdict is set
+ * if and only if truth value {@code i} is still possible), the initial state,
+ * the number of states and the length of the symbolic guards in bytes (0 if
+ * there are none).</li>
+ * <li>The names of the atomic propositions, ordered by their index, each as its
+ * length in bytes followed by its UTF-8 encoding.</li>
+ * <li>Optionally, a key identifying the monitor (e.g., the normalized formula
+ * of an entry of a {@link de.mpi_sws.rltlmonitor.MonitorCache}), encoded as a
+ * proposition name.</li>
+ * <li>The transition table, one {@code int} per entry, indexed by
+ * {@code state * 2^n + letter} (see {@link CompiledMonitor}).</li>
+ * <li>The verdicts, one byte per state.</li>
+ * <li>Optionally, the symbolic representation of the monitor in the format of
+ * {@link SymbolicMonitor#writeTo}, whose states coincide with those of the
+ * transition table (its decision diagrams may omit propositions that do not
+ * matter).</li>
+ * </ol>
+ * Files can be read without copying the tables with {@link #map(Path)}, which
+ * returns a {@link MappedMonitor} backed by the memory-mapped file. Moreover,
+ * instances of this class serialize and deserialize the Moore machines
+ * constructed by {@link de.mpi_sws.rltlmonitor.MonitorConstructor} through
+ * AutomataLib's serialization interfaces.
+ */
+public final class MonitorFormat implements
+		InputModelSerializationProvider<BitSet, CompactMoore<BitSet, BitSet>, CompactMoore<BitSet, BitSet>> {
+
+	/**
+	 * Number of truth values of rLTL monitors.
+	 */
+	public static final int RLTL_TRUTH_VALUES = 5;
+
+	/**
+	 * Number of truth values of LTL monitors.
+	 */
+	public static final int LTL_TRUTH_VALUES = 2;
+
+	/**
+	 * Magic number at the beginning of each file ("RLTB").
+	 */
+	private static final int MAGIC = 0x524c5442;
+
+	/**
+	 * Version of the file format.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Flag indicating that a file contains symbolic guards.
+	 */
+	private static final int FLAG_SYMBOLIC = 1;
+
+	/**
+	 * Flag indicating that a file contains a key.
+	 */
+	private static final int FLAG_KEY = 2;
+
+	/**
+	 * The names of the atomic propositions written by
+	 * {@link #writeModel(OutputStream, CompactMoore, Alphabet)}.
+	 */
+	private final List<String> propositions;
+
+	/**
+	 * The number of truth values written by
+	 * {@link #writeModel(OutputStream, CompactMoore, Alphabet)}.
+	 */
+	private final int numTruthValues;
+
+	/**
+	 * Creates a serialization provider for Moore machines over the given atomic
+	 * propositions. The propositions and truth values are only used for writing;
+	 * reading accepts monitors over any propositions.
+	 *
+	 * @param propositions   The names of the atomic propositions, ordered by their
+	 *                       index
+	 * @param numTruthValues The number of truth values ({@link #RLTL_TRUTH_VALUES}
+	 *                       or {@link #LTL_TRUTH_VALUES})
+	 */
+	public MonitorFormat(List<String> propositions, int numTruthValues) {
+		checkTruthValues(numTruthValues);
+		this.propositions = List.copyOf(propositions);
+		this.numTruthValues = numTruthValues;
+	}
+
+	@Override
+	public void writeModel(OutputStream os, CompactMoore<BitSet, BitSet> model, Alphabet<BitSet> alphabet)
+			throws IOException {
+		if (!alphabet.equals(model.getInputAlphabet())) {
+			throw new IllegalArgumentException("Alphabet does not match the input alphabet of the model");
+		}
+		write(os, CompiledMonitor.compile(model), propositions, numTruthValues, null);
+	}
+
+	@Override
+	public InputModelData<BitSet, CompactMoore<BitSet, BitSet>> readModel(InputStream is) throws IOException {
+		var buffer = ByteBuffer.wrap(is.readAllBytes());
+		var machine = read(buffer).toCompiledMonitor().toMooreMachine();
+		return new InputModelData<>(machine, machine.getInputAlphabet());
+	}
+
+	//
+	// Writing
+	//
+
+	/**
+	 * Writes a monitor to a stream. The stream is flushed, but not closed.
+	 * <p>
+	 * The transition table is written over the power set of all given atomic
+	 * propositions.
+	 *
+	 * @param out            The stream to write to
+	 * @param monitor        The monitor
+	 * @param propositions   The names of the atomic propositions, ordered by their
+	 *                       index (a prefix of which are the propositions of
+	 *                       {@code monitor}, e.g., if Owl dropped irrelevant
+	 *                       propositions of the formula)
+	 * @param numTruthValues The number of truth values ({@link #RLTL_TRUTH_VALUES}
+	 *                       or {@link #LTL_TRUTH_VALUES})
+	 * @param guards         The symbolic representation of the monitor (with the
+	 *                       same states as {@code monitor}) or {@code null}
+	 * @throws IOException If writing fails
+	 */
+	public static void write(OutputStream out, CompiledMonitor monitor, List<String> propositions,
+			int numTruthValues, SymbolicMonitor guards) throws IOException {
+		write(out, monitor, propositions, numTruthValues, guards, null);
+	}
+
+	/**
+	 * Writes a monitor together with a key identifying it to a stream (see
+	 * {@link #write(OutputStream, CompiledMonitor, List, int, SymbolicMonitor)}).
+	 *
+	 * @param out            The stream to write to
+	 * @param monitor        The monitor
+	 * @param propositions   The names of the atomic propositions, ordered by their
+	 *                       index
+	 * @param numTruthValues The number of truth values ({@link #RLTL_TRUTH_VALUES}
+	 *                       or {@link #LTL_TRUTH_VALUES})
+	 * @param guards         The symbolic representation of the monitor (with the
+	 *                       same states as {@code monitor}) or {@code null}
+	 * @param key            The key of the monitor or {@code null}
+	 * @throws IOException If writing fails
+	 */
+	public static void write(OutputStream out, CompiledMonitor monitor, List<String> propositions,
+			int numTruthValues, SymbolicMonitor guards, String key) throws IOException {
+
+		checkTruthValues(numTruthValues);
+		if (propositions.size() < monitor.numPropositions() || propositions.size() >= 31) {
+			throw new IllegalArgumentException("Expected " + monitor.numPropositions() + " atomic propositions but got "
+					+ propositions.size());
+		}
+		if (guards != null && (guards.numPropositions() > propositions.size()
+				|| guards.size() != monitor.size() || guards.initialState() != monitor.initialState())) {
+			throw new IllegalArgumentException("Symbolic guards do not match the monitor");
+		}
+
+		//
+		// Serialize guards up front, since the header contains their length
+		//
+		byte[] guardBytes = new byte[0];
+		if (guards != null) {
+			var bytes = new ByteArrayOutputStream();
+			try (var guardOut = new DataOutputStream(bytes)) {
+				guards.writeTo(guardOut);
+			}
+			guardBytes = bytes.toByteArray();
+		}
+
+		var data = new DataOutputStream(new BufferedOutputStream(out));
+
+		//
+		// Header
+		//
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt((guards != null ? FLAG_SYMBOLIC : 0) | (key != null ? FLAG_KEY : 0));
+		data.writeInt(propositions.size());
+		data.writeInt(numTruthValues);
+		data.writeInt(monitor.initialState());
+		data.writeInt(monitor.size());
+		data.writeInt(guardBytes.length);
+
+		//
+		// Proposition names
+		//
+		for (String proposition : propositions) {
+			writeString(data, proposition);
+		}
+		if (key != null) {
+			writeString(data, key);
+		}
+		pad(data);
+
+		//
+		// Tables (propositions the monitor does not know are ignored)
+		//
+		int mask = monitor.alphabetSize() - 1;
+		for (int state = 0; state < monitor.size(); ++state) {
+			for (int letter = 0; letter < 1 << propositions.size(); ++letter) {
+				data.writeInt(monitor.step(state, letter & mask));
+			}
+		}
+		for (int state = 0; state < monitor.size(); ++state) {
+			data.writeByte(monitor.verdict(state));
+		}
+		pad(data);
+
+		data.write(guardBytes);
+		data.flush();
+
+	}
+
+	/**
+	 * Writes a string as its length in bytes followed by its UTF-8 encoding.
+	 *
+	 * @param data   The stream
+	 * @param string The string
+	 * @throws IOException If writing fails
+	 */
+	private static void writeString(DataOutputStream data, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		data.writeInt(bytes.length);
+		data.write(bytes);
+	}
+
+	/**
+	 * Pads a stream with zeros to a multiple of four bytes.
+	 *
+	 * @param data The stream
+	 * @throws IOException If writing fails
+	 */
+	private static void pad(DataOutputStream data) throws IOException {
+		while (data.size() % Integer.BYTES != 0) {
+			data.writeByte(0);
+		}
+	}
+
+	//
+	// Reading
+	//
+
+	/**
+	 * Memory-maps a monitor file. The header is read and the transition table is
+	 * checked once; the tables are then accessed through the mapping, which
+	 * remains valid after this method returns.
+	 *
+	 * @param file The file
+	 * @return the monitor backed by the mapped file
+	 * @throws IOException     If the file cannot be read
+	 * @throws FormatException If the file is not a valid monitor file
+	 */
+	public static MappedMonitor map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Reads a monitor from a buffer, starting at its current position. The buffer
+	 * is not modified, and the tables of the returned monitor are views of the
+	 * buffer. Every successor in the transition table is checked to be a state,
+	 * so that a corrupted file is rejected here rather than failing later when
+	 * the monitor is stepped.
+	 *
+	 * @param buffer The buffer containing the monitor file
+	 * @return the monitor backed by {@code buffer}
+	 * @throws FormatException If the buffer does not contain a valid monitor
+	 */
+	public static MappedMonitor read(ByteBuffer buffer) {
+
+		buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+
+		try {
+
+			//
+			// Header
+			//
+			if (buffer.getInt() != MAGIC) {
+				throw new FormatException("Not a monitor file");
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new FormatException("Unsupported format version: " + version);
+			}
+			int flags = buffer.getInt();
+			int numPropositions = buffer.getInt();
+			int numTruthValues = buffer.getInt();
+			int initialState = buffer.getInt();
+			int size = buffer.getInt();
+			int guardLength = buffer.getInt();
+			if ((flags & ~(FLAG_SYMBOLIC | FLAG_KEY)) != 0 || numPropositions < 0 || numPropositions >= 31
+					|| numTruthValues < 1 || numTruthValues > Byte.SIZE || size <= 0 || initialState < 0
+					|| initialState >= size || guardLength < 0
+					|| ((flags & FLAG_SYMBOLIC) != 0) != (guardLength > 0)) {
+				throw new FormatException("Invalid monitor header");
+			}
+
+			//
+			// Proposition names
+			//
+			List<String> propositions = new ArrayList<>(numPropositions);
+			for (int i = 0; i < numPropositions; ++i) {
+				propositions.add(readString(buffer, "Invalid proposition name"));
+			}
+			String key = (flags & FLAG_KEY) != 0 ? readString(buffer, "Invalid key") : null;
+			skipPadding(buffer);
+
+			//
+			// Tables (as views of the buffer)
+			//
+			long tableBytes = ((long) size << numPropositions) * Integer.BYTES;
+			long verdictBytes = (size + Integer.BYTES - 1) / Integer.BYTES * (long) Integer.BYTES;
+			if (tableBytes + verdictBytes + guardLength != buffer.remaining()) {
+				throw new FormatException("Invalid monitor size");
+			}
+
+			var next = buffer.slice().limit((int) tableBytes).slice().asIntBuffer();
+			for (int i = 0; i < next.limit(); ++i) {
+				int successor = next.get(i);
+				if (successor < 0 || successor >= size) {
+					throw new FormatException("Invalid transition table");
+				}
+			}
+			buffer.position(buffer.position() + (int) tableBytes);
+			var verdicts = buffer.slice().limit(size).slice();
+			buffer.position(buffer.position() + (int) verdictBytes);
+			var guards = guardLength > 0 ? buffer.slice() : null;
+
+			return new MappedMonitor(List.copyOf(propositions), numTruthValues, initialState, next, verdicts,
+					guards, key);
+
+		} catch (BufferUnderflowException e) {
+			throw new FormatException("Truncated monitor file", e);
+		}
+
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString}, checking its length before
+	 * allocating it.
+	 *
+	 * @param buffer The buffer
+	 * @param error  The message of the exception thrown for invalid lengths
+	 * @return the string
+	 * @throws FormatException If the length is invalid
+	 */
+	private static String readString(ByteBuffer buffer, String error) {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new FormatException(error);
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Advances the position of a buffer to the next multiple of four bytes.
+	 *
+	 * @param buffer The buffer (whose position 0 is the beginning of the file)
+	 */
+	private static void skipPadding(ByteBuffer buffer) {
+		int position = (buffer.position() + Integer.BYTES - 1) / Integer.BYTES * Integer.BYTES;
+		if (position > buffer.limit()) {
+			throw new BufferUnderflowException();
+		}
+		buffer.position(position);
+	}
+
+	/**
+	 * Checks the number of truth values of a monitor.
+	 *
+	 * @param numTruthValues The number of truth values
+	 */
+	private static void checkTruthValues(int numTruthValues) {
+		if (numTruthValues < 1 || numTruthValues > Byte.SIZE) {
+			throw new IllegalArgumentException("Invalid number of truth values: " + numTruthValues);
+		}
+	}
+
+}
@@ -0,0 +1,349 @@
+package de.mpi_sws.rltlmonitor.runtime;
+
+import java.util.Arrays;
+
+/**
+ * Holds many instances of the same compiled monitor (e.g., one per request or
+ * device), each of which is identified by a slot allocated by this store.
+ * <p>
+ * The states of all instances are stored in a single {@code int} array indexed
+ * by slot, so an instance costs four bytes and no object. Freed slots are
+ * chained into a free list through the same array (a free slot holds
+ * {@code -2 - next}, where {@code next} is the next free slot or {@code -1})
+ * and are reused by later allocations. Unlike {@link MonitorSessions}, which
+ * maps arbitrary session ids to states, callers have to keep track of the slot
+ * of each instance themselves, but stepping an instance does not involve any
+ * hashing.
+ * <p>
+ * A {@link VerdictListener} can be notified whenever the verdict of an
+ * instance changes. Optionally, instances are retired as soon as they reach a
+ * conclusive state (see {@link CompiledMonitor#isConclusive(int)}): the
+ * listener is notified of the final verdict and the slot is freed, so that
+ * monitors that resolve early do not receive further events and their slots
+ * are reused by later allocations (the array itself never shrinks). If the
+ * initial state of the monitor is conclusive (e.g., for a formula that is
+ * trivially true or false), instances are retired as soon as they are
+ * allocated or reset, which is reported by returning {@link #RETIRED} instead
+ * of a slot. This class is not thread-safe.
+ */
+public class MonitorInstances {
+
+	/**
+	 * Listener that is notified when the verdict of an instance changes.
+	 */
+	public interface VerdictListener {
+
+		/**
+		 * A listener that ignores all changes.
+		 */
+		VerdictListener NONE = new VerdictListener() {
+
+			@Override
+			public void verdictChanged(int slot, byte previous, byte current) {
+			}
+
+		};
+
+		/**
+		 * Called after an event changed the verdict of an instance.
+		 *
+		 * @param slot     The slot of the instance
+		 * @param previous The verdict before the event
+		 * @param current  The verdict after the event
+		 */
+		void verdictChanged(int slot, byte previous, byte current);
+
+		/**
+		 * Called after an instance reached a conclusive state and before its slot is
+		 * freed (only if retirement is enabled). Does nothing by default.
+		 *
+		 * @param slot    The slot of the instance
+		 * @param verdict The final verdict of the instance
+		 */
+		default void instanceRetired(int slot, byte verdict) {
+		}
+
+	}
+
+	/**
+	 * Returned instead of a slot by {@link #allocate()} and {@link #reset(int)} if
+	 * the instance was retired right away (i.e., retirement is enabled and the
+	 * initial state of the monitor is conclusive).
+	 */
+	public static final int RETIRED = -1;
+
+	/**
+	 * Marks the end of the free list.
+	 */
+	private static final int END = -1;
+
+	/**
+	 * The monitor all instances execute.
+	 */
+	private final CompiledMonitor monitor;
+
+	/**
+	 * The listener to notify about verdict changes.
+	 */
+	private final VerdictListener listener;
+
+	/**
+	 * Whether instances are retired once they reach a conclusive state.
+	 */
+	private final boolean retireConclusive;
+
+	/**
+	 * The current state of each allocated slot, or {@code -2 - next} for free
+	 * slots (where {@code next} is the next free slot).
+	 */
+	private int[] states;
+
+	/**
+	 * The number of slots that have ever been allocated (i.e., the slots beyond
+	 * are neither allocated nor in the free list).
+	 */
+	private int used = 0;
+
+	/**
+	 * The first free slot, or {@link #END} if no slot below {@link #used} is free.
+	 */
+	private int firstFree = END;
+
+	/**
+	 * The number of allocated slots.
+	 */
+	private int size = 0;
+
+	/**
+	 * Creates an empty store without verdict listener.
+	 *
+	 * @param monitor           The monitor all instances execute
+	 * @param expectedInstances The expected number of concurrent instances
+	 */
+	public MonitorInstances(CompiledMonitor monitor, int expectedInstances) {
+		this(monitor, expectedInstances, VerdictListener.NONE);
+	}
+
+	/**
+	 * Creates an empty store.
+	 *
+	 * @param monitor           The monitor all instances execute
+	 * @param expectedInstances The expected number of concurrent instances
+	 * @param listener          The listener to notify about verdict changes
+	 */
+	public MonitorInstances(CompiledMonitor monitor, int expectedInstances, VerdictListener listener) {
+		this(monitor, expectedInstances, listener, false);
+	}
+
+	/**
+	 * Creates an empty store, which optionally retires instances that reach a
+	 * conclusive state.
+	 *
+	 * @param monitor           The monitor all instances execute
+	 * @param expectedInstances The expected number of concurrent instances
+	 * @param listener          The listener to notify about verdict changes and
+	 *                          retired instances
+	 * @param retireConclusive  Whether to free the slots of instances as soon as
+	 *                          their verdict is conclusive
+	 */
+	public MonitorInstances(CompiledMonitor monitor, int expectedInstances, VerdictListener listener,
+			boolean retireConclusive) {
+		if (expectedInstances < 0) {
+			throw new IllegalArgumentException("Invalid number of instances: " + expectedInstances);
+		}
+		this.monitor = monitor;
+		this.listener = listener;
+		this.retireConclusive = retireConclusive;
+		this.states = new int[Math.max(expectedInstances, 16)];
+	}
+
+	/**
+	 * Allocates a slot for a new instance, which starts in the initial state of
+	 * the monitor. If retirement is enabled and the initial state is conclusive,
+	 * the instance is retired right away: no slot is allocated and the listener
+	 * is not notified (the final verdict is the verdict of the initial state).
+	 *
+	 * @return the slot of the new instance, or {@link #RETIRED} if the instance
+	 *         was retired right away
+	 */
+	public int allocate() {
+
+		if (retireConclusive && monitor.isConclusive(monitor.initialState())) {
+			return RETIRED;
+		}
+
+		int slot;
+		if (firstFree != END) {
+			slot = firstFree;
+			firstFree = -2 - states[slot];
+		} else {
+			if (used == states.length) {
+				if (used == Integer.MAX_VALUE - 8) {
+					throw new IllegalStateException("Too many instances");
+				}
+				states = Arrays.copyOf(states, (int) Math.min(Integer.MAX_VALUE - 8, (long) used << 1));
+			}
+			slot = used;
+			used += 1;
+		}
+
+		states[slot] = monitor.initialState();
+		size += 1;
+		return slot;
+
+	}
+
+	/**
+	 * Frees the slot of an instance, which may be reused by later allocations.
+	 *
+	 * @param slot The slot of the instance
+	 */
+	public void free(int slot) {
+		checkAllocated(slot);
+		states[slot] = -2 - firstFree;
+		firstFree = slot;
+		size -= 1;
+	}
+
+	/**
+	 * Feeds an event to an instance and returns the verdict afterwards. If
+	 * retirement is enabled and the instance reaches a conclusive state, its slot
+	 * is freed.
+	 *
+	 * @param slot   The slot of the instance
+	 * @param letter The event as letter of the monitor
+	 * @return the verdict of the instance after processing the event
+	 */
+	public byte step(int slot, int letter) {
+
+		checkAllocated(slot);
+
+		int state = states[slot];
+		int successor = monitor.step(state, letter);
+		states[slot] = successor;
+
+		byte previous = monitor.verdict(state);
+		byte current = monitor.verdict(successor);
+		if (previous != current) {
+			listener.verdictChanged(slot, previous, current);
+		}
+		retireIfConclusive(slot);
+		return current;
+
+	}
+
+	/**
+	 * Feeds a batch of events to instances: the event {@code letters[i]} is fed to
+	 * the instance in slot {@code slots[i]} (for {@code from <= i < to}), in the
+	 * order of the batch. A slot may occur several times in a batch. If
+	 * retirement is enabled, events of slots that are not allocated (e.g., since
+	 * their instance was retired by an earlier event of the batch) are skipped.
+	 *
+	 * @param slots   The slot of each event
+	 * @param letters The events as letters of the monitor
+	 * @param from    Index of the first event to process (inclusive)
+	 * @param to      Index of the last event to process (exclusive)
+	 */
+	public void step(int[] slots, int[] letters, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			if (!retireConclusive || isAllocated(slots[i])) {
+				step(slots[i], letters[i]);
+			}
+		}
+	}
+
+	/**
+	 * Resets an instance to the initial state of the monitor. The verdict
+	 * listener is not notified of the change, but, as in {@link #allocate()},
+	 * the instance is retired if retirement is enabled and the initial state is
+	 * conclusive (in which case the listener is notified of the retirement and
+	 * the slot is freed).
+	 *
+	 * @param slot The slot of the instance
+	 * @return {@code slot}, or {@link #RETIRED} if the instance was retired
+	 */
+	public int reset(int slot) {
+		checkAllocated(slot);
+		states[slot] = monitor.initialState();
+		return retireIfConclusive(slot) ? RETIRED : slot;
+	}
+
+	/**
+	 * Returns the current verdict of an instance.
+	 *
+	 * @param slot The slot of the instance
+	 * @return the current verdict of the instance
+	 */
+	public byte verdict(int slot) {
+		checkAllocated(slot);
+		return monitor.verdict(states[slot]);
+	}
+
+	/**
+	 * Returns the current state of an instance.
+	 *
+	 * @param slot The slot of the instance
+	 * @return the current state of the instance
+	 */
+	public int state(int slot) {
+		checkAllocated(slot);
+		return states[slot];
+	}
+
+	/**
+	 * Checks whether a slot is allocated.
+	 *
+	 * @param slot The slot
+	 * @return whether {@code slot} holds an instance
+	 */
+	public boolean isAllocated(int slot) {
+		return 0 <= slot && slot < used && states[slot] >= 0;
+	}
+
+	/**
+	 * Returns the number of allocated slots.
+	 *
+	 * @return the number of instances
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the monitor the instances execute.
+	 *
+	 * @return the monitor the instances execute
+	 */
+	public CompiledMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Retires an instance if retirement is enabled and its state is conclusive,
+	 * notifying the listener and freeing the slot.
+	 *
+	 * @param slot The slot of the instance
+	 * @return whether the instance was retired
+	 */
+	private boolean retireIfConclusive(int slot) {
+		int state = states[slot];
+		if (retireConclusive && monitor.isConclusive(state)) {
+			listener.instanceRetired(slot, monitor.verdict(state));
+			free(slot);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Throws an exception if a slot is not allocated.
+	 *
+	 * @param slot The slot
+	 */
+	private void checkAllocated(int slot) {
+		if (!isAllocated(slot)) {
+			throw new IllegalArgumentException("Slot not allocated: " + slot);
+		}
+	}
+
+}
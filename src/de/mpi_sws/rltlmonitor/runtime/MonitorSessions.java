@@ -0,0 +1,104 @@
+package de.mpi_sws.rltlmonitor.runtime;
+
+import de.mpi_sws.rltlmonitor.util.LongIntHashMap;
+
+/**
+ * Keeps track of many instances of the same compiled monitor, each of which is
+ * identified by a session id (e.g., a request or device id).
+ * <p>
+ * The state of each session is a single {@code int} stored in a primitive hash
+ * map, so that millions of sessions can be kept in one JVM. A session is
+ * created in the initial state of the monitor when it receives its first event.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class MonitorSessions {
+
+	/**
+	 * Value returned by the state map for unknown sessions.
+	 */
+	private static final int NO_SESSION = -1;
+
+	/**
+	 * The monitor all sessions execute.
+	 */
+	private final CompiledMonitor monitor;
+
+	/**
+	 * The current state of each session.
+	 */
+	private final LongIntHashMap states;
+
+	/**
+	 * Creates an empty set of sessions.
+	 *
+	 * @param monitor          The monitor all sessions execute
+	 * @param expectedSessions The expected number of concurrent sessions
+	 */
+	public MonitorSessions(CompiledMonitor monitor, int expectedSessions) {
+		this.monitor = monitor;
+		this.states = new LongIntHashMap(expectedSessions);
+	}
+
+	/**
+	 * Feeds an event to a session (creating the session if necessary) and
+	 * returns the verdict afterwards.
+	 *
+	 * @param sessionId The session id
+	 * @param letter    The event as letter of the monitor
+	 * @return the verdict of the session after processing the event
+	 */
+	public byte step(long sessionId, int letter) {
+
+		int state = states.getOrDefault(sessionId, NO_SESSION);
+		if (state == NO_SESSION) {
+			state = monitor.initialState();
+		}
+
+		state = monitor.step(state, letter);
+		states.put(sessionId, state);
+
+		return monitor.verdict(state);
+
+	}
+
+	/**
+	 * Returns the current verdict of a session. Unknown sessions are reported
+	 * with the verdict of the initial state.
+	 *
+	 * @param sessionId The session id
+	 * @return the current verdict of the session
+	 */
+	public byte verdict(long sessionId) {
+		return monitor.verdict(states.getOrDefault(sessionId, monitor.initialState()));
+	}
+
+	/**
+	 * Ends a session and forgets its state.
+	 *
+	 * @param sessionId The session id
+	 * @return whether the session existed
+	 */
+	public boolean remove(long sessionId) {
+		return states.remove(sessionId);
+	}
+
+	/**
+	 * Returns the number of sessions.
+	 *
+	 * @return the number of sessions
+	 */
+	public int size() {
+		return states.size();
+	}
+
+	/**
+	 * Returns the monitor the sessions execute.
+	 *
+	 * @return the monitor the sessions execute
+	 */
+	public CompiledMonitor getMonitor() {
+		return monitor;
+	}
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Runtime evaluation of (r)LTL monitors on traces.
+ */
+package de.mpi_sws.rltlmonitor.runtime;
@@ -0,0 +1,139 @@
+package de.mpi_sws.rltlmonitor.symbolic;
+
+import de.mpi_sws.rltlmonitor.util.IntTupleInterner;
+
+/**
+ * Hash-consing store for reduced, ordered decision diagrams over atomic
+ * propositions whose leaves are labelled with integers (e.g., ids of successor
+ * states).
+ * <p>
+ * A diagram is referred to by an {@code int}: references {@code r >= 0} denote
+ * the inner node with id {@code r}, and references {@code r < 0} denote the
+ * leaf labelled with {@code ~r} (i.e., {@code -r - 1}). Each inner node tests
+ * a proposition, and the propositions strictly increase along every path (as
+ * in Owl's {@link owl.collections.ValuationTree}s). Since nodes are interned
+ * and redundant tests are skipped, two diagrams of the same store represent the
+ * same function if and only if their references are equal.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class DecisionDiagramBuilder {
+
+	/**
+	 * The inner nodes as tuples (proposition, high reference, low reference).
+	 */
+	private final IntTupleInterner nodes;
+
+	/**
+	 * Scratch tuple used for interning.
+	 */
+	private final int[] scratch = new int[3];
+
+	/**
+	 * Creates an empty store.
+	 *
+	 * @param expectedSize The expected number of inner nodes
+	 */
+	DecisionDiagramBuilder(int expectedSize) {
+		this.nodes = new IntTupleInterner(3, expectedSize);
+	}
+
+	/**
+	 * Returns the reference of a leaf.
+	 *
+	 * @param value The label of the leaf (non-negative)
+	 * @return the reference of the leaf labelled with {@code value}
+	 */
+	static int leaf(int value) {
+		assert (value >= 0);
+		return ~value;
+	}
+
+	/**
+	 * Checks whether a reference denotes a leaf.
+	 *
+	 * @param ref The reference
+	 * @return whether {@code ref} denotes a leaf
+	 */
+	static boolean isLeaf(int ref) {
+		return ref < 0;
+	}
+
+	/**
+	 * Returns the label of a leaf.
+	 *
+	 * @param ref The reference of the leaf
+	 * @return the label of the leaf
+	 */
+	static int value(int ref) {
+		assert (ref < 0);
+		return ~ref;
+	}
+
+	/**
+	 * Returns the reference of the diagram testing a proposition, skipping the test
+	 * if both branches coincide.
+	 *
+	 * @param proposition The proposition to test (smaller than all propositions
+	 *                    tested in the branches)
+	 * @param high        The diagram if the proposition holds
+	 * @param low         The diagram if the proposition does not hold
+	 * @return the reference of the diagram
+	 */
+	int node(int proposition, int high, int low) {
+
+		if (high == low) {
+			return high;
+		}
+
+		assert (isLeaf(high) || proposition < proposition(high));
+		assert (isLeaf(low) || proposition < proposition(low));
+
+		scratch[0] = proposition;
+		scratch[1] = high;
+		scratch[2] = low;
+		return nodes.intern(scratch);
+
+	}
+
+	/**
+	 * Returns the proposition tested by an inner node.
+	 *
+	 * @param ref The reference of the inner node
+	 * @return the proposition tested by the node
+	 */
+	int proposition(int ref) {
+		return nodes.get(ref, 0);
+	}
+
+	/**
+	 * Returns the branch of an inner node that is taken if the proposition holds.
+	 *
+	 * @param ref The reference of the inner node
+	 * @return the reference of the high branch
+	 */
+	int high(int ref) {
+		return nodes.get(ref, 1);
+	}
+
+	/**
+	 * Returns the branch of an inner node that is taken if the proposition does not
+	 * hold.
+	 *
+	 * @param ref The reference of the inner node
+	 * @return the reference of the low branch
+	 */
+	int low(int ref) {
+		return nodes.get(ref, 2);
+	}
+
+	/**
+	 * Returns the number of inner nodes.
+	 *
+	 * @return the number of inner nodes
+	 */
+	int size() {
+		return nodes.size();
+	}
+
+}
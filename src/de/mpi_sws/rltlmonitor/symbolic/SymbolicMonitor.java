@@ -0,0 +1,550 @@
+package de.mpi_sws.rltlmonitor.symbolic;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.mpi_sws.rltlmonitor.runtime.CompiledMonitor;
+import net.automatalib.automata.transducers.impl.compact.CompactMoore;
+
+/**
+ * An immutable (r)LTL monitor whose transitions are labelled symbolically.
+ * <p>
+ * In contrast to the Moore machines constructed by
+ * {@link de.mpi_sws.rltlmonitor.Owl2Automatalib}, the alphabet of a symbolic
+ * monitor is not expanded into its {@code 2^n} letters. Instead, the transition
+ * function of each state is a reduced, ordered decision diagram over the atomic
+ * propositions whose leaves are the successor states. All diagrams share their
+ * nodes, which are stored in flat arrays, and computing a successor follows one
+ * path from the root of the diagram of a state to a leaf (i.e., it tests at most
+ * {@code n} propositions).
+ * <p>
+ * States are represented by integers {@code 0, ..., size() - 1}, and each
+ * state has a successor for every valuation. As for {@link CompiledMonitor},
+ * the verdict of a state is the output of the monitor encoded as a bit mask
+ * (i.e., bit {@code i} is set if and only if truth value {@code i} is still
+ * possible). Instances of this class are thread-safe.
+ *
+ * @see SymbolicMonitors
+ */
+public final class SymbolicMonitor {
+
+	/**
+	 * Number of atomic propositions.
+	 */
+	private final int numPropositions;
+
+	/**
+	 * The initial state.
+	 */
+	private final int initialState;
+
+	/**
+	 * The reference of the decision diagram of each state (see
+	 * {@link DecisionDiagramBuilder} for the encoding of references).
+	 */
+	private final int[] roots;
+
+	/**
+	 * The verdict of each state.
+	 */
+	private final byte[] verdicts;
+
+	/**
+	 * The proposition tested by each inner node.
+	 */
+	private final int[] propositions;
+
+	/**
+	 * The successor of each inner node if its proposition holds.
+	 */
+	private final int[] high;
+
+	/**
+	 * The successor of each inner node if its proposition does not hold.
+	 */
+	private final int[] low;
+
+	/**
+	 * Creates a new monitor, copying the inner nodes of the given store that are
+	 * reachable from the roots. The arrays {@code roots} and {@code verdicts} are
+	 * not copied, but the references in {@code roots} are replaced by the
+	 * references of the copied nodes.
+	 *
+	 * @param numPropositions The number of atomic propositions
+	 * @param initialState    The initial state
+	 * @param roots           The reference of the decision diagram of each state
+	 * @param verdicts        The verdict of each state
+	 * @param diagrams        The store containing the decision diagrams
+	 */
+	SymbolicMonitor(int numPropositions, int initialState, int[] roots, byte[] verdicts,
+			DecisionDiagramBuilder diagrams) {
+
+		assert (roots.length == verdicts.length);
+		assert (0 <= initialState && initialState < verdicts.length);
+
+		this.numPropositions = numPropositions;
+		this.initialState = initialState;
+		this.roots = roots;
+		this.verdicts = verdicts;
+
+		//
+		// Copy reachable nodes (children before their parents)
+		//
+		int[] copies = new int[diagrams.size()];
+		Arrays.fill(copies, -1);
+		int[] order = new int[diagrams.size()];
+		int count = 0;
+		for (int state = 0; state < roots.length; ++state) {
+			count = collect(diagrams, roots[state], copies, order, count);
+		}
+
+		this.propositions = new int[count];
+		this.high = new int[count];
+		this.low = new int[count];
+		for (int i = 0; i < count; ++i) {
+			int node = order[i];
+			propositions[i] = diagrams.proposition(node);
+			high[i] = copy(diagrams.high(node), copies);
+			low[i] = copy(diagrams.low(node), copies);
+		}
+
+		for (int state = 0; state < roots.length; ++state) {
+			roots[state] = copy(roots[state], copies);
+		}
+
+	}
+
+	/**
+	 * Creates a new monitor from its tables. The arrays are not copied.
+	 *
+	 * @param numPropositions The number of atomic propositions
+	 * @param initialState    The initial state
+	 * @param roots           The reference of the decision diagram of each state
+	 * @param verdicts        The verdict of each state
+	 * @param propositions    The proposition tested by each inner node
+	 * @param high            The successor of each inner node if its proposition
+	 *                        holds
+	 * @param low             The successor of each inner node if its proposition
+	 *                        does not hold
+	 */
+	private SymbolicMonitor(int numPropositions, int initialState, int[] roots, byte[] verdicts, int[] propositions,
+			int[] high, int[] low) {
+
+		assert (roots.length == verdicts.length);
+		assert (0 <= initialState && initialState < verdicts.length);
+
+		this.numPropositions = numPropositions;
+		this.initialState = initialState;
+		this.roots = roots;
+		this.verdicts = verdicts;
+		this.propositions = propositions;
+		this.high = high;
+		this.low = low;
+
+	}
+
+	/**
+	 * Assigns new ids to all unvisited inner nodes of a diagram in post-order.
+	 *
+	 * @param diagrams The store containing the diagram
+	 * @param ref      The reference of the diagram
+	 * @param copies   The new id of each node (-1 if not visited yet)
+	 * @param order    The nodes ordered by their new ids
+	 * @param count    The number of nodes visited so far
+	 * @return the number of nodes visited after visiting the diagram
+	 */
+	private static int collect(DecisionDiagramBuilder diagrams, int ref, int[] copies, int[] order, int count) {
+
+		if (DecisionDiagramBuilder.isLeaf(ref) || copies[ref] >= 0) {
+			return count;
+		}
+
+		count = collect(diagrams, diagrams.high(ref), copies, order, count);
+		count = collect(diagrams, diagrams.low(ref), copies, order, count);
+		copies[ref] = count;
+		order[count] = ref;
+		return count + 1;
+
+	}
+
+	/**
+	 * Translates a reference of the store into a reference of this monitor.
+	 *
+	 * @param ref    The reference of the store
+	 * @param copies The new id of each node
+	 * @return the reference of the copy
+	 */
+	private static int copy(int ref, int[] copies) {
+		return DecisionDiagramBuilder.isLeaf(ref) ? ref : copies[ref];
+	}
+
+	//
+	// Serialization
+	//
+
+	/**
+	 * Writes the tables of this monitor to a stream. The format consists of the
+	 * number of propositions, the initial state, the number of states and the
+	 * number of inner nodes (each as a big-endian {@code int}), followed by the
+	 * reference of the decision diagram of each state, the proposition, high and
+	 * low reference of each inner node (one {@code int} per entry) and the
+	 * verdicts (one byte per state).
+	 *
+	 * @param out The stream to write to
+	 * @throws IOException If writing fails
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+
+		out.writeInt(numPropositions);
+		out.writeInt(initialState);
+		out.writeInt(verdicts.length);
+		out.writeInt(propositions.length);
+		for (int root : roots) {
+			out.writeInt(root);
+		}
+		for (int node = 0; node < propositions.length; ++node) {
+			out.writeInt(propositions[node]);
+			out.writeInt(high[node]);
+			out.writeInt(low[node]);
+		}
+		out.write(verdicts);
+
+	}
+
+	/**
+	 * Reads a monitor in the format of {@link #writeTo(DataOutput)} from a buffer,
+	 * starting at its current position. The position is advanced past the monitor.
+	 *
+	 * @param buffer The buffer to read from (in big-endian byte order)
+	 * @return the monitor
+	 * @throws IllegalArgumentException If the buffer does not contain a valid
+	 *                                  monitor
+	 */
+	public static SymbolicMonitor readFrom(ByteBuffer buffer) {
+
+		int numPropositions = buffer.getInt();
+		int initialState = buffer.getInt();
+		int size = buffer.getInt();
+		int numNodes = buffer.getInt();
+		if (numPropositions < 0 || size <= 0 || initialState < 0 || initialState >= size || numNodes < 0
+				|| size + 3L * numNodes > buffer.remaining() / Integer.BYTES) {
+			throw new IllegalArgumentException("Invalid monitor header");
+		}
+
+		int[] roots = new int[size];
+		for (int state = 0; state < size; ++state) {
+			roots[state] = buffer.getInt();
+		}
+		int[] propositions = new int[numNodes];
+		int[] high = new int[numNodes];
+		int[] low = new int[numNodes];
+		for (int node = 0; node < numNodes; ++node) {
+			propositions[node] = buffer.getInt();
+			high[node] = buffer.getInt();
+			low[node] = buffer.getInt();
+		}
+		byte[] verdicts = new byte[size];
+		buffer.get(verdicts);
+
+		//
+		// Check references (children precede their parents, so the diagrams are
+		// acyclic)
+		//
+		for (int node = 0; node < numNodes; ++node) {
+			if (propositions[node] < 0 || propositions[node] >= numPropositions
+					|| !isValidReference(high[node], node, size) || !isValidReference(low[node], node, size)) {
+				throw new IllegalArgumentException("Invalid decision diagram");
+			}
+		}
+		for (int root : roots) {
+			if (!isValidReference(root, numNodes, size)) {
+				throw new IllegalArgumentException("Invalid decision diagram");
+			}
+		}
+
+		return new SymbolicMonitor(numPropositions, initialState, roots, verdicts, propositions, high, low);
+
+	}
+
+	/**
+	 * Checks whether a reference denotes a leaf labelled with a state or one of the
+	 * given number of inner nodes.
+	 *
+	 * @param ref      The reference
+	 * @param numNodes The number of inner nodes {@code ref} may refer to
+	 * @param size     The number of states
+	 * @return whether {@code ref} is valid
+	 */
+	private static boolean isValidReference(int ref, int numNodes, int size) {
+		return DecisionDiagramBuilder.isLeaf(ref) ? DecisionDiagramBuilder.value(ref) < size : ref < numNodes;
+	}
+
+	/**
+	 * Returns the successor of a state.
+	 *
+	 * @param state     The state
+	 * @param valuation The atomic propositions that hold
+	 * @return the successor of {@code state} on {@code valuation}
+	 */
+	public int step(int state, BitSet valuation) {
+		int ref = roots[state];
+		while (ref >= 0) {
+			ref = valuation.get(propositions[ref]) ? high[ref] : low[ref];
+		}
+		return ~ref;
+	}
+
+	/**
+	 * Returns the successor of a state for a valuation given as a bit mask (i.e.,
+	 * bit {@code i} is set if and only if proposition {@code i} holds). Only the
+	 * first 64 propositions can be set this way; all others are assumed not to
+	 * hold.
+	 *
+	 * @param state     The state
+	 * @param valuation The atomic propositions that hold as a bit mask
+	 * @return the successor of {@code state} on {@code valuation}
+	 */
+	public int step(int state, long valuation) {
+		int ref = roots[state];
+		while (ref >= 0) {
+			int proposition = propositions[ref];
+			ref = proposition < 64 && ((valuation >>> proposition) & 1L) != 0 ? high[ref] : low[ref];
+		}
+		return ~ref;
+	}
+
+	/**
+	 * Returns the verdict of a state.
+	 *
+	 * @param state The state
+	 * @return the verdict of {@code state} as a bit mask of truth values
+	 */
+	public byte verdict(int state) {
+		return verdicts[state];
+	}
+
+	/**
+	 * Returns the initial state.
+	 *
+	 * @return the initial state
+	 */
+	public int initialState() {
+		return initialState;
+	}
+
+	/**
+	 * Returns the number of states.
+	 *
+	 * @return the number of states
+	 */
+	public int size() {
+		return verdicts.length;
+	}
+
+	/**
+	 * Returns the number of inner nodes of all decision diagrams.
+	 *
+	 * @return the number of inner nodes
+	 */
+	public int numNodes() {
+		return propositions.length;
+	}
+
+	/**
+	 * Returns the number of atomic propositions.
+	 *
+	 * @return the number of atomic propositions
+	 */
+	public int numPropositions() {
+		return numPropositions;
+	}
+
+	/**
+	 * Returns the reference of the decision diagram of a state.
+	 *
+	 * @param state The state
+	 * @return the reference of the diagram of {@code state}
+	 */
+	int root(int state) {
+		return roots[state];
+	}
+
+	/**
+	 * Returns the proposition tested by an inner node.
+	 *
+	 * @param ref The reference of the inner node
+	 * @return the proposition tested by the node
+	 */
+	int proposition(int ref) {
+		return propositions[ref];
+	}
+
+	/**
+	 * Returns the branch of an inner node that is taken if the proposition holds.
+	 *
+	 * @param ref The reference of the inner node
+	 * @return the reference of the high branch
+	 */
+	int high(int ref) {
+		return high[ref];
+	}
+
+	/**
+	 * Returns the branch of an inner node that is taken if the proposition does not
+	 * hold.
+	 *
+	 * @param ref The reference of the inner node
+	 * @return the reference of the low branch
+	 */
+	int low(int ref) {
+		return low[ref];
+	}
+
+	/**
+	 * Expands this monitor into a Moore machine over the power-set alphabet (in
+	 * the format of the Moore machines constructed by
+	 * {@link de.mpi_sws.rltlmonitor.Owl2Automatalib}). The ids of the states are
+	 * preserved.
+	 * <p>
+	 * The Moore machine has {@code 2^n} transitions per state and is, hence, only
+	 * feasible for few atomic propositions.
+	 *
+	 * @return the Moore machine
+	 */
+	public CompactMoore<BitSet, BitSet> toExplicit() {
+
+		//
+		// Create states and transitions (the index of a letter is its bit mask)
+		//
+		CompactMoore<BitSet, BitSet> result = new CompactMoore<>(CompiledMonitor.powerSetAlphabet(numPropositions));
+		for (int state = 0; state < size(); ++state) {
+			result.addIntState(CompiledMonitor.truthValues(verdicts[state]));
+		}
+		result.setInitialState(initialState);
+
+		for (int state = 0; state < size(); ++state) {
+			for (int mask = 0; mask < 1 << numPropositions; ++mask) {
+				result.setTransition(state, mask, step(state, (long) mask));
+			}
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * Produces a textual representation of this monitor in the Graphviz Dot
+	 * format (see {@link #writeDot(List, Appendable)}).
+	 *
+	 * @param propositionNames The names of the atomic propositions (propositions
+	 *                         without a name are printed as {@code p<i>})
+	 * @return a textual representation of this monitor in the Graphviz Dot format
+	 */
+	public String toDot(List<String> propositionNames) {
+
+		StringBuilder builder = new StringBuilder();
+		try {
+			writeDot(propositionNames, builder);
+		} catch (IOException e) {
+			// StringBuilder does not throw
+			throw new RuntimeException(e);
+		}
+		return builder.toString();
+
+	}
+
+	/**
+	 * Writes this monitor in the Graphviz Dot format. There is one edge per pair
+	 * of states, which is labelled with a guard in disjunctive normal form (one
+	 * disjunct per path of the decision diagram). The output is written state by
+	 * state, so only the guards of one state are held in memory.
+	 *
+	 * @param propositionNames The names of the atomic propositions (propositions
+	 *                         without a name are printed as {@code p<i>})
+	 * @param out              The destination
+	 * @throws IOException If writing fails
+	 */
+	public void writeDot(List<String> propositionNames, Appendable out) throws IOException {
+
+		//
+		// Header
+		//
+		out.append("digraph Moore {").append(System.lineSeparator());
+
+		//
+		// States
+		//
+		for (int state = 0; state < size(); ++state) {
+			out.append("  ").append(String.valueOf(state)).append(" [label=\"").append(String.valueOf(state))
+					.append("; ").append(String.valueOf(CompiledMonitor.truthValues(verdicts[state]))).append("\"];")
+					.append(System.lineSeparator());
+		}
+
+		//
+		// Initial state
+		//
+		out.append("  ").append("initial").append(String.valueOf(initialState))
+				.append(" [shape=plaintext,label=\"\"];").append(System.lineSeparator());
+		out.append("  ").append("initial").append(String.valueOf(initialState)).append(" -> ")
+				.append(String.valueOf(initialState)).append(";").append(System.lineSeparator());
+
+		//
+		// Transitions
+		//
+		for (int state = 0; state < size(); ++state) {
+
+			Map<Integer, List<String>> guards = new LinkedHashMap<>();
+			collectGuards(roots[state], new ArrayList<>(), propositionNames, guards);
+
+			for (var entry : guards.entrySet()) {
+				out.append("  ").append(String.valueOf(state)).append(" -> ").append(String.valueOf(entry.getKey()))
+						.append(" [label=\"").append(String.join(" | ", entry.getValue())).append("\"];")
+						.append(System.lineSeparator());
+			}
+
+		}
+
+		//
+		// Footer
+		//
+		out.append("};");
+
+	}
+
+	/**
+	 * Collects the paths of a decision diagram as conjunctions of literals, grouped
+	 * by the leaf they lead to.
+	 *
+	 * @param ref              The reference of the diagram
+	 * @param literals         The literals of the path leading to {@code ref}
+	 * @param propositionNames The names of the atomic propositions
+	 * @param guards           The conjunctions found so far, grouped by leaf
+	 */
+	private void collectGuards(int ref, List<String> literals, List<String> propositionNames,
+			Map<Integer, List<String>> guards) {
+
+		if (DecisionDiagramBuilder.isLeaf(ref)) {
+			guards.computeIfAbsent(DecisionDiagramBuilder.value(ref), k -> new ArrayList<>())
+					.add(literals.isEmpty() ? "true" : String.join(" & ", literals));
+			return;
+		}
+
+		int proposition = propositions[ref];
+		String name = proposition < propositionNames.size() ? propositionNames.get(proposition) : "p" + proposition;
+
+		literals.add(name);
+		collectGuards(high[ref], literals, propositionNames, guards);
+		literals.set(literals.size() - 1, "!" + name);
+		collectGuards(low[ref], literals, propositionNames, guards);
+		literals.remove(literals.size() - 1);
+
+	}
+
+}
@@ -0,0 +1,485 @@
+package de.mpi_sws.rltlmonitor.symbolic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.mpi_sws.rltlmonitor.Owl2Automatalib;
+import de.mpi_sws.rltlmonitor.util.IntTupleInterner;
+import de.mpi_sws.rltlmonitor.util.LongIntHashMap;
+import owl.automaton.Automaton;
+import owl.automaton.edge.Edge;
+import owl.collections.ValuationTree;
+
+/**
+ * Construction of {@link SymbolicMonitor}s: conversion of Owl automata,
+ * products and minimization. All operations work on the decision diagrams of
+ * the states and never enumerate the valuations of the atomic propositions.
+ */
+public class SymbolicMonitors {
+
+	/**
+	 * Marker for missing entries of memo tables.
+	 */
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+
+	/**
+	 * Converts a deterministic Owl ω-automaton into a symbolic monitor, analogous
+	 * to {@link Owl2Automatalib#toAutomatalib}. The decision diagrams are
+	 * obtained from the {@link ValuationTree}s of the edges of the Owl automaton
+	 * (see {@link Automaton#edgeTree}). Missing transitions lead to a sink whose
+	 * output is the empty set.
+	 * <p>
+	 * The output of a state is a singleton set containing the argument
+	 * {@code output} if the language from the state is non-empty and the empty set
+	 * otherwise.
+	 *
+	 * @param <S>          The type of the states of the Owl automaton
+	 * @param owlAutomaton The Owl ω-automaton
+	 * @param output       The output to set if the language from a state is
+	 *                     non-empty
+	 * @return the symbolic monitor
+	 */
+	public static <S> SymbolicMonitor fromOwl(Automaton<S, ?> owlAutomaton, int output) {
+
+		assert (owlAutomaton.initialStates().size() <= 1);
+		assert (0 <= output && output <= 4);
+
+		int numPropositions = owlAutomaton.factory().alphabetSize();
+		var diagrams = new DecisionDiagramBuilder(owlAutomaton.size());
+
+		//
+		// Owl returns an automaton without states if the language is empty, which
+		// corresponds to a single sink whose output is the empty set
+		//
+		if (owlAutomaton.initialStates().isEmpty()) {
+			return new SymbolicMonitor(numPropositions, 0, new int[] { DecisionDiagramBuilder.leaf(0) },
+					new byte[] { 0 }, diagrams);
+		}
+
+		//
+		// Explore states (the sink, if needed, is represented by null)
+		//
+		List<S> states = new ArrayList<>(owlAutomaton.size());
+		Map<S, Integer> ids = new HashMap<>(owlAutomaton.size());
+		states.add(owlAutomaton.onlyInitialState());
+		ids.put(owlAutomaton.onlyInitialState(), 0);
+
+		var converter = new EdgeTreeConverter<S>(diagrams, states, ids);
+		int[] roots = new int[owlAutomaton.size() + 1];
+		for (int current = 0; current < states.size(); ++current) {
+
+			S state = states.get(current);
+			if (roots.length == current) {
+				roots = Arrays.copyOf(roots, 2 * current);
+			}
+			roots[current] = state == null ? DecisionDiagramBuilder.leaf(current)
+					: converter.convert(owlAutomaton.edgeTree(state));
+
+		}
+		roots = Arrays.copyOf(roots, states.size());
+
+		//
+		// Define output of states
+		//
+		byte[] verdicts = new byte[states.size()];
+		for (S state : Owl2Automatalib.nonEmptyStates(owlAutomaton)) {
+			verdicts[ids.get(state)] = (byte) (1 << output);
+		}
+
+		return new SymbolicMonitor(numPropositions, 0, roots, verdicts, diagrams);
+
+	}
+
+	/**
+	 * Converts the {@link ValuationTree}s of the edges of Owl states into decision
+	 * diagrams whose leaves are the ids of the successors, assigning ids to newly
+	 * discovered states.
+	 *
+	 * @param <S> The type of the states of the Owl automaton
+	 */
+	private static class EdgeTreeConverter<S> {
+
+		/**
+		 * The store to create the decision diagrams in.
+		 */
+		private final DecisionDiagramBuilder diagrams;
+
+		/**
+		 * The discovered states ordered by id ({@code null} denotes the sink).
+		 */
+		private final List<S> states;
+
+		/**
+		 * The ids of the discovered states.
+		 */
+		private final Map<S, Integer> ids;
+
+		/**
+		 * The id of the sink or -1 if it has not been discovered yet.
+		 */
+		private int sink = -1;
+
+		EdgeTreeConverter(DecisionDiagramBuilder diagrams, List<S> states, Map<S, Integer> ids) {
+			this.diagrams = diagrams;
+			this.states = states;
+			this.ids = ids;
+		}
+
+		/**
+		 * Converts the edge tree of a state.
+		 *
+		 * @param tree The edge tree
+		 * @return the reference of the decision diagram
+		 */
+		int convert(ValuationTree<Edge<S>> tree) {
+			return convert(tree, new IdentityHashMap<>());
+		}
+
+		/**
+		 * Converts a (sub)tree, reusing the conversion of shared subtrees.
+		 *
+		 * @param tree The (sub)tree
+		 * @param memo The conversions of the subtrees visited so far
+		 * @return the reference of the decision diagram
+		 */
+		private int convert(ValuationTree<Edge<S>> tree, Map<ValuationTree<Edge<S>>, Integer> memo) {
+
+			var ref = memo.get(tree);
+			if (ref != null) {
+				return ref;
+			}
+
+			int result;
+			if (tree instanceof ValuationTree.Node) {
+				var node = (ValuationTree.Node<Edge<S>>) tree;
+				result = diagrams.node(node.variable, convert(node.trueChild, memo), convert(node.falseChild, memo));
+			} else {
+				Set<Edge<S>> edges = ((ValuationTree.Leaf<Edge<S>>) tree).value;
+				assert (edges.size() <= 1);
+				result = DecisionDiagramBuilder.leaf(edges.isEmpty() ? sink() : id(edges.iterator().next().successor()));
+			}
+
+			memo.put(tree, result);
+			return result;
+
+		}
+
+		/**
+		 * Returns the id of a state, assigning the next id if the state is new.
+		 *
+		 * @param state The state
+		 * @return the id of {@code state}
+		 */
+		private int id(S state) {
+			var id = ids.get(state);
+			if (id == null) {
+				id = states.size();
+				states.add(state);
+				ids.put(state, id);
+			}
+			return id;
+		}
+
+		/**
+		 * Returns the id of the sink, adding the sink if necessary.
+		 *
+		 * @return the id of the sink
+		 */
+		private int sink() {
+			if (sink < 0) {
+				sink = states.size();
+				states.add(null);
+			}
+			return sink;
+		}
+
+	}
+
+	/**
+	 * Computes the synchronous product of several symbolic monitors, constructing
+	 * only those tuples of states that are reachable from the tuple of initial
+	 * states. The output of a tuple is the logical OR of the outputs of its
+	 * components.
+	 * <p>
+	 * The decision diagram of a tuple is computed by traversing the diagrams of
+	 * the components simultaneously (always branching on the smallest proposition
+	 * tested by any of them). Traversals are memoized on the tuple of diagrams
+	 * and, thus, shared between all tuples of states. The product is not
+	 * minimized.
+	 *
+	 * @param monitors The symbolic monitors (at least one)
+	 * @return the (reachable part of the) product of all {@code monitors}
+	 */
+	public static SymbolicMonitor product(List<SymbolicMonitor> monitors) {
+
+		if (monitors.isEmpty()) {
+			throw new IllegalArgumentException("No monitors given");
+		}
+
+		int numPropositions = 0;
+		for (var monitor : monitors) {
+			numPropositions = Math.max(numPropositions, monitor.numPropositions());
+		}
+
+		var product = new ProductBuilder(monitors);
+		int arity = monitors.size();
+
+		//
+		// Initial state
+		//
+		int[] tuple = new int[arity];
+		for (int k = 0; k < arity; ++k) {
+			tuple[k] = monitors.get(k).initialState();
+		}
+		product.states.intern(tuple);
+
+		//
+		// Explore reachable tuples (states are processed in the order of their ids)
+		//
+		int[] roots = new int[64];
+		byte[] verdicts = new byte[64];
+		for (int current = 0; current < product.states.size(); ++current) {
+
+			if (roots.length == current) {
+				roots = Arrays.copyOf(roots, 2 * current);
+				verdicts = Arrays.copyOf(verdicts, 2 * current);
+			}
+
+			product.states.copyTo(current, tuple);
+			int[] refs = new int[arity];
+			byte verdict = 0;
+			for (int k = 0; k < arity; ++k) {
+				refs[k] = monitors.get(k).root(tuple[k]);
+				verdict |= monitors.get(k).verdict(tuple[k]);
+			}
+
+			roots[current] = product.apply(refs);
+			verdicts[current] = verdict;
+
+		}
+
+		int size = product.states.size();
+		return new SymbolicMonitor(numPropositions, 0, Arrays.copyOf(roots, size), Arrays.copyOf(verdicts, size),
+				product.diagrams);
+
+	}
+
+	/**
+	 * State of a product construction.
+	 */
+	private static class ProductBuilder {
+
+		/**
+		 * The components of the product.
+		 */
+		private final List<SymbolicMonitor> monitors;
+
+		/**
+		 * The tuples of states (whose ids are the states of the product).
+		 */
+		private final IntTupleInterner states;
+
+		/**
+		 * The tuples of references traversed so far.
+		 */
+		private final IntTupleInterner traversals;
+
+		/**
+		 * The result of each traversal (indexed by the id of the tuple of references).
+		 */
+		private int[] results = new int[64];
+
+		/**
+		 * The store of the product diagrams.
+		 */
+		private final DecisionDiagramBuilder diagrams = new DecisionDiagramBuilder(64);
+
+		ProductBuilder(List<SymbolicMonitor> monitors) {
+			this.monitors = monitors;
+			this.states = new IntTupleInterner(monitors.size(), 64);
+			this.traversals = new IntTupleInterner(monitors.size(), 64);
+		}
+
+		/**
+		 * Computes the product diagram of a tuple of component diagrams. The array is
+		 * not retained.
+		 *
+		 * @param refs The references of the component diagrams
+		 * @return the reference of the product diagram
+		 */
+		int apply(int[] refs) {
+
+			// Diagrams are acyclic, so a known tuple has been traversed completely
+			int known = traversals.size();
+			int id = traversals.intern(refs);
+			if (id < known) {
+				return results[id];
+			}
+			if (id == results.length) {
+				results = Arrays.copyOf(results, 2 * id);
+			}
+
+			//
+			// Find the smallest proposition tested
+			//
+			int proposition = Integer.MAX_VALUE;
+			for (int k = 0; k < refs.length; ++k) {
+				if (!DecisionDiagramBuilder.isLeaf(refs[k])) {
+					proposition = Math.min(proposition, monitors.get(k).proposition(refs[k]));
+				}
+			}
+
+			int result;
+			if (proposition == Integer.MAX_VALUE) {
+
+				// All components reached a leaf: the leaf of the product is the tuple of successors
+				int[] successors = new int[refs.length];
+				for (int k = 0; k < refs.length; ++k) {
+					successors[k] = DecisionDiagramBuilder.value(refs[k]);
+				}
+				result = DecisionDiagramBuilder.leaf(states.intern(successors));
+
+			} else {
+
+				// Branch on the proposition in all components testing it
+				int[] high = new int[refs.length];
+				int[] low = new int[refs.length];
+				for (int k = 0; k < refs.length; ++k) {
+					if (DecisionDiagramBuilder.isLeaf(refs[k]) || monitors.get(k).proposition(refs[k]) != proposition) {
+						high[k] = refs[k];
+						low[k] = refs[k];
+					} else {
+						high[k] = monitors.get(k).high(refs[k]);
+						low[k] = monitors.get(k).low(refs[k]);
+					}
+				}
+				result = diagrams.node(proposition, apply(high), apply(low));
+
+			}
+
+			results[id] = result;
+			return result;
+
+		}
+
+	}
+
+	/**
+	 * Minimizes a symbolic monitor by partition refinement.
+	 * <p>
+	 * Starting from the partition of the states by their outputs, each round maps
+	 * the decision diagram of every state to the blocks of its successors (in a
+	 * fresh store). Since the diagrams are reduced and hash-consed, two states
+	 * have the same successor blocks for all valuations if and only if their
+	 * mapped diagrams have the same reference. Hence, splitting blocks by the
+	 * mapped diagrams refines the partition without enumerating valuations. The
+	 * refinement stops as soon as no block is split.
+	 * <p>
+	 * All states of the monitor are assumed to be reachable (as is the case for
+	 * monitors constructed by this class).
+	 *
+	 * @param monitor The symbolic monitor
+	 * @return the minimal monitor equivalent to {@code monitor}
+	 */
+	public static SymbolicMonitor minimize(SymbolicMonitor monitor) {
+
+		int size = monitor.size();
+
+		//
+		// Initial partition by output
+		//
+		int[] blocks = new int[size];
+		var initialBlocks = new LongIntHashMap(8);
+		for (int state = 0; state < size; ++state) {
+			int block = initialBlocks.getOrDefault(monitor.verdict(state), -1);
+			if (block < 0) {
+				block = initialBlocks.size();
+				initialBlocks.put(monitor.verdict(state), block);
+			}
+			blocks[state] = block;
+		}
+		int numBlocks = initialBlocks.size();
+
+		//
+		// Refine until stable
+		//
+		int[] signatures = new int[size];
+		int[] memo = new int[monitor.numNodes()];
+		while (true) {
+
+			var diagrams = new DecisionDiagramBuilder(monitor.numNodes());
+			Arrays.fill(memo, UNKNOWN);
+			for (int state = 0; state < size; ++state) {
+				signatures[state] = mapLeaves(monitor, monitor.root(state), blocks, diagrams, memo);
+			}
+
+			int[] refinedBlocks = new int[size];
+			var signatureBlocks = new LongIntHashMap(2 * numBlocks);
+			for (int state = 0; state < size; ++state) {
+				long signature = ((long) blocks[state] << 32) | (signatures[state] & 0xffffffffL);
+				int block = signatureBlocks.getOrDefault(signature, -1);
+				if (block < 0) {
+					block = signatureBlocks.size();
+					signatureBlocks.put(signature, block);
+				}
+				refinedBlocks[state] = block;
+			}
+
+			if (signatureBlocks.size() == numBlocks) {
+
+				//
+				// Stable: the mapped diagrams are the transitions of the quotient
+				//
+				int[] roots = new int[numBlocks];
+				byte[] verdicts = new byte[numBlocks];
+				for (int state = 0; state < size; ++state) {
+					roots[blocks[state]] = signatures[state];
+					verdicts[blocks[state]] = monitor.verdict(state);
+				}
+				return new SymbolicMonitor(monitor.numPropositions(), blocks[monitor.initialState()], roots, verdicts,
+						diagrams);
+
+			}
+
+			blocks = refinedBlocks;
+			numBlocks = signatureBlocks.size();
+
+		}
+
+	}
+
+	/**
+	 * Copies a decision diagram of a monitor into a store, replacing each leaf by
+	 * the block of its state.
+	 *
+	 * @param monitor  The monitor containing the diagram
+	 * @param ref      The reference of the diagram
+	 * @param blocks   The block of each state
+	 * @param diagrams The store to copy to
+	 * @param memo     The copies of the inner nodes visited so far
+	 * @return the reference of the copy
+	 */
+	private static int mapLeaves(SymbolicMonitor monitor, int ref, int[] blocks, DecisionDiagramBuilder diagrams,
+			int[] memo) {
+
+		if (DecisionDiagramBuilder.isLeaf(ref)) {
+			return DecisionDiagramBuilder.leaf(blocks[DecisionDiagramBuilder.value(ref)]);
+		}
+		if (memo[ref] != UNKNOWN) {
+			return memo[ref];
+		}
+
+		int result = diagrams.node(monitor.proposition(ref),
+				mapLeaves(monitor, monitor.high(ref), blocks, diagrams, memo),
+				mapLeaves(monitor, monitor.low(ref), blocks, diagrams, memo));
+		memo[ref] = result;
+		return result;
+
+	}
+
+}
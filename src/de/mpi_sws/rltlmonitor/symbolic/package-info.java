@@ -0,0 +1,5 @@
+/**
+ * Symbolic (r)LTL monitors whose transitions are labelled with decision
+ * diagrams over the atomic propositions instead of individual letters.
+ */
+package de.mpi_sws.rltlmonitor.symbolic;
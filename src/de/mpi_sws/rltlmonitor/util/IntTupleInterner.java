@@ -0,0 +1,211 @@
+package de.mpi_sws.rltlmonitor.util;
+
+import java.util.Arrays;
+
+/**
+ * Assigns consecutive ids to tuples of {@code int}s of a fixed arity.
+ * <p>
+ * All tuples are stored back to back in a single {@code int} array (i.e., the
+ * components of the tuple with id {@code i} are stored at indices
+ * {@code i * arity, ..., (i + 1) * arity - 1}), and the ids are found via an
+ * open-addressing hash table of {@code int}s. Thus, interning a tuple does not
+ * allocate objects unless the store has to grow.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class IntTupleInterner {
+
+	/**
+	 * Marker for free slots in the hash table.
+	 */
+	private static final int FREE = -1;
+
+	/**
+	 * The arity of the tuples.
+	 */
+	private final int arity;
+
+	/**
+	 * The components of all tuples, ordered by id.
+	 */
+	private int[] tuples;
+
+	/**
+	 * Number of tuples.
+	 */
+	private int size;
+
+	/**
+	 * Hash table of tuple ids (a power of two many slots).
+	 */
+	private int[] table;
+
+	/**
+	 * Bit mask to map a hash to a slot.
+	 */
+	private int mask;
+
+	/**
+	 * Creates an empty store.
+	 *
+	 * @param arity        The arity of the tuples
+	 * @param expectedSize The expected number of tuples
+	 */
+	public IntTupleInterner(int arity, int expectedSize) {
+
+		if (arity <= 0) {
+			throw new IllegalArgumentException("Arity must be positive");
+		}
+
+		this.arity = arity;
+		this.tuples = new int[Math.max(expectedSize, 4) * arity];
+		this.size = 0;
+		allocateTable(Integer.highestOneBit(Math.max(expectedSize, 4) - 1) << 2);
+
+	}
+
+	/**
+	 * Returns the id of a tuple, assigning the next free id if the tuple has not
+	 * been interned yet. The array is not retained.
+	 *
+	 * @param tuple The tuple (of length {@link #arity()})
+	 * @return the id of {@code tuple}
+	 */
+	public int intern(int[] tuple) {
+
+		assert (tuple.length == arity);
+
+		int slot = hash(tuple, 0) & mask;
+		while (true) {
+			int id = table[slot];
+			if (id == FREE) {
+				break;
+			} else if (equalsTuple(id, tuple)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		//
+		// Add new tuple
+		//
+		int id = size;
+		if ((id + 1) * arity > tuples.length) {
+			tuples = Arrays.copyOf(tuples, tuples.length << 1);
+		}
+		System.arraycopy(tuple, 0, tuples, id * arity, arity);
+		table[slot] = id;
+		size += 1;
+
+		if (size > (table.length >> 1)) {
+			rehash();
+		}
+
+		return id;
+
+	}
+
+	/**
+	 * Returns a component of the tuple with the given id.
+	 *
+	 * @param id        The id of the tuple
+	 * @param component The index of the component
+	 * @return the component of the tuple
+	 */
+	public int get(int id, int component) {
+		return tuples[id * arity + component];
+	}
+
+	/**
+	 * Copies the tuple with the given id into an array.
+	 *
+	 * @param id          The id of the tuple
+	 * @param destination The array to copy to (of length at least
+	 *                    {@link #arity()})
+	 */
+	public void copyTo(int id, int[] destination) {
+		System.arraycopy(tuples, id * arity, destination, 0, arity);
+	}
+
+	/**
+	 * Returns the number of interned tuples.
+	 *
+	 * @return the number of interned tuples
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the arity of the tuples.
+	 *
+	 * @return the arity of the tuples
+	 */
+	public int arity() {
+		return arity;
+	}
+
+	/**
+	 * Checks whether the stored tuple with the given id equals a tuple.
+	 *
+	 * @param id    The id of the stored tuple
+	 * @param tuple The tuple to compare with
+	 * @return whether both tuples are equal
+	 */
+	private boolean equalsTuple(int id, int[] tuple) {
+		int offset = id * arity;
+		for (int i = 0; i < arity; ++i) {
+			if (tuples[offset + i] != tuple[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the hash of a tuple stored in an array.
+	 *
+	 * @param array  The array
+	 * @param offset The index of the first component
+	 * @return the hash of the tuple
+	 */
+	private int hash(int[] array, int offset) {
+		int h = 1;
+		for (int i = 0; i < arity; ++i) {
+			h = 31 * h + array[offset + i];
+		}
+		// Spread bits (finalizer of MurmurHash3)
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * Doubles the size of the hash table and reinserts all ids.
+	 */
+	private void rehash() {
+		allocateTable(table.length << 1);
+		for (int id = 0; id < size; ++id) {
+			int slot = hash(tuples, id * arity) & mask;
+			while (table[slot] != FREE) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id;
+		}
+	}
+
+	/**
+	 * Allocates an empty hash table of the given capacity.
+	 *
+	 * @param capacity The capacity (a power of two)
+	 */
+	private void allocateTable(int capacity) {
+		table = new int[capacity];
+		Arrays.fill(table, FREE);
+		mask = capacity - 1;
+	}
+
+}
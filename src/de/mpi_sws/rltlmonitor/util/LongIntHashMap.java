@@ -0,0 +1,296 @@
+package de.mpi_sws.rltlmonitor.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from primitive {@code long} keys to primitive {@code int} values.
+ * <p>
+ * The map uses open addressing with linear probing and backward-shift deletion
+ * (i.e., no tombstones). Keys and values are stored in two parallel arrays, so
+ * neither lookups nor insertions allocate objects unless the map has to grow.
+ * The key {@code 0} is used to mark free slots and is therefore stored
+ * separately.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class LongIntHashMap {
+
+	/**
+	 * Marker for free slots in the key array.
+	 */
+	private static final long FREE_KEY = 0L;
+
+	/**
+	 * Maximal ratio of occupied slots before the table is grown.
+	 */
+	private static final float LOAD_FACTOR = 0.5f;
+
+	/**
+	 * The keys (a power of two many slots).
+	 */
+	private long[] keys;
+
+	/**
+	 * The values, parallel to {@link #keys}.
+	 */
+	private int[] values;
+
+	/**
+	 * Bit mask to map a hash to a slot.
+	 */
+	private int mask;
+
+	/**
+	 * Number of stored keys, excluding the zero key.
+	 */
+	private int size;
+
+	/**
+	 * Number of keys that may be stored before the table is grown.
+	 */
+	private int threshold;
+
+	/**
+	 * Whether the key {@code 0} is present.
+	 */
+	private boolean hasZeroKey;
+
+	/**
+	 * The value of the key {@code 0}, if present.
+	 */
+	private int zeroValue;
+
+	/**
+	 * Creates an empty map.
+	 */
+	public LongIntHashMap() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty map that can hold the given number of keys without being
+	 * resized.
+	 *
+	 * @param expectedSize The expected number of keys
+	 */
+	public LongIntHashMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	/**
+	 * Returns the value associated with the given key or {@code defaultValue} if
+	 * the key is not present.
+	 *
+	 * @param key          The key to look up
+	 * @param defaultValue The value to return if the key is not present
+	 * @return the value associated with {@code key} or {@code defaultValue}
+	 */
+	public int getOrDefault(long key, int defaultValue) {
+
+		if (key == FREE_KEY) {
+			return hasZeroKey ? zeroValue : defaultValue;
+		}
+
+		for (int slot = slot(key);; slot = (slot + 1) & mask) {
+			long k = keys[slot];
+			if (k == key) {
+				return values[slot];
+			} else if (k == FREE_KEY) {
+				return defaultValue;
+			}
+		}
+
+	}
+
+	/**
+	 * Checks whether the given key is present.
+	 *
+	 * @param key The key to look up
+	 * @return whether {@code key} is present
+	 */
+	public boolean containsKey(long key) {
+
+		if (key == FREE_KEY) {
+			return hasZeroKey;
+		}
+
+		for (int slot = slot(key);; slot = (slot + 1) & mask) {
+			long k = keys[slot];
+			if (k == key) {
+				return true;
+			} else if (k == FREE_KEY) {
+				return false;
+			}
+		}
+
+	}
+
+	/**
+	 * Associates the given value with the given key, replacing any previous
+	 * value.
+	 *
+	 * @param key   The key
+	 * @param value The value
+	 */
+	public void put(long key, int value) {
+
+		if (key == FREE_KEY) {
+			hasZeroKey = true;
+			zeroValue = value;
+			return;
+		}
+
+		int slot = slot(key);
+		while (true) {
+			long k = keys[slot];
+			if (k == key) {
+				values[slot] = value;
+				return;
+			} else if (k == FREE_KEY) {
+				break;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > threshold) {
+			rehash(keys.length << 1);
+		}
+
+	}
+
+	/**
+	 * Removes the given key.
+	 *
+	 * @param key The key to remove
+	 * @return whether {@code key} was present
+	 */
+	public boolean remove(long key) {
+
+		if (key == FREE_KEY) {
+			boolean present = hasZeroKey;
+			hasZeroKey = false;
+			return present;
+		}
+
+		int slot = slot(key);
+		while (true) {
+			long k = keys[slot];
+			if (k == key) {
+				break;
+			} else if (k == FREE_KEY) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		//
+		// Backward-shift deletion: move subsequent entries of the probe sequence
+		// into the gap unless they already sit between their home slot and the gap
+		//
+		int gap = slot;
+		int current = (gap + 1) & mask;
+		while (keys[current] != FREE_KEY) {
+			int home = slot(keys[current]);
+			if (((current - home) & mask) >= ((current - gap) & mask)) {
+				keys[gap] = keys[current];
+				values[gap] = values[current];
+				gap = current;
+			}
+			current = (current + 1) & mask;
+		}
+		keys[gap] = FREE_KEY;
+		size -= 1;
+
+		return true;
+
+	}
+
+	/**
+	 * Returns the number of keys in this map.
+	 *
+	 * @return the number of keys in this map
+	 */
+	public int size() {
+		return size + (hasZeroKey ? 1 : 0);
+	}
+
+	/**
+	 * Removes all keys from this map (without shrinking the table).
+	 */
+	public void clear() {
+		Arrays.fill(keys, FREE_KEY);
+		size = 0;
+		hasZeroKey = false;
+	}
+
+	/**
+	 * Computes the slot of a key by mixing its bits (finalizer of MurmurHash3).
+	 *
+	 * @param key The key
+	 * @return the home slot of {@code key}
+	 */
+	private int slot(long key) {
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) h & mask;
+	}
+
+	/**
+	 * Grows the table to the given capacity and reinserts all keys.
+	 *
+	 * @param capacity The new capacity (a power of two)
+	 */
+	private void rehash(int capacity) {
+
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(capacity);
+
+		for (int i = 0; i < oldKeys.length; ++i) {
+			long key = oldKeys[i];
+			if (key != FREE_KEY) {
+				int slot = slot(key);
+				while (keys[slot] != FREE_KEY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+				values[slot] = oldValues[i];
+			}
+		}
+
+	}
+
+	/**
+	 * Allocates empty key and value arrays of the given capacity.
+	 *
+	 * @param capacity The capacity (a power of two)
+	 */
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		threshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * Computes the smallest power-of-two capacity that can hold the given number
+	 * of keys without exceeding the load factor.
+	 *
+	 * @param expectedSize The expected number of keys
+	 * @return a suitable capacity
+	 */
+	private static int capacityFor(int expectedSize) {
+		long required = Math.max(4, (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR));
+		if (required > (1 << 30)) {
+			throw new IllegalArgumentException("Too many keys: " + expectedSize);
+		}
+		return Integer.highestOneBit((int) required - 1) << 1;
+	}
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Primitive collections used by the monitor construction and runtime.
+ */
+package de.mpi_sws.rltlmonitor.util;